@@ -0,0 +1,210 @@
+package trie;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * BenchmarkKeys generates the keys and access orders the benchmarks run with.
+ * Everything is generated from fixed seeds, so every run of a benchmark works
+ * on the same data.
+ */
+public final class BenchmarkKeys {
+
+  /**
+   * The shapes of key sets the benchmarks are run with.
+   */
+  public enum Distribution {
+    // Keys of 3 to 12 random letters, the trie fans out quickly.
+    RANDOM,
+    /*
+     Keys made of one of a few hundred common stems and a short random
+     ending, like words of a natural language, so most nodes are shared.
+    */
+    SHARED_PREFIX,
+    // Keys of 48 to 96 letters below a few thousand long paths, like URLs.
+    LONG_KEYS
+  }
+
+  /**
+   * The orders in which existing keys are accessed.
+   */
+  public enum Access {
+    // Every key is equally likely.
+    UNIFORM,
+    // Few keys make up most accesses, following Zipf's law with s = 0.99.
+    ZIPFIAN
+  }
+
+  private static final double ZIPF_EXPONENT = 0.99;
+
+  /**
+   * The class should never be initialised as it is just a utility class.
+   */
+  private BenchmarkKeys() {
+  }
+
+  /**
+   * Generates distinct keys.
+   *
+   * @param distribution The shape of the keys.
+   * @param count        The amount of keys.
+   * @param seed         The seed for the random letters.
+   * @return The distinct keys in random order.
+   */
+  public static String[] generate(Distribution distribution, int count,
+      long seed) {
+    Random random = new Random(seed);
+    String[] stems = switch (distribution) {
+      case RANDOM -> new String[] {""};
+      case SHARED_PREFIX -> randomWords(random, 512, 3, 8);
+      case LONG_KEYS -> randomWords(random, 4096, 40, 80);
+    };
+    // The range of the amount of random letters after the stem.
+    int minSuffix = switch (distribution) {
+      case RANDOM -> 3;
+      case SHARED_PREFIX -> 1;
+      case LONG_KEYS -> 8;
+    };
+    int suffixRange = switch (distribution) {
+      case RANDOM -> 10;
+      case SHARED_PREFIX -> 6;
+      case LONG_KEYS -> 9;
+    };
+
+    Set<String> unique = new HashSet<>(count * 2);
+    String[] keys = new String[count];
+    StringBuilder key = new StringBuilder();
+    int size = 0;
+    while (size < count) {
+      key.setLength(0);
+      key.append(stems[random.nextInt(stems.length)]);
+      appendLetters(key, random, minSuffix + random.nextInt(suffixRange));
+      String candidate = key.toString();
+      if (unique.add(candidate)) {
+        keys[size++] = candidate;
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Generates an order of indexes in which keys are accessed.
+   *
+   * @param access The access pattern.
+   * @param keys   The amount of keys which can be accessed.
+   * @param length The length of the order.
+   * @param seed   The seed for the random order.
+   * @return The indexes of the accessed keys.
+   */
+  public static int[] accessOrder(Access access, int keys, int length,
+      long seed) {
+    Random random = new Random(seed);
+    int[] order = new int[length];
+    if (access == Access.UNIFORM) {
+      for (int i = 0; i < length; i++) {
+        order[i] = random.nextInt(keys);
+      }
+      return order;
+    }
+
+    /*
+     The generator of Gray et al. ("Quickly Generating Billion-Record
+     Synthetic Databases") draws ranks in constant time once zeta(n) is known.
+     The ranks are scattered over the keys, so the popular keys are not all in
+     the same part of the trie.
+    */
+    double zetaN = zeta(keys);
+    double zeta2 = zeta(2);
+    double alpha = 1.0 / (1.0 - ZIPF_EXPONENT);
+    double eta = (1 - Math.pow(2.0 / keys, 1 - ZIPF_EXPONENT))
+        / (1 - zeta2 / zetaN);
+    int[] keyOfRank = shuffledIndexes(keys, random);
+    for (int i = 0; i < length; i++) {
+      double u = random.nextDouble();
+      double uz = u * zetaN;
+      int rank;
+      if (uz < 1.0) {
+        rank = 0;
+      } else if (uz < 1.0 + Math.pow(0.5, ZIPF_EXPONENT)) {
+        rank = 1;
+      } else {
+        rank = (int) (keys * Math.pow(eta * u - eta + 1, alpha));
+      }
+      order[i] = keyOfRank[Math.min(rank, keys - 1)];
+    }
+    return order;
+  }
+
+  /**
+   * Calculates the generalized harmonic number of n for the Zipf exponent.
+   *
+   * @param n The amount of ranks.
+   * @return The sum of 1 / i^s for i from 1 to n.
+   */
+  private static double zeta(int n) {
+    double sum = 0;
+    for (int i = 1; i <= n; i++) {
+      sum += 1 / Math.pow(i, ZIPF_EXPONENT);
+    }
+    return sum;
+  }
+
+  /**
+   * Creates the indexes from 0 to count - 1 in random order.
+   *
+   * @param count  The amount of indexes.
+   * @param random The source of randomness.
+   * @return The shuffled indexes.
+   */
+  private static int[] shuffledIndexes(int count, Random random) {
+    int[] indexes = new int[count];
+    for (int i = 0; i < count; i++) {
+      indexes[i] = i;
+    }
+    for (int i = count - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int swap = indexes[i];
+      indexes[i] = indexes[j];
+      indexes[j] = swap;
+    }
+    return indexes;
+  }
+
+  /**
+   * Generates random words.
+   *
+   * @param random    The source of randomness.
+   * @param count     The amount of words.
+   * @param minLength The minimum length of a word.
+   * @param maxLength The maximum length of a word.
+   * @return The words, which might contain duplicates.
+   */
+  private static String[] randomWords(Random random, int count, int minLength,
+      int maxLength) {
+    String[] words = new String[count];
+    StringBuilder word = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      word.setLength(0);
+      appendLetters(word, random,
+          minLength + random.nextInt(maxLength - minLength + 1));
+      words[i] = word.toString();
+    }
+    return words;
+  }
+
+  /**
+   * Appends random letters a-z.
+   *
+   * @param out    The builder to append to.
+   * @param random The source of randomness.
+   * @param count  The amount of letters.
+   */
+  private static void appendLetters(StringBuilder out, Random random,
+      int count) {
+    for (int i = 0; i < count; i++) {
+      out.append((char) ('a' + random.nextInt(26)));
+    }
+  }
+
+}
@@ -0,0 +1,64 @@
+package trie;
+
+import java.io.IOException;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkRunner is the entry point of the benchmark jar. It runs the JMH
+ * benchmarks selected by the usual JMH command line options and always adds
+ * the GC profiler, so every result also reports the allocation rate. The
+ * options which only list or explain something (-h, -l, -lp, -lprof, -lrf)
+ * do that instead of running anything.
+ */
+public final class BenchmarkRunner {
+
+  /**
+   * The class should never be initialised as it is just the entry point.
+   */
+  private BenchmarkRunner() {
+  }
+
+  /**
+   * Runs the benchmarks.
+   *
+   * @param args The JMH command line options.
+   * @throws CommandLineOptionException If the options can not be parsed.
+   * @throws RunnerException            If a benchmark fails.
+   * @throws IOException                If the help can not be printed.
+   */
+  public static void main(String[] args)
+      throws CommandLineOptionException, RunnerException, IOException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    if (commandLine.shouldHelp()) {
+      commandLine.showHelp();
+      return;
+    }
+    if (commandLine.shouldListProfilers()) {
+      commandLine.listProfilers();
+      return;
+    }
+    if (commandLine.shouldListResultFormats()) {
+      commandLine.listResultFormats();
+      return;
+    }
+    Options options = new OptionsBuilder()
+        .parent(commandLine)
+        .addProfiler(GCProfiler.class)
+        .build();
+    Runner runner = new Runner(options);
+    if (commandLine.shouldList()) {
+      runner.list();
+    } else if (commandLine.shouldListWithParams()) {
+      runner.listWithParams(commandLine);
+    } else {
+      runner.run();
+    }
+  }
+
+}
@@ -0,0 +1,103 @@
+package trie;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CacheBenchmark measures lookups with and without the hot-key cache in front
+ * of the trie, for String keys and for keys given as char arrays. A capacity
+ * of 0 disables the cache. The hit ratio of the last iteration is printed, as
+ * the gain depends on it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CacheBenchmark {
+
+  // The length of the precomputed access order, a power of two.
+  private static final int ACCESS_ORDER_LENGTH = 1 << 20;
+
+  @Param({"100000", "1000000"})
+  private int size;
+
+  @Param({"ZIPFIAN", "UNIFORM"})
+  private BenchmarkKeys.Access access;
+
+  @Param({"0", "4096", "65536"})
+  private int capacity;
+
+  private Trie trie;
+  private String[] keys;
+  // The same keys as char arrays for the lookups of ranges.
+  private char[][] keyChars;
+  private int[] accessOrder;
+  private int position;
+
+  /**
+   * Builds the trie once per fork.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    keys = BenchmarkKeys.generate(BenchmarkKeys.Distribution.RANDOM, size, 42);
+    trie = new Trie();
+    keyChars = new char[keys.length][];
+    for (int i = 0; i < keys.length; i++) {
+      trie.add(keys[i], i);
+      keyChars[i] = keys[i].toCharArray();
+    }
+    if (capacity > 0) {
+      trie.enableCache(capacity);
+    }
+    accessOrder = BenchmarkKeys.accessOrder(access, size, ACCESS_ORDER_LENGTH,
+        7);
+  }
+
+  /**
+   * Resets the statistics of the cache before every iteration.
+   */
+  @Setup(Level.Iteration)
+  public void resetStats() {
+    if (trie.getCache() != null) {
+      trie.getCache().resetStats();
+    }
+  }
+
+  /**
+   * Prints the hit ratio of the iteration.
+   */
+  @TearDown(Level.Iteration)
+  public void printHitRatio() {
+    if (trie.getCache() != null) {
+      System.out.printf(" (hit ratio %.3f)", trie.getCache().getHitRatio());
+    }
+  }
+
+  @Benchmark
+  public int getInt() {
+    position = (position + 1) & (ACCESS_ORDER_LENGTH - 1);
+    return trie.getInt(keys[accessOrder[position]]);
+  }
+
+  @Benchmark
+  public int getIntChars() {
+    position = (position + 1) & (ACCESS_ORDER_LENGTH - 1);
+    char[] key = keyChars[accessOrder[position]];
+    return trie.getInt(key, 0, key.length);
+  }
+
+}
@@ -0,0 +1,105 @@
+package trie;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CompactBenchmark compares lookups and changes of the Trie with its
+ * CompactTrie copy. The memory report of the compact trie against the
+ * statistics of the Trie is printed after the trial, as the compact layout
+ * trades lookup speed for memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CompactBenchmark {
+
+  // The length of the precomputed access order, a power of two.
+  private static final int ACCESS_ORDER_LENGTH = 1 << 20;
+
+  @Param({"100000", "1000000"})
+  private int size;
+
+  @Param({"RANDOM", "SHARED_PREFIX", "LONG_KEYS"})
+  private BenchmarkKeys.Distribution distribution;
+
+  private Trie trie;
+  private CompactTrie compact;
+  private String[] keys;
+  private int[] accessOrder;
+  private int position;
+
+  /**
+   * Builds the trie and its compact copy once per fork.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    keys = BenchmarkKeys.generate(distribution, size, 42);
+    trie = new Trie();
+    for (int i = 0; i < keys.length; i++) {
+      trie.add(keys[i], i);
+    }
+    compact = trie.toCompact();
+    accessOrder = BenchmarkKeys.accessOrder(BenchmarkKeys.Access.UNIFORM,
+        size, ACCESS_ORDER_LENGTH, 7);
+  }
+
+  /**
+   * Prints the memory report of both tries, the changes of the benchmarks
+   * keep their keys.
+   */
+  @TearDown(Level.Trial)
+  public void printMemoryReport() {
+    System.out.printf("%n%s%n", compact.memoryReport(trie.statistics()));
+  }
+
+  /**
+   * Gets the index of the next key in the access order.
+   *
+   * @return The index of the key.
+   */
+  private int nextIndex() {
+    position = (position + 1) & (ACCESS_ORDER_LENGTH - 1);
+    return accessOrder[position];
+  }
+
+  @Benchmark
+  public int trieGetInt() {
+    return trie.getInt(keys[nextIndex()]);
+  }
+
+  @Benchmark
+  public int compactGetInt() {
+    return compact.getInt(keys[nextIndex()]);
+  }
+
+  @Benchmark
+  public boolean trieRemoveAndAdd() {
+    int index = nextIndex();
+    trie.remove(keys[index]);
+    return trie.add(keys[index], index);
+  }
+
+  @Benchmark
+  public boolean compactRemoveAndAdd() {
+    int index = nextIndex();
+    compact.remove(keys[index]);
+    return compact.add(keys[index], index);
+  }
+
+}
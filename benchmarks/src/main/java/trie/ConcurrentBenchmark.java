@@ -0,0 +1,240 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ConcurrentBenchmark measures how the throughput of the ConcurrentTrie
+ * scales with 1 to 32 threads, compared to a Trie behind a single lock. As
+ * JMH can not use a parameter as its thread count, every invocation splits a
+ * fixed amount of operations over a pool with the given amount of threads and
+ * waits for all of them.
+ * <p>
+ * The operations are lookups of existing keys and, depending on readPercent,
+ * changes of existing keys, so the trie keeps its size over all iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ConcurrentBenchmark {
+
+  // The amount of operations of all threads in one invocation.
+  private static final int OPERATIONS = 1 << 16;
+  // The length of the precomputed access order of a thread, a power of two.
+  private static final int ACCESS_ORDER_LENGTH = 1 << 18;
+
+  /**
+   * The implementations which are compared.
+   */
+  public enum Implementation {
+    CONCURRENT,
+    SYNCHRONIZED
+  }
+
+  @Param({"1", "2", "4", "8", "16", "32"})
+  private int threads;
+
+  @Param({"100", "90", "50"})
+  private int readPercent;
+
+  @Param({"CONCURRENT", "SYNCHRONIZED"})
+  private Implementation implementation;
+
+  @Param({"1000000"})
+  private int size;
+
+  private ExecutorService pool;
+  private List<Callable<Long>> workers;
+
+  /**
+   * Fills the trie and starts the pool once per fork.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    String[] keys = BenchmarkKeys.generate(BenchmarkKeys.Distribution.RANDOM,
+        size, 42);
+    ConcurrentTrie concurrentTrie = new ConcurrentTrie();
+    Trie trie = new Trie();
+    for (int i = 0; i < keys.length; i++) {
+      if (implementation == Implementation.CONCURRENT) {
+        concurrentTrie.add(keys[i], i);
+      } else {
+        trie.add(keys[i], i);
+      }
+    }
+
+    pool = Executors.newFixedThreadPool(threads);
+    workers = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      int[] accessOrder = BenchmarkKeys.accessOrder(
+          BenchmarkKeys.Access.UNIFORM, size, ACCESS_ORDER_LENGTH, 7 + i);
+      boolean[] writes = new boolean[ACCESS_ORDER_LENGTH];
+      Random random = new Random(13 + i);
+      for (int j = 0; j < writes.length; j++) {
+        writes[j] = random.nextInt(100) >= readPercent;
+      }
+      workers.add(implementation == Implementation.CONCURRENT
+          ? new ConcurrentWorker(concurrentTrie, keys, accessOrder, writes,
+              OPERATIONS / threads)
+          : new SynchronizedWorker(trie, keys, accessOrder, writes,
+              OPERATIONS / threads));
+    }
+  }
+
+  /**
+   * Stops the pool.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(OPERATIONS)
+  public long operations() throws InterruptedException, ExecutionException {
+    long sum = 0;
+    for (Future<Long> result : pool.invokeAll(workers)) {
+      sum += result.get();
+    }
+    return sum;
+  }
+
+  /**
+   * Worker runs the operations of one thread of an invocation, every call
+   * continues with the next keys of its access order.
+   */
+  private abstract static class Worker implements Callable<Long> {
+
+    private final String[] keys;
+    private final int[] accessOrder;
+    private final boolean[] writes;
+    private final int operations;
+    private int position;
+
+    /**
+     * Creates a worker.
+     *
+     * @param keys        The keys in the trie.
+     * @param accessOrder The indexes of the keys in the order of access.
+     * @param writes      Weather the operation at a position is a change.
+     * @param operations  The amount of operations of one call.
+     */
+    Worker(String[] keys, int[] accessOrder, boolean[] writes,
+        int operations) {
+      this.keys = keys;
+      this.accessOrder = accessOrder;
+      this.writes = writes;
+      this.operations = operations;
+    }
+
+    @Override
+    public Long call() {
+      long sum = 0;
+      for (int i = 0; i < operations; i++) {
+        position = (position + 1) & (ACCESS_ORDER_LENGTH - 1);
+        int index = accessOrder[position];
+        if (writes[position]) {
+          sum += change(keys[index], position) ? 1 : 0;
+        } else {
+          sum += getInt(keys[index]);
+        }
+      }
+      return sum;
+    }
+
+    /**
+     * Looks up the points of a key.
+     *
+     * @param key The key.
+     * @return The points of the key.
+     */
+    abstract int getInt(String key);
+
+    /**
+     * Changes the points of an existing key.
+     *
+     * @param key    The key.
+     * @param points The new points.
+     * @return Weather the key existed.
+     */
+    abstract boolean change(String key, int points);
+  }
+
+  /**
+   * ConcurrentWorker runs the operations on the ConcurrentTrie.
+   */
+  private static final class ConcurrentWorker extends Worker {
+
+    private final ConcurrentTrie trie;
+
+    ConcurrentWorker(ConcurrentTrie trie, String[] keys, int[] accessOrder,
+        boolean[] writes, int operations) {
+      super(keys, accessOrder, writes, operations);
+      this.trie = trie;
+    }
+
+    @Override
+    int getInt(String key) {
+      return trie.getInt(key);
+    }
+
+    @Override
+    boolean change(String key, int points) {
+      return trie.change(key, points);
+    }
+  }
+
+  /**
+   * SynchronizedWorker runs the operations on a Trie which is locked for
+   * every operation.
+   */
+  private static final class SynchronizedWorker extends Worker {
+
+    private final Trie trie;
+
+    SynchronizedWorker(Trie trie, String[] keys, int[] accessOrder,
+        boolean[] writes, int operations) {
+      super(keys, accessOrder, writes, operations);
+      this.trie = trie;
+    }
+
+    @Override
+    int getInt(String key) {
+      synchronized (trie) {
+        return trie.getInt(key);
+      }
+    }
+
+    @Override
+    boolean change(String key, int points) {
+      synchronized (trie) {
+        return trie.changeInt(key, points);
+      }
+    }
+  }
+
+}
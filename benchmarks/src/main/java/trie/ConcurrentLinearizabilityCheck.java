@@ -0,0 +1,276 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * ConcurrentLinearizabilityCheck runs random operations of several threads
+ * on a ConcurrentTrie, records when every operation started and returned and
+ * checks that the history is linearizable: there has to be an order of all
+ * operations which keeps the real-time order of operations which did not
+ * overlap and in which every operation returns what it returned in the run.
+ * <p>
+ * Linearizability is checked for every key on its own, which is enough as the
+ * keys are independent objects. The keys share prefixes and use characters of
+ * different alphabets, so the removal of one key prunes nodes on the path of
+ * other keys while they are changed and looked up.
+ * <p>
+ * Run it from the benchmark jar with the amount of rounds as argument:
+ * <pre>
+ *   java -cp benchmarks/target/benchmarks.jar \
+ *       trie.ConcurrentLinearizabilityCheck 1000
+ * </pre>
+ */
+public final class ConcurrentLinearizabilityCheck {
+
+  private static final int THREADS = 4;
+  private static final int OPERATIONS_PER_THREAD = 40;
+  private static final String[] KEYS = {
+      "a", "ab", "abc", "abd", "b\u00e9", "b\u00e9\u4e2d", "\u4e2d", "z"};
+
+  private static final int ADD = 0;
+  private static final int CHANGE = 1;
+  private static final int REMOVE = 2;
+  private static final int MERGE = 3;
+  // Every other kind below OPERATION_KINDS is a lookup.
+  private static final int OPERATION_KINDS = 5;
+
+  /**
+   * The class should never be initialised as it is just the entry point.
+   */
+  private ConcurrentLinearizabilityCheck() {
+  }
+
+  /**
+   * Runs the check.
+   *
+   * @param args The amount of rounds, 1000 by default.
+   * @throws Exception If a thread fails.
+   */
+  public static void main(String[] args) throws Exception {
+    int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    long operations = 0;
+    for (int round = 0; round < rounds; round++) {
+      List<Operation> history = run(new Random(round));
+      Map<String, List<Operation>> byKey = new HashMap<>();
+      for (Operation operation : history) {
+        byKey.computeIfAbsent(operation.key, key -> new ArrayList<>())
+            .add(operation);
+      }
+      for (Map.Entry<String, List<Operation>> entry : byKey.entrySet()) {
+        if (!isLinearizable(entry.getValue())) {
+          throw new IllegalStateException("round " + round + ": history of "
+              + entry.getKey() + " is not linearizable " + entry.getValue());
+        }
+      }
+      operations += history.size();
+    }
+    System.out.printf("%d operations in %d rounds are linearizable%n",
+        operations, rounds);
+  }
+
+  /**
+   * Runs one round of random operations of all threads on a new trie.
+   *
+   * @param random The source of the operations of the round.
+   * @return The history of all operations.
+   * @throws Exception If a thread fails.
+   */
+  private static List<Operation> run(Random random) throws Exception {
+    ConcurrentTrie trie = new ConcurrentTrie();
+    CyclicBarrier start = new CyclicBarrier(THREADS);
+    List<List<Operation>> histories = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    Throwable[] failure = new Throwable[1];
+    for (int thread = 0; thread < THREADS; thread++) {
+      List<Operation> history = new ArrayList<>();
+      histories.add(history);
+      long seed = random.nextLong();
+      Thread worker = new Thread(() -> {
+        Random operations = new Random(seed);
+        try {
+          start.await();
+          for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+            Operation operation = new Operation(
+                operations.nextInt(OPERATION_KINDS),
+                KEYS[operations.nextInt(KEYS.length)],
+                operations.nextInt(3) - 1);
+            operation.invoke(trie);
+            history.add(operation);
+          }
+        } catch (Throwable e) {
+          synchronized (failure) {
+            failure[0] = e;
+          }
+        }
+      });
+      threads.add(worker);
+      worker.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    if (failure[0] != null) {
+      throw new IllegalStateException("a thread failed", failure[0]);
+    }
+    List<Operation> history = new ArrayList<>();
+    histories.forEach(history::addAll);
+    return history;
+  }
+
+  /**
+   * Checks weather the operations on a single key are linearizable by
+   * searching for a valid order. Only operations which started before every
+   * other remaining operation returned can come next. Visited combinations of
+   * linearized operations and points are not searched twice.
+   *
+   * @param operations The operations on the key.
+   * @return Weather a valid order exists.
+   */
+  private static boolean isLinearizable(List<Operation> operations) {
+    Operation[] sorted = operations.toArray(new Operation[0]);
+    Arrays.sort(sorted, (a, b) -> Long.compare(a.invoked, b.invoked));
+    return search(sorted, new boolean[sorted.length], 0,
+        ConcurrentTrie.NO_POINTS, new HashSet<>());
+  }
+
+  /**
+   * Searches for a valid order of the remaining operations.
+   *
+   * @param operations The operations ordered by their start.
+   * @param done       Which operations are linearized already.
+   * @param doneCount  The amount of linearized operations.
+   * @param points     The points of the key after the linearized operations.
+   * @param visited    The searched combinations without a valid order.
+   * @return Weather a valid order exists.
+   */
+  private static boolean search(Operation[] operations, boolean[] done,
+      int doneCount, int points, Set<String> visited) {
+    if (doneCount == operations.length) {
+      return true;
+    }
+    String state = Arrays.toString(done) + points;
+    if (!visited.add(state)) {
+      return false;
+    }
+    long firstReturn = Long.MAX_VALUE;
+    for (int i = 0; i < operations.length; i++) {
+      if (!done[i]) {
+        firstReturn = Math.min(firstReturn, operations[i].returned);
+      }
+    }
+    for (int i = 0; i < operations.length; i++) {
+      Operation operation = operations[i];
+      if (operation.invoked > firstReturn) {
+        break;
+      }
+      if (done[i]) {
+        continue;
+      }
+      int next = operation.apply(points);
+      if (next == Integer.MAX_VALUE) {
+        continue;
+      }
+      done[i] = true;
+      if (search(operations, done, doneCount + 1, next, visited)) {
+        return true;
+      }
+      done[i] = false;
+    }
+    return false;
+  }
+
+  /**
+   * Operation is a single operation of a thread with its result and the time
+   * it started and returned.
+   */
+  private static final class Operation {
+
+    private final int kind;
+    private final String key;
+    private final int points;
+    private int result;
+    private long invoked;
+    private long returned;
+
+    /**
+     * Creates an operation which is not invoked yet.
+     *
+     * @param kind   The kind of the operation.
+     * @param key    The key of the operation.
+     * @param points The points of an add, change or merge.
+     */
+    Operation(int kind, String key, int points) {
+      this.kind = kind;
+      this.key = key;
+      this.points = points;
+    }
+
+    /**
+     * Runs the operation on the trie and records its result.
+     *
+     * @param trie The trie.
+     */
+    void invoke(ConcurrentTrie trie) {
+      invoked = System.nanoTime();
+      result = switch (kind) {
+        case ADD -> trie.add(key, points) ? 1 : 0;
+        case CHANGE -> trie.change(key, points) ? 1 : 0;
+        case REMOVE -> trie.remove(key) ? 1 : 0;
+        // A sum of zero removes the key.
+        case MERGE -> trie.merge(key, points, (current, added) ->
+            current + added == 0 ? ConcurrentTrie.NO_POINTS : current + added);
+        default -> trie.getInt(key);
+      };
+      returned = System.nanoTime();
+    }
+
+    /**
+     * Applies the operation to the points of the key in sequential order.
+     *
+     * @param current The points before the operation.
+     * @return The points after the operation or Integer.MAX_VALUE if the
+     * operation would have returned something else in this order.
+     */
+    int apply(int current) {
+      boolean exists = current != ConcurrentTrie.NO_POINTS;
+      int expected;
+      int next = current;
+      switch (kind) {
+        case ADD -> {
+          expected = exists ? 0 : 1;
+          next = exists ? current : points;
+        }
+        case CHANGE -> {
+          expected = exists ? 1 : 0;
+          next = exists ? points : current;
+        }
+        case REMOVE -> {
+          expected = exists ? 1 : 0;
+          next = ConcurrentTrie.NO_POINTS;
+        }
+        case MERGE -> {
+          next = !exists ? points : current + points == 0
+              ? ConcurrentTrie.NO_POINTS : current + points;
+          expected = next;
+        }
+        default -> expected = current;
+      }
+      return expected == result ? next : Integer.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+      return kind + ":" + points + "=" + result + "@" + invoked + "-"
+          + returned;
+    }
+  }
+
+}
@@ -0,0 +1,264 @@
+package trie;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DurableRecoveryCheck kills a process which writes to a DurableTrie at random
+ * points in time and checks that the reopened trie holds every change which
+ * was acknowledged. The writer process runs several threads, so changes are
+ * forced together by group commit and checkpoints run in between.
+ * <p>
+ * Every writer thread changes its own keys with a deterministic sequence of
+ * operations and prints the amount of its acknowledged operations. After the
+ * kill the keys of every thread have to match the state after at least that
+ * many operations, as changes which were durable but not printed yet may be
+ * recovered as well.
+ * <p>
+ * Run it from the benchmark jar with the amount of kills as argument:
+ * <pre>
+ *   java -cp benchmarks/target/benchmarks.jar trie.DurableRecoveryCheck 20
+ * </pre>
+ */
+public final class DurableRecoveryCheck {
+
+  private static final String WRITER = "writer";
+  private static final int WRITER_THREADS = 4;
+  // The amount of different keys of a writer thread.
+  private static final int KEYS_PER_THREAD = 64;
+  // The maximum amount of unprinted operations of a thread after a kill.
+  private static final int MAX_UNACKNOWLEDGED = 1_000_000;
+  private static final int CHECKPOINT_RECORDS = 500;
+
+  /**
+   * The class should never be initialised as it is just the entry point.
+   */
+  private DurableRecoveryCheck() {
+  }
+
+  /**
+   * Runs the check, or the writer process if started by the check.
+   *
+   * @param args The amount of kills, 10 by default.
+   * @throws IOException          If the trie can not be read or the writer
+   *                              can not be started.
+   * @throws InterruptedException If interrupted while waiting for the writer.
+   */
+  public static void main(String[] args)
+      throws IOException, InterruptedException {
+    if (args.length > 0 && args[0].equals(WRITER)) {
+      write(Path.of(args[1]), args);
+      return;
+    }
+    int kills = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+    Path directory = Files.createTempDirectory("durable-recovery");
+    Random random = new Random(42);
+    List<Map<String, Integer>> models = new ArrayList<>();
+    long[] acknowledged = new long[WRITER_THREADS];
+    for (int thread = 0; thread < WRITER_THREADS; thread++) {
+      models.add(new HashMap<>());
+    }
+
+    for (int kill = 0; kill < kills; kill++) {
+      long[] printed = runWriter(directory, acknowledged,
+          100 + random.nextInt(500));
+      try (DurableTrie trie = DurableTrie.open(directory)) {
+        TrieSnapshot snapshot = trie.snapshot();
+        for (int thread = 0; thread < WRITER_THREADS; thread++) {
+          acknowledged[thread] = recover(snapshot, thread,
+              models.get(thread), acknowledged[thread], printed[thread]);
+        }
+        System.out.printf("kill %d: %d operations recovered%n", kill + 1,
+            sum(acknowledged));
+      }
+    }
+    System.out.println("all acknowledged changes were recovered");
+  }
+
+  /**
+   * Starts the writer process, reads its acknowledgements for a while and
+   * kills it.
+   *
+   * @param directory    The directory of the trie.
+   * @param start        The amount of operations every thread did already.
+   * @param milliseconds The time after which the writer gets killed.
+   * @return The amount of acknowledged operations of every thread which were
+   * read before the kill.
+   * @throws IOException          If the writer can not be started.
+   * @throws InterruptedException If interrupted while waiting for the writer.
+   */
+  private static long[] runWriter(Path directory, long[] start,
+      long milliseconds) throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>();
+    command.add(ProcessHandle.current().info().command()
+        .orElse("java"));
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(DurableRecoveryCheck.class.getName());
+    command.add(WRITER);
+    command.add(directory.toString());
+    for (long operations : start) {
+      command.add(Long.toString(operations));
+    }
+    Process process = new ProcessBuilder(command)
+        .redirectError(ProcessBuilder.Redirect.INHERIT)
+        .start();
+
+    long[] printed = start.clone();
+    long deadline = System.nanoTime()
+        + TimeUnit.MILLISECONDS.toNanos(milliseconds);
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+        process.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while (System.nanoTime() < deadline
+          && (line = reader.readLine()) != null) {
+        int separator = line.indexOf(' ');
+        int thread = Integer.parseInt(line.substring(0, separator));
+        printed[thread] = Long.parseLong(line.substring(separator + 1));
+      }
+      process.destroyForcibly();
+      process.waitFor();
+    }
+    return printed;
+  }
+
+  /**
+   * Finds the amount of operations of a thread which were recovered. The
+   * model is brought to the recovered state.
+   *
+   * @param snapshot The recovered trie.
+   * @param thread   The writer thread.
+   * @param model    The keys of the thread after the known operations.
+   * @param known    The amount of operations in the model.
+   * @param printed  The amount of operations which were acknowledged.
+   * @return The amount of recovered operations.
+   * @throws IllegalStateException If an acknowledged change was lost.
+   */
+  private static long recover(TrieSnapshot snapshot, int thread,
+      Map<String, Integer> model, long known, long printed) {
+    Map<String, Integer> recovered = new HashMap<>();
+    snapshot.prefixScan(prefix(thread))
+        .forEach(entry -> recovered.put(entry.getKey(), entry.getValue()));
+    long operations = known;
+    while (operations < printed) {
+      apply(thread, operations++, model);
+    }
+    while (!model.equals(recovered)) {
+      if (operations >= printed + MAX_UNACKNOWLEDGED) {
+        throw new IllegalStateException("thread " + thread + " lost changes"
+            + " after " + printed + " acknowledged operations");
+      }
+      apply(thread, operations++, model);
+    }
+    return operations;
+  }
+
+  /**
+   * Runs the writer threads until the process gets killed.
+   *
+   * @param directory The directory of the trie.
+   * @param args      The arguments of the process, the amount of operations
+   *                  every thread did already follow the directory.
+   * @throws IOException If the trie can not be opened.
+   */
+  private static void write(Path directory, String[] args)
+      throws IOException {
+    DurableTrie trie = DurableTrie.open(directory, 50,
+        TimeUnit.MICROSECONDS, CHECKPOINT_RECORDS);
+    PrintStream out = System.out;
+    for (int i = 0; i < WRITER_THREADS; i++) {
+      int thread = i;
+      long start = Long.parseLong(args[2 + thread]);
+      Thread writer = new Thread(() -> {
+        try {
+          for (long operation = start; ; operation++) {
+            apply(thread, operation, trie);
+            synchronized (out) {
+              out.println(thread + " " + (operation + 1));
+            }
+          }
+        } catch (IOException e) {
+          e.printStackTrace();
+          System.exit(1);
+        }
+      }, "writer-" + thread);
+      writer.start();
+    }
+  }
+
+  /**
+   * Applies an operation of a thread to the trie.
+   *
+   * @param thread    The writer thread.
+   * @param operation The number of the operation.
+   * @param trie      The trie.
+   * @throws IOException If the change can not be logged.
+   */
+  private static void apply(int thread, long operation, DurableTrie trie)
+      throws IOException {
+    Random random = new Random(thread * 1_000_003L + operation);
+    String key = prefix(thread) + random.nextInt(KEYS_PER_THREAD);
+    int points = random.nextInt(1000);
+    switch (random.nextInt(3)) {
+      case 0 -> trie.add(key, points);
+      case 1 -> trie.change(key, points);
+      default -> trie.remove(key);
+    }
+  }
+
+  /**
+   * Applies an operation of a thread to the model, the same way as to the
+   * trie.
+   *
+   * @param thread    The writer thread.
+   * @param operation The number of the operation.
+   * @param model     The keys of the thread.
+   */
+  private static void apply(int thread, long operation,
+      Map<String, Integer> model) {
+    Random random = new Random(thread * 1_000_003L + operation);
+    String key = prefix(thread) + random.nextInt(KEYS_PER_THREAD);
+    int points = random.nextInt(1000);
+    switch (random.nextInt(3)) {
+      case 0 -> model.putIfAbsent(key, points);
+      case 1 -> model.replace(key, points);
+      default -> model.remove(key);
+    }
+  }
+
+  /**
+   * Gets the prefix of all keys of a writer thread.
+   *
+   * @param thread The writer thread.
+   * @return The prefix.
+   */
+  private static String prefix(int thread) {
+    return "w" + thread + "-";
+  }
+
+  /**
+   * Sums up the amounts of operations.
+   *
+   * @param operations The amount of operations of every thread.
+   * @return The sum.
+   */
+  private static long sum(long[] operations) {
+    long sum = 0;
+    for (long count : operations) {
+      sum += count;
+    }
+    return sum;
+  }
+
+}
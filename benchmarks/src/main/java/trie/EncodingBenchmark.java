@@ -0,0 +1,167 @@
+package trie;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * EncodingBenchmark compares the key encodings of the EncodedTrie on keys of
+ * small and large alphabets. The amount of nodes and the estimated heap size
+ * of every trie are printed after the trial, as the encodings trade memory for
+ * speed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class EncodingBenchmark {
+
+  /**
+   * The alphabets the keys are made of.
+   */
+  public enum Alphabet {
+    // Lowercase letters a-z.
+    LOWERCASE,
+    // Letters, digits and '_' like the names in source code.
+    IDENTIFIER,
+    // Common CJK ideographs, a few thousand different characters.
+    CJK,
+    // Mostly ASCII letters with some accented letters and emoji.
+    MIXED
+  }
+
+  // The length of the precomputed access order, a power of two.
+  private static final int ACCESS_ORDER_LENGTH = 1 << 20;
+  private static final String IDENTIFIER_CHARS =
+      "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_";
+  private static final int CJK_FIRST = 0x4E00;
+  private static final int CJK_COUNT = 4096;
+
+  @Param({"100000", "1000000"})
+  private int size;
+
+  @Param({"LOWERCASE", "IDENTIFIER", "CJK", "MIXED"})
+  private Alphabet alphabet;
+
+  @Param({"CHARS", "UTF8", "NIBBLES"})
+  private KeyEncoding encoding;
+
+  private EncodedTrie trie;
+  private String[] keys;
+  private int[] accessOrder;
+  private int position;
+
+  /**
+   * Builds the trie once per fork.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    keys = generate(alphabet, size, 42);
+    trie = new EncodedTrie(encoding);
+    for (int i = 0; i < keys.length; i++) {
+      trie.add(keys[i], i);
+    }
+    accessOrder = BenchmarkKeys.accessOrder(BenchmarkKeys.Access.UNIFORM, size,
+        ACCESS_ORDER_LENGTH, 7);
+  }
+
+  /**
+   * Prints the size of the trie, which does not change during the trial.
+   */
+  @TearDown(Level.Trial)
+  public void printSize() {
+    TrieStatistics statistics = trie.statistics();
+    System.out.printf(" (%d nodes, %d bytes)", statistics.getNodeCount(),
+        statistics.getEstimatedBytes());
+  }
+
+  /**
+   * Gets the next key in the access order.
+   *
+   * @return The key.
+   */
+  private String nextKey() {
+    position = (position + 1) & (ACCESS_ORDER_LENGTH - 1);
+    return keys[accessOrder[position]];
+  }
+
+  @Benchmark
+  public int getInt() {
+    return trie.getInt(nextKey());
+  }
+
+  @Benchmark
+  public boolean removeAndAdd() {
+    String key = nextKey();
+    int points = trie.getInt(key);
+    return trie.remove(key) & trie.add(key, points);
+  }
+
+  /**
+   * Generates distinct keys of 3 to 12 characters.
+   *
+   * @param alphabet The alphabet of the keys.
+   * @param count    The amount of keys.
+   * @param seed     The seed for the random characters.
+   * @return The distinct keys in random order.
+   */
+  static String[] generate(Alphabet alphabet, int count, long seed) {
+    Random random = new Random(seed);
+    Set<String> keys = new HashSet<>();
+    StringBuilder key = new StringBuilder();
+    while (keys.size() < count) {
+      key.setLength(0);
+      int length = 3 + random.nextInt(10);
+      for (int i = 0; i < length; i++) {
+        appendChar(key, alphabet, random);
+      }
+      keys.add(key.toString());
+    }
+    return keys.toArray(new String[0]);
+  }
+
+  /**
+   * Appends a random character of an alphabet.
+   *
+   * @param out      The builder to append to.
+   * @param alphabet The alphabet of the character.
+   * @param random   The source of randomness.
+   */
+  private static void appendChar(StringBuilder out, Alphabet alphabet,
+      Random random) {
+    switch (alphabet) {
+      case LOWERCASE -> out.append((char) ('a' + random.nextInt(26)));
+      case IDENTIFIER -> out.append(
+          IDENTIFIER_CHARS.charAt(random.nextInt(IDENTIFIER_CHARS.length())));
+      case CJK -> out.append((char) (CJK_FIRST + random.nextInt(CJK_COUNT)));
+      case MIXED -> {
+        int kind = random.nextInt(20);
+        if (kind == 0) {
+          // Emoji are outside of the BMP and take a surrogate pair.
+          out.appendCodePoint(0x1F600 + random.nextInt(80));
+        } else if (kind < 4) {
+          out.append((char) (0xC0 + random.nextInt(64)));
+        } else {
+          out.append((char) ('a' + random.nextInt(26)));
+        }
+      }
+    }
+  }
+
+}
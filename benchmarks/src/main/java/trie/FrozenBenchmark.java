@@ -0,0 +1,105 @@
+package trie;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FrozenBenchmark compares lookups and prefix counts of the mutable Trie with
+ * its FrozenTrie. The estimated heap size of both is printed after the trial,
+ * as the frozen trie trades lookup speed for memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g"})
+public class FrozenBenchmark {
+
+  // The length of the precomputed access order, a power of two.
+  private static final int ACCESS_ORDER_LENGTH = 1 << 20;
+  // The length of the prefixes which are counted.
+  private static final int PREFIX_LENGTH = 2;
+
+  @Param({"100000", "10000000"})
+  private int size;
+
+  @Param({"RANDOM", "SHARED_PREFIX", "LONG_KEYS"})
+  private BenchmarkKeys.Distribution distribution;
+
+  @Param({"UNIFORM", "ZIPFIAN"})
+  private BenchmarkKeys.Access access;
+
+  private Trie trie;
+  private FrozenTrie frozen;
+  private String[] keys;
+  private int[] accessOrder;
+  private int position;
+
+  /**
+   * Builds and freezes the trie once per fork.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    keys = BenchmarkKeys.generate(distribution, size, 42);
+    trie = new Trie();
+    for (int i = 0; i < keys.length; i++) {
+      trie.add(keys[i], i);
+    }
+    frozen = trie.freeze();
+    accessOrder = BenchmarkKeys.accessOrder(access, size, ACCESS_ORDER_LENGTH,
+        7);
+  }
+
+  /**
+   * Prints the estimated heap size of both tries.
+   */
+  @TearDown(Level.Trial)
+  public void printSize() {
+    System.out.printf(" (mutable %d bytes, frozen %d bytes)",
+        trie.statistics().getEstimatedBytes(), frozen.estimateBytes());
+  }
+
+  /**
+   * Gets the next key in the access order.
+   *
+   * @return The key.
+   */
+  private String nextKey() {
+    position = (position + 1) & (ACCESS_ORDER_LENGTH - 1);
+    return keys[accessOrder[position]];
+  }
+
+  @Benchmark
+  public int mutableGetInt() {
+    return trie.getInt(nextKey());
+  }
+
+  @Benchmark
+  public int frozenGetInt() {
+    return frozen.getInt(nextKey());
+  }
+
+  @Benchmark
+  public int mutableCount() {
+    return trie.count(nextKey().subSequence(0, PREFIX_LENGTH));
+  }
+
+  @Benchmark
+  public int frozenCount() {
+    return frozen.count(nextKey().subSequence(0, PREFIX_LENGTH));
+  }
+
+}
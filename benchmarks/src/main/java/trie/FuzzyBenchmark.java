@@ -0,0 +1,87 @@
+package trie;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FuzzyBenchmark measures Trie#fuzzySearch(CharSequence, int) for mistyped
+ * keys of different lengths. The searched keys are keys of the trie with one
+ * of their letters replaced, so most of them have a match at distance 1.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FuzzyBenchmark {
+
+  // The amount of different searched keys, a power of two.
+  private static final int QUERY_COUNT = 1 << 10;
+
+  @Param({"100000", "1000000"})
+  private int size;
+
+  @Param({"RANDOM", "SHARED_PREFIX"})
+  private BenchmarkKeys.Distribution distribution;
+
+  @Param({"4", "8", "12"})
+  private int keyLength;
+
+  @Param({"1", "2"})
+  private int maxEdits;
+
+  private Trie trie;
+  private String[] queries;
+  private int position;
+
+  /**
+   * Builds the trie and picks the searched keys once per fork.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    String[] keys = BenchmarkKeys.generate(distribution, size, 42);
+    trie = new Trie();
+    for (int i = 0; i < keys.length; i++) {
+      trie.add(keys[i], i);
+    }
+
+    Random random = new Random(7);
+    queries = new String[QUERY_COUNT];
+    int count = 0;
+    for (int i = 0; i < keys.length && count < QUERY_COUNT; i++) {
+      if (keys[i].length() == keyLength) {
+        char[] query = keys[i].toCharArray();
+        query[random.nextInt(keyLength)] = (char) ('a' + random.nextInt(26));
+        queries[count++] = new String(query);
+      }
+    }
+    if (count == 0) {
+      throw new IllegalStateException("no keys of length " + keyLength);
+    }
+    // Repeat the searched keys if there are not enough keys of the length.
+    for (int i = count; i < QUERY_COUNT; i++) {
+      queries[i] = queries[i % count];
+    }
+  }
+
+  @Benchmark
+  public List<FuzzyMatch> fuzzySearch() {
+    position = (position + 1) & (QUERY_COUNT - 1);
+    return trie.fuzzySearch(queries[position], maxEdits);
+  }
+
+}
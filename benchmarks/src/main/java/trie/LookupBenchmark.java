@@ -0,0 +1,108 @@
+package trie;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LookupBenchmark compares the lookups of the Trie by a String, by a range of
+ * a char array and by a range of ASCII bytes. All keys are packed into one
+ * char and one byte buffer, the way a parser would pass the ranges of its
+ * input buffer. Run with "-prof gc" (the BenchmarkRunner always adds it) the
+ * allocation of every lookup is reported as gc.alloc.rate.norm, which is
+ * about 0 B/op for all of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LookupBenchmark {
+
+  // The length of the precomputed access order, a power of two.
+  private static final int ACCESS_ORDER_LENGTH = 1 << 20;
+
+  @Param({"1000", "100000", "1000000"})
+  private int size;
+
+  @Param({"RANDOM", "SHARED_PREFIX", "LONG_KEYS"})
+  private BenchmarkKeys.Distribution distribution;
+
+  @Param({"UNIFORM", "ZIPFIAN"})
+  private BenchmarkKeys.Access access;
+
+  private Trie trie;
+  private String[] keys;
+  // The keys one after another and where every key starts in the buffers.
+  private char[] chars;
+  private byte[] bytes;
+  private int[] offsets;
+  private int[] accessOrder;
+  private int position;
+
+  /**
+   * Builds the trie and the buffers once per fork.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    keys = BenchmarkKeys.generate(distribution, size, 42);
+    trie = new Trie();
+    offsets = new int[keys.length + 1];
+    for (int i = 0; i < keys.length; i++) {
+      trie.add(keys[i], i);
+      offsets[i + 1] = offsets[i] + keys[i].length();
+    }
+    chars = new char[offsets[keys.length]];
+    bytes = new byte[chars.length];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i].getChars(0, keys[i].length(), chars, offsets[i]);
+    }
+    for (int i = 0; i < chars.length; i++) {
+      // The generated keys are ASCII letters.
+      bytes[i] = (byte) chars[i];
+    }
+    accessOrder = BenchmarkKeys.accessOrder(access, size, ACCESS_ORDER_LENGTH,
+        7);
+  }
+
+  /**
+   * Gets the index of the next key in the access order.
+   *
+   * @return The index of the key.
+   */
+  private int nextIndex() {
+    position = (position + 1) & (ACCESS_ORDER_LENGTH - 1);
+    return accessOrder[position];
+  }
+
+  @Benchmark
+  public int getIntString() {
+    return trie.getInt(keys[nextIndex()]);
+  }
+
+  @Benchmark
+  public int getIntChars() {
+    int index = nextIndex();
+    return trie.getInt(chars, offsets[index],
+        offsets[index + 1] - offsets[index]);
+  }
+
+  @Benchmark
+  public int getIntBytes() {
+    int index = nextIndex();
+    return trie.getInt(bytes, offsets[index],
+        offsets[index + 1] - offsets[index]);
+  }
+
+}
@@ -0,0 +1,86 @@
+package trie;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MetricsBenchmark measures what recording metrics costs per operation. With
+ * "metrics" false the results have to match those of TrieBenchmark, as a
+ * disabled trie only checks a null field per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(3)
+public class MetricsBenchmark {
+
+  private static final int KEYS = 100_000;
+  // The length of the precomputed access order, a power of two.
+  private static final int ACCESS_ORDER_LENGTH = 1 << 16;
+
+  @Param({"false", "true"})
+  private boolean metrics;
+
+  private Trie trie;
+  private String[] keys;
+  private int[] accessOrder;
+  private int position;
+
+  /**
+   * Builds the trie once per fork.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    keys = BenchmarkKeys.generate(BenchmarkKeys.Distribution.RANDOM, KEYS, 42);
+    trie = new Trie();
+    for (int i = 0; i < keys.length; i++) {
+      trie.add(keys[i], i);
+    }
+    if (metrics) {
+      trie.enableMetrics();
+    }
+    accessOrder = BenchmarkKeys.accessOrder(BenchmarkKeys.Access.UNIFORM,
+        KEYS, ACCESS_ORDER_LENGTH, 7);
+  }
+
+  /**
+   * Gets the next key in the access order.
+   *
+   * @return The key.
+   */
+  private String nextKey() {
+    position = (position + 1) & (ACCESS_ORDER_LENGTH - 1);
+    return keys[accessOrder[position]];
+  }
+
+  @Benchmark
+  public int getInt() {
+    return trie.getInt(nextKey());
+  }
+
+  @Benchmark
+  public boolean changeInt() {
+    return trie.changeInt(nextKey(), position);
+  }
+
+  @Benchmark
+  public boolean removeAndAdd() {
+    String key = nextKey();
+    int points = trie.getInt(key);
+    return trie.remove(key) & trie.add(key, points);
+  }
+
+}
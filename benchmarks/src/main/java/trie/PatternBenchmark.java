@@ -0,0 +1,89 @@
+package trie;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PatternBenchmark measures paging through Trie#range(CharSequence,
+ * CharSequence) and Trie#match(CharSequence) with skip() and limit(), which
+ * should only cost the visited page and not the size of the trie. The
+ * skipped entries are visited as well, so a page at an offset costs about as
+ * much as the offset in entries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PatternBenchmark {
+
+  // The amount of different ranges and patterns, a power of two.
+  private static final int QUERY_COUNT = 1 << 10;
+  // The amount of keys of a page.
+  private static final int PAGE_SIZE = 20;
+
+  @Param({"100000", "1000000"})
+  private int size;
+
+  @Param({"RANDOM", "SHARED_PREFIX"})
+  private BenchmarkKeys.Distribution distribution;
+
+  @Param({"0", "1000"})
+  private int offset;
+
+  private Trie trie;
+  private String[] froms;
+  private String[] patterns;
+  private int position;
+
+  /**
+   * Builds the trie and picks the ranges and patterns once per fork. Every
+   * range starts at a key and every pattern is a key with its second char
+   * replaced by a '?' and its end replaced by a '*'.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    String[] keys = BenchmarkKeys.generate(distribution, size, 42);
+    trie = new Trie();
+    for (int i = 0; i < keys.length; i++) {
+      trie.add(keys[i], i);
+    }
+
+    Random random = new Random(7);
+    froms = new String[QUERY_COUNT];
+    patterns = new String[QUERY_COUNT];
+    for (int i = 0; i < QUERY_COUNT; i++) {
+      String key = keys[random.nextInt(keys.length)];
+      froms[i] = key;
+      patterns[i] = key.charAt(0) + "?" + key.substring(2, 3) + "*";
+    }
+  }
+
+  @Benchmark
+  public long rangePage() {
+    position = (position + 1) & (QUERY_COUNT - 1);
+    return trie.range(froms[position], null).skip(offset).limit(PAGE_SIZE)
+        .count();
+  }
+
+  @Benchmark
+  public long matchPage() {
+    position = (position + 1) & (QUERY_COUNT - 1);
+    return trie.match(patterns[position]).skip(offset).limit(PAGE_SIZE)
+        .count();
+  }
+
+}
@@ -0,0 +1,106 @@
+package trie;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RadixBenchmark compares lookups and removals of the Trie with the path
+ * compressed RadixTrie for the same keys. The amount of nodes of both is
+ * printed after the trial, as the RadixTrie trades splitting and merging
+ * edges for fewer nodes on long and sparse keys.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g"})
+public class RadixBenchmark {
+
+  // The length of the precomputed access order, a power of two.
+  private static final int ACCESS_ORDER_LENGTH = 1 << 20;
+
+  @Param({"100000", "1000000"})
+  private int size;
+
+  @Param({"RANDOM", "SHARED_PREFIX", "LONG_KEYS"})
+  private BenchmarkKeys.Distribution distribution;
+
+  private Trie trie;
+  private RadixTrie radixTrie;
+  private String[] keys;
+  private int[] accessOrder;
+  private int position;
+
+  /**
+   * Builds both tries once per fork.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    keys = BenchmarkKeys.generate(distribution, size, 42);
+    trie = new Trie();
+    radixTrie = new RadixTrie();
+    for (int i = 0; i < keys.length; i++) {
+      trie.add(keys[i], i);
+      radixTrie.add(keys[i], i);
+    }
+    accessOrder = BenchmarkKeys.accessOrder(BenchmarkKeys.Access.UNIFORM,
+        size, ACCESS_ORDER_LENGTH, 7);
+  }
+
+  /**
+   * Prints the amount of nodes of both tries.
+   */
+  @TearDown(Level.Trial)
+  public void printNodeCounts() {
+    System.out.printf(" (trie %d nodes, radix trie %d nodes)",
+        trie.statistics().getNodeCount(), radixTrie.nodeCount());
+  }
+
+  /**
+   * Gets the index of the next key in the access order.
+   *
+   * @return The index of the key.
+   */
+  private int nextIndex() {
+    position = (position + 1) & (ACCESS_ORDER_LENGTH - 1);
+    return accessOrder[position];
+  }
+
+  @Benchmark
+  public Integer triePoints() {
+    return trie.points(keys[nextIndex()]);
+  }
+
+  @Benchmark
+  public Integer radixPoints() {
+    return radixTrie.points(keys[nextIndex()]);
+  }
+
+  @Benchmark
+  public boolean trieRemoveAndAdd() {
+    int index = nextIndex();
+    trie.remove(keys[index]);
+    return trie.add(keys[index], index);
+  }
+
+  @Benchmark
+  public boolean radixRemoveAndAdd() {
+    int index = nextIndex();
+    radixTrie.remove(keys[index]);
+    return radixTrie.add(keys[index], index);
+  }
+
+}
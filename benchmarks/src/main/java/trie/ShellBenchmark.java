@@ -0,0 +1,167 @@
+package trie;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ShellBenchmark measures the throughput of the shell on large input files,
+ * the same way as running "java trie.Shell --batch &lt; file &gt; /dev/null":
+ * a generated file of mixed commands is read through System.in by
+ * Shell#main(String[]) and the output is written to /dev/null. The mode
+ * selects the batch mode or the interactive mode with its prompts for
+ * comparison.
+ * <p>
+ * Every invocation runs the whole file, so the score is the time per file
+ * and the throughput is the amount of commands divided by it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ShellBenchmark {
+
+  /**
+   * The modes of the shell which are compared.
+   */
+  public enum ShellMode {
+    BATCH,
+    INTERACTIVE
+  }
+
+  @Param({"1000000", "10000000"})
+  private int commands;
+
+  @Param({"BATCH", "INTERACTIVE"})
+  private ShellMode mode;
+
+  @Param({"RANDOM", "SHARED_PREFIX", "LONG_KEYS"})
+  private BenchmarkKeys.Distribution distribution;
+
+  @Param({"UNIFORM", "ZIPFIAN"})
+  private BenchmarkKeys.Access access;
+
+  private Path script;
+  private String[] args;
+
+  /**
+   * Generates the input file once per fork. A quarter of the commands add the
+   * names, the rest looks up, changes and finally deletes them, and a few
+   * commands are invalid, so the error path is part of the mix as well. The
+   * file has no "quit" command, the shell stops at its end.
+   *
+   * @throws IOException If the file can not be written.
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    int names = commands / 4;
+    String[] keys = BenchmarkKeys.generate(distribution, names, 42);
+    int[] order = BenchmarkKeys.accessOrder(access, names, commands - names,
+        7);
+    Random random = new Random(11);
+
+    script = Files.createTempFile("shell-benchmark", ".txt");
+    try (BufferedWriter out = Files.newBufferedWriter(script)) {
+      for (int i = 0; i < names; i++) {
+        out.append("add ").append(keys[i]).append(' ')
+            .append(Integer.toString(i)).append('\n');
+      }
+      for (int i = 0; i < order.length; i++) {
+        String key = keys[order[i]];
+        int command = random.nextInt(100);
+        if (command < 70) {
+          out.append("points ").append(key);
+        } else if (command < 95) {
+          out.append("change ").append(key).append(' ')
+              .append(Integer.toString(random.nextInt(1000)));
+        } else if (command < 98) {
+          // Deleted names are added again, so later commands still find them.
+          out.append("delete ").append(key).append('\n')
+              .append("add ").append(key).append(' ')
+              .append(Integer.toString(i));
+          i++;
+        } else {
+          out.append("add ").append(key).append(" -1");
+        }
+        out.append('\n');
+      }
+    }
+    args = mode == ShellMode.BATCH ? new String[] {"--batch"} : new String[0];
+  }
+
+  /**
+   * Deletes the input file.
+   *
+   * @throws IOException If the file can not be deleted.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(script);
+  }
+
+  @Benchmark
+  public void run() throws IOException {
+    runShell(Files.newInputStream(script));
+  }
+
+  /**
+   * Runs the file followed by printing the trie of all names, which is the
+   * most expensive single command.
+   *
+   * @throws IOException If the file can not be read.
+   */
+  @Benchmark
+  public void runWithTrie() throws IOException {
+    runShell(new SequenceInputStream(Files.newInputStream(script),
+        new ByteArrayInputStream("trie\n".getBytes(StandardCharsets.UTF_8))));
+  }
+
+  /**
+   * Runs the shell with the given input as System.in and /dev/null as
+   * System.out, buffered like the streams the JVM starts with.
+   *
+   * @param input The input of the shell.
+   * @throws IOException If the input can not be read.
+   */
+  private void runShell(InputStream input) throws IOException {
+    InputStream in = System.in;
+    PrintStream out = System.out;
+    try (InputStream scriptIn = new BufferedInputStream(input);
+        PrintStream nullOut = new PrintStream(new BufferedOutputStream(
+            new FileOutputStream("/dev/null"), 128), true)) {
+      System.setIn(scriptIn);
+      System.setOut(nullOut);
+      Shell.main(args);
+    } finally {
+      System.setIn(in);
+      System.setOut(out);
+    }
+  }
+
+}
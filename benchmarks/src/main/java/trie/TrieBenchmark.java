@@ -0,0 +1,180 @@
+package trie;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * TrieBenchmark measures the single key operations of the Trie on tries of 1K
+ * to 10M keys. Throughput is reported in operations per second and the
+ * sampled latencies in microseconds, including their percentiles.
+ * <p>
+ * Operations which change the trie undo their change within the same
+ * operation, so the trie keeps its size over all iterations: "addAndRemove"
+ * adds and removes a key which is not in the trie, "removeAndAdd" removes and
+ * re-adds an existing key and "change" only ever changes existing keys.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g"})
+public class TrieBenchmark {
+
+  // The length of the precomputed access order, a power of two.
+  private static final int ACCESS_ORDER_LENGTH = 1 << 20;
+
+  @Param({"1000", "100000", "10000000"})
+  private int size;
+
+  @Param({"RANDOM", "SHARED_PREFIX", "LONG_KEYS"})
+  private BenchmarkKeys.Distribution distribution;
+
+  @Param({"UNIFORM", "ZIPFIAN"})
+  private BenchmarkKeys.Access access;
+
+  private Trie trie;
+  // The keys in the trie and keys of the same shape which are not in it.
+  private String[] keys;
+  private String[] absentKeys;
+  private int[] accessOrder;
+  private int position;
+  private int nextPoints;
+
+  /**
+   * Builds the trie once per fork.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    String[] allKeys = BenchmarkKeys.generate(distribution,
+        size + ACCESS_ORDER_LENGTH / 16, 42);
+    keys = new String[size];
+    System.arraycopy(allKeys, 0, keys, 0, size);
+    absentKeys = new String[allKeys.length - size];
+    System.arraycopy(allKeys, size, absentKeys, 0, absentKeys.length);
+
+    trie = new Trie();
+    for (int i = 0; i < keys.length; i++) {
+      trie.add(keys[i], i);
+    }
+    accessOrder = BenchmarkKeys.accessOrder(access, size, ACCESS_ORDER_LENGTH,
+        7);
+  }
+
+  /**
+   * Gets the next existing key in the access order.
+   *
+   * @return The key.
+   */
+  private String nextKey() {
+    position = (position + 1) & (ACCESS_ORDER_LENGTH - 1);
+    return keys[accessOrder[position]];
+  }
+
+  /**
+   * Gets the next key which is not in the trie.
+   *
+   * @return The key.
+   */
+  private String nextAbsentKey() {
+    position = (position + 1) & (ACCESS_ORDER_LENGTH - 1);
+    return absentKeys[position % absentKeys.length];
+  }
+
+  @Benchmark
+  public Integer points() {
+    return trie.points(nextKey());
+  }
+
+  @Benchmark
+  public int getInt() {
+    return trie.getInt(nextKey());
+  }
+
+  @Benchmark
+  public boolean change() {
+    nextPoints = (nextPoints + 1) & Integer.MAX_VALUE;
+    return trie.changeInt(nextKey(), nextPoints);
+  }
+
+  @Benchmark
+  public boolean addAndRemove() {
+    String key = nextAbsentKey();
+    return trie.add(key, 1) & trie.remove(key);
+  }
+
+  @Benchmark
+  public boolean removeAndAdd() {
+    String key = nextKey();
+    int points = trie.getInt(key);
+    return trie.remove(key) & trie.add(key, points);
+  }
+
+  /**
+   * Streams the representation of the whole trie, which is what toString()
+   * does without keeping the result, so the 10M key tries fit into memory.
+   *
+   * @return The length of the representation.
+   * @throws IOException Never, the writer does not fail.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public long toStringRepresentation() throws IOException {
+    CountingWriter out = new CountingWriter();
+    trie.writeTo(out);
+    return out.length;
+  }
+
+  /**
+   * CountingWriter drops everything written to it and just counts the chars.
+   */
+  private static final class CountingWriter extends Writer {
+
+    private long length;
+
+    @Override
+    public void write(int c) {
+      length++;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int count) {
+      length += count;
+    }
+
+    @Override
+    public Writer append(char c) {
+      length++;
+      return this;
+    }
+
+    @Override
+    public Writer append(CharSequence chars) {
+      length += chars.length();
+      return this;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+}
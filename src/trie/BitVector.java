@@ -0,0 +1,180 @@
+package trie;
+
+import java.util.Arrays;
+
+/**
+ * BitVector is an immutable sequence of bits which answers rank and select
+ * queries in constant time, the building block of the FrozenTrie. A
+ * directory with the amount of ones before every block of 512 bits makes rank
+ * a lookup plus a few popcounts, and the block of every 512th zero is sampled
+ * so select only scans a few blocks. Each directory takes at most 32 bits per
+ * 512 bits.
+ */
+final class BitVector {
+
+  private static final int WORDS_PER_BLOCK = 8;
+  private static final int BLOCK_SHIFT = 9;
+  private static final int SAMPLE_SHIFT = 9;
+  // The header and fields of a vector without its arrays.
+  private static final int OBJECT_BYTES = 32;
+
+  private final long[] words;
+  private final int size;
+  // blockRanks[b] is the amount of ones before block b.
+  private final int[] blockRanks;
+  // zeroSamples[s] is the block which holds zero number s * 512.
+  private final int[] zeroSamples;
+
+  /**
+   * Creates the vector and its directories from the given bits, which must
+   * not change afterwards.
+   *
+   * @param words The bits, bit i is bit i % 64 of words[i / 64].
+   * @param size  The amount of bits.
+   */
+  BitVector(long[] words, int size) {
+    this.words = words;
+    this.size = size;
+    int blocks = (words.length + WORDS_PER_BLOCK - 1) / WORDS_PER_BLOCK;
+    blockRanks = new int[blocks + 1];
+    int[] samples = new int[16];
+    int sampleCount = 0;
+    int ones = 0;
+    for (int block = 0; block < blocks; block++) {
+      blockRanks[block] = ones;
+      int end = Math.min(words.length, (block + 1) * WORDS_PER_BLOCK);
+      for (int word = block * WORDS_PER_BLOCK; word < end; word++) {
+        ones += Long.bitCount(words[word]);
+      }
+      int zerosAfter = Math.min(size, (block + 1) << BLOCK_SHIFT) - ones;
+      // Sample the block for every multiple of 512 which falls into it.
+      while (((long) sampleCount << SAMPLE_SHIFT) < zerosAfter) {
+        if (sampleCount == samples.length) {
+          samples = Arrays.copyOf(samples, sampleCount * 2);
+        }
+        samples[sampleCount++] = block;
+      }
+    }
+    blockRanks[blocks] = ones;
+    zeroSamples = Arrays.copyOf(samples, sampleCount);
+  }
+
+  /**
+   * Gets the amount of bits.
+   *
+   * @return The size.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Gets a single bit.
+   *
+   * @param index The index of the bit.
+   * @return Weather the bit is set.
+   */
+  boolean get(int index) {
+    return (words[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Counts the ones before the given index.
+   *
+   * @param index The index between 0 and size.
+   * @return The amount of ones in the bits [0, index).
+   */
+  int rank1(int index) {
+    int word = index >>> 6;
+    int rank = blockRanks[index >>> BLOCK_SHIFT];
+    for (int i = (index >>> BLOCK_SHIFT) * WORDS_PER_BLOCK; i < word; i++) {
+      rank += Long.bitCount(words[i]);
+    }
+    if ((index & 63) != 0) {
+      rank += Long.bitCount(words[word] & (-1L >>> (64 - (index & 63))));
+    }
+    return rank;
+  }
+
+  /**
+   * Finds the position of a zero.
+   *
+   * @param rank The number of the zero, 0 for the first zero.
+   * @return The index of the zero.
+   */
+  int select0(int rank) {
+    int block = zeroSamples[rank >>> SAMPLE_SHIFT];
+    while (zerosBefore(block + 1) <= rank) {
+      block++;
+    }
+    int remaining = rank - zerosBefore(block);
+    int word = block * WORDS_PER_BLOCK;
+    while (true) {
+      int zeros = Long.SIZE - Long.bitCount(words[word]);
+      if (remaining < zeros) {
+        return (word << 6) + selectInWord(~words[word], remaining);
+      }
+      remaining -= zeros;
+      word++;
+    }
+  }
+
+  /**
+   * Finds the first zero at or after the given index, which is faster than a
+   * select if it is close.
+   *
+   * @param index The index to start at.
+   * @return The index of the zero or size if there is none.
+   */
+  int nextZero(int index) {
+    if (index >= size) {
+      return size;
+    }
+    int word = index >>> 6;
+    long zeros = ~words[word] & (-1L << index);
+    while (zeros == 0) {
+      word++;
+      if (word == words.length) {
+        return size;
+      }
+      zeros = ~words[word];
+    }
+    return Math.min(size, (word << 6) + Long.numberOfTrailingZeros(zeros));
+  }
+
+  /**
+   * Estimates the bytes the vector takes on the heap.
+   *
+   * @return The estimated size of the bits and the directories.
+   */
+  long estimateBytes() {
+    return OBJECT_BYTES + Node.alignedArrayBytes(words.length, Long.BYTES)
+        + Node.alignedArrayBytes(blockRanks.length, Integer.BYTES)
+        + Node.alignedArrayBytes(zeroSamples.length, Integer.BYTES);
+  }
+
+  /**
+   * Counts the zeros before a block.
+   *
+   * @param block The block.
+   * @return The amount of zeros before the first bit of the block.
+   */
+  private int zerosBefore(int block) {
+    return (block << BLOCK_SHIFT) - blockRanks[block];
+  }
+
+  /**
+   * Finds the position of a set bit within a word.
+   *
+   * @param word The word.
+   * @param rank The number of the set bit, 0 for the lowest.
+   * @return The position of the bit between 0 and 63.
+   */
+  private static int selectInWord(long word, int rank) {
+    for (int i = 0; i < rank; i++) {
+      word &= word - 1;
+    }
+    return Long.numberOfTrailingZeros(word);
+  }
+
+}
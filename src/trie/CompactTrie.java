@@ -0,0 +1,563 @@
+package trie;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * CompactTrie is an alternative storage engine for the keys and points of a
+ * Trie, see Trie#toCompact(). Instead of one Node object per node it keeps
+ * all nodes in flat primitive columns and a node is just an index into them:
+ * every node links to its first child and to its next sibling by their index,
+ * siblings are kept sorted by their character and points are plain int
+ * values with NO_POINTS for nodes without points. So there are no object
+ * headers, no arrays of children and no references at all. Slots of removed
+ * nodes are kept in a free-list and reused by later insertions.
+ * <p>
+ * The methods behave like the ones of Trie with the same name, including the
+ * string representation, but there are no snapshots, aggregates, queries,
+ * metrics or caches. A lookup walks the siblings of every level, which is
+ * fast for the few children of most nodes.
+ */
+public class CompactTrie {
+
+  /**
+   * Returned by the primitive methods if a key has no points, this value can
+   * therefore not be used as points itself.
+   */
+  public static final int NO_POINTS = Node.NO_POINTS;
+
+  // Index of the global root node which can never be removed.
+  private static final int ROOT = 0;
+  /*
+   The root can never be the child or sibling of another node, thus its index
+   doubles as the marker for a missing link and the end of the free-list.
+  */
+  private static final int NO_NODE = ROOT;
+  private static final int INITIAL_CAPACITY = 16;
+  // The header and fields of a compact trie without its columns.
+  private static final int OBJECT_BYTES = 48;
+
+  // The index of the child with the lowest character of every node.
+  private int[] firstChildren;
+  /*
+   The index of the next child of the same parent with a higher character.
+   Released slots use it to link to the next released slot.
+  */
+  private int[] nextSiblings;
+  // The points of every node or NO_POINTS if it is just a connection node.
+  private int[] points;
+  // The character every node represents.
+  private char[] characters;
+  // The amount of slots which have ever been handed out.
+  private int usedSlots;
+  // Head of the list of released slots.
+  private int freeListHead = NO_NODE;
+  private int nodeCount;
+  private int keyCount;
+
+  /**
+   * Constructs an empty CompactTrie.
+   */
+  public CompactTrie() {
+    firstChildren = new int[INITIAL_CAPACITY];
+    nextSiblings = new int[INITIAL_CAPACITY];
+    points = new int[INITIAL_CAPACITY];
+    characters = new char[INITIAL_CAPACITY];
+    points[ROOT] = NO_POINTS;
+    characters[ROOT] = '+';
+    usedSlots = 1;
+    nodeCount = 1;
+  }
+
+  /**
+   * Copies all nodes below the given root. Every visited node gets the slots
+   * of all its children as one block and the walk continues depth-first with
+   * its first child, so siblings are adjacent in memory for a scan over them
+   * and the nodes of a chain without branches follow each other. The columns
+   * are trimmed to the copied nodes afterwards.
+   *
+   * @param root The root node of the trie.
+   * @return The compact trie.
+   */
+  static CompactTrie of(Node root) {
+    CompactTrie trie = new CompactTrie();
+    trie.points[ROOT] = root.getPoints();
+    trie.keyCount = root.hasPoints() ? 1 : 0;
+    // The nodes whose children are not copied yet together with their copies.
+    Node[] stack = new Node[16];
+    int[] copies = new int[16];
+    stack[0] = root;
+    copies[0] = ROOT;
+    int size = 1;
+    while (size > 0) {
+      size--;
+      Node node = stack[size];
+      int copy = copies[size];
+      stack[size] = null;
+      int children = node.getChildrenCount();
+      if (size + children > stack.length) {
+        stack = Arrays.copyOf(stack, Math.max(stack.length * 2,
+            size + children));
+        copies = Arrays.copyOf(copies, stack.length);
+      }
+
+      // The children are pushed in reverse order, so the first one is next.
+      int previous = NO_NODE;
+      int pushed = size + children;
+      for (Node child = node.getFirstChild(); child != null;
+          child = node.getNextChild(child.getCharacter())) {
+        int childCopy = trie.allocateNode(child.getCharacter());
+        trie.points[childCopy] = child.getPoints();
+        if (child.hasPoints()) {
+          trie.keyCount++;
+        }
+        if (previous == NO_NODE) {
+          trie.firstChildren[copy] = childCopy;
+        } else {
+          trie.nextSiblings[previous] = childCopy;
+        }
+        previous = childCopy;
+        pushed--;
+        stack[pushed] = child;
+        copies[pushed] = childCopy;
+      }
+      size += children;
+    }
+    trie.resize(Math.max(trie.usedSlots, INITIAL_CAPACITY));
+    return trie;
+  }
+
+  /**
+   * Makes sure the given points can be stored, which is every value except the
+   * NO_POINTS sentinel.
+   *
+   * @param points The points to check.
+   * @return The given points.
+   * @throws IllegalArgumentException If the points equal NO_POINTS.
+   */
+  private static int checkPoints(int points) {
+    if (points == NO_POINTS) {
+      throw new IllegalArgumentException("points can not be " + NO_POINTS);
+    }
+    return points;
+  }
+
+  /**
+   * @param key    The key for which to store the points value.
+   * @param points The value of points to associate with the given key.
+   * @return Returns false in the case that the key already exists as we do not
+   * want to overwrite points, otherwise always returns true.
+   * @throws IllegalArgumentException If the points equal NO_POINTS.
+   */
+  public boolean add(CharSequence key, Integer points) {
+    return putIfAbsentInt(key, points) == NO_POINTS;
+  }
+
+  /**
+   * Associates the given points with the key if the key has no points yet.
+   * Contrary to the object based trie the lookup and the insertion happen in
+   * the same walk, missing nodes are created on the way down.
+   *
+   * @param key    The key for which to store the points value.
+   * @param points The value of points to associate with the given key.
+   * @return The points which are already associated with the key or NO_POINTS
+   * if the given points have been stored.
+   * @throws IllegalArgumentException If the points equal NO_POINTS.
+   */
+  public int putIfAbsentInt(CharSequence key, int points) {
+    checkPoints(points);
+    int node = ROOT;
+    for (int i = 0; i < key.length(); i++) {
+      node = findOrCreateChild(node, key.charAt(i));
+    }
+    int previousPoints = this.points[node];
+    if (previousPoints == NO_POINTS) {
+      this.points[node] = points;
+      keyCount++;
+    }
+    return previousPoints;
+  }
+
+  /**
+   * Removes the key from the trie, nodes which are only there to link to the
+   * removed key are released and their slots are reused later on.
+   *
+   * @param key The key (name) to remove from the trie.
+   * @return Returns false if the key does not exist, otherwise always
+   * returns true.
+   */
+  public boolean remove(CharSequence key) {
+    return removeAndGetInt(key) != NO_POINTS;
+  }
+
+  /**
+   * Removes the key from the trie like CompactTrie#remove(CharSequence) and
+   * returns the points it had.
+   *
+   * @param key The key (name) to remove from the trie.
+   * @return The points the key had before or NO_POINTS if the key does not
+   * exist.
+   */
+  public int removeAndGetInt(CharSequence key) {
+    /*
+     While walking down we remember the deepest node which has to stay in the
+     trie after the removal (the root, a node with points or a node which
+     branches to other keys) together with its child on the path of the key.
+     Everything from that child on is just a chain of connection nodes which
+     only exist for the removed key.
+    */
+    int keepNode = ROOT;
+    int branch = NO_NODE;
+    int node = ROOT;
+    for (int i = 0; i < key.length(); i++) {
+      int child = findChild(node, key.charAt(i));
+      if (child == NO_NODE) {
+        return NO_POINTS;
+      }
+      if (node == ROOT || points[node] != NO_POINTS
+          || nextSiblings[firstChildren[node]] != NO_NODE) {
+        keepNode = node;
+        branch = child;
+      }
+      node = child;
+    }
+
+    int previousPoints = points[node];
+    if (previousPoints == NO_POINTS) {
+      return NO_POINTS;
+    }
+    points[node] = NO_POINTS;
+    keyCount--;
+    if (node == ROOT || firstChildren[node] != NO_NODE) {
+      // The node still links to other keys, so it has to stay.
+      return previousPoints;
+    }
+
+    unlinkChild(keepNode, branch);
+    // Release the whole chain of nodes which hung below the kept node.
+    while (branch != NO_NODE) {
+      int next = firstChildren[branch];
+      releaseNode(branch);
+      branch = next;
+    }
+    return previousPoints;
+  }
+
+  /**
+   * Changes the points value of a specific key to the given points.
+   *
+   * @param key    The key for which to change the points for.
+   * @param points The new points to assign.
+   * @return Returns false if the key does not exist, otherwise always
+   * returns true.
+   * @throws IllegalArgumentException If the points equal NO_POINTS.
+   */
+  public boolean change(CharSequence key, Integer points) {
+    return changeInt(key, points);
+  }
+
+  /**
+   * Changes the points value of a specific key to the given points.
+   *
+   * @param key    The key for which to change the points for.
+   * @param points The new points to assign.
+   * @return Returns false if the key does not exist, otherwise always
+   * returns true.
+   * @throws IllegalArgumentException If the points equal NO_POINTS.
+   */
+  public boolean changeInt(CharSequence key, int points) {
+    checkPoints(points);
+    int node = find(key);
+    if (node < 0 || this.points[node] == NO_POINTS) {
+      return false;
+    }
+    this.points[node] = points;
+    return true;
+  }
+
+  /**
+   * Gets the points associated with a key.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * null.
+   */
+  public Integer points(CharSequence key) {
+    int points = getInt(key);
+    return points == NO_POINTS ? null : points;
+  }
+
+  /**
+   * Gets the points associated with a key without boxing them.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * NO_POINTS.
+   */
+  public int getInt(CharSequence key) {
+    int node = find(key);
+    return node < 0 ? NO_POINTS : points[node];
+  }
+
+  /**
+   * Gets the amount of keys.
+   *
+   * @return The amount of keys.
+   */
+  public int size() {
+    return keyCount;
+  }
+
+  /**
+   * Gets the amount of nodes currently in use, including the global root.
+   *
+   * @return The amount of live nodes.
+   */
+  public int nodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Finds the index of the node which holds the value for the last letter in
+   * the key.
+   *
+   * @param key The key for which to look for.
+   * @return The index of the found node or -1 if it does not exist.
+   */
+  private int find(CharSequence key) {
+    int node = ROOT;
+    for (int i = 0; i < key.length(); i++) {
+      node = findChild(node, key.charAt(i));
+      if (node == NO_NODE) {
+        return -1;
+      }
+    }
+    return node;
+  }
+
+  /**
+   * Finds the child of the given node which represents the given character.
+   *
+   * @param node The index of the parent node.
+   * @param ch   The character of the child.
+   * @return The index of the child or NO_NODE if it does not exist.
+   */
+  private int findChild(int node, char ch) {
+    // Siblings are sorted, so the scan can stop at the first higher character.
+    int child = firstChildren[node];
+    while (child != NO_NODE && characters[child] < ch) {
+      child = nextSiblings[child];
+    }
+    if (child != NO_NODE && characters[child] == ch) {
+      return child;
+    }
+    return NO_NODE;
+  }
+
+  /**
+   * Finds the child of the given node which represents the given character
+   * and creates it at its sorted position if it does not exist yet.
+   *
+   * @param node The index of the parent node.
+   * @param ch   The character of the child.
+   * @return The index of the existing or created child.
+   */
+  private int findOrCreateChild(int node, char ch) {
+    int previous = NO_NODE;
+    int child = firstChildren[node];
+    while (child != NO_NODE && characters[child] < ch) {
+      previous = child;
+      child = nextSiblings[child];
+    }
+    if (child != NO_NODE && characters[child] == ch) {
+      return child;
+    }
+
+    int created = allocateNode(ch);
+    nextSiblings[created] = child;
+    if (previous == NO_NODE) {
+      firstChildren[node] = created;
+    } else {
+      nextSiblings[previous] = created;
+    }
+    return created;
+  }
+
+  /**
+   * Removes the given child from the children of the given node.
+   *
+   * @param node  The index of the parent node.
+   * @param child The index of the child to unlink.
+   */
+  private void unlinkChild(int node, int child) {
+    int previous = firstChildren[node];
+    if (previous == child) {
+      firstChildren[node] = nextSiblings[child];
+      return;
+    }
+    while (nextSiblings[previous] != child) {
+      previous = nextSiblings[previous];
+    }
+    nextSiblings[previous] = nextSiblings[child];
+  }
+
+  /**
+   * Hands out a slot for a new node, preferring released slots over growing
+   * the columns.
+   *
+   * @param ch The character the new node represents.
+   * @return The index of the new node without children, siblings or points.
+   */
+  private int allocateNode(char ch) {
+    int node;
+    if (freeListHead != NO_NODE) {
+      node = freeListHead;
+      freeListHead = nextSiblings[node];
+    } else {
+      if (usedSlots == points.length) {
+        grow();
+      }
+      node = usedSlots++;
+    }
+    firstChildren[node] = NO_NODE;
+    nextSiblings[node] = NO_NODE;
+    points[node] = NO_POINTS;
+    characters[node] = ch;
+    nodeCount++;
+    return node;
+  }
+
+  /**
+   * Puts the slot of the given node on the free-list.
+   *
+   * @param node The index of the node to release.
+   */
+  private void releaseNode(int node) {
+    nextSiblings[node] = freeListHead;
+    freeListHead = node;
+    nodeCount--;
+  }
+
+  /**
+   * Grows all columns by half of their current capacity.
+   */
+  private void grow() {
+    resize(points.length + (points.length >> 1));
+  }
+
+  /**
+   * Copies all columns into arrays of the given capacity.
+   *
+   * @param capacity The new capacity, at least the amount of used slots.
+   */
+  private void resize(int capacity) {
+    firstChildren = Arrays.copyOf(firstChildren, capacity);
+    nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+    points = Arrays.copyOf(points, capacity);
+    characters = Arrays.copyOf(characters, capacity);
+  }
+
+  /**
+   * Estimates the bytes this trie takes on the heap, including the reserved
+   * but unused capacity of its columns, to compare it with
+   * TrieStatistics#getEstimatedBytes() of the object based trie.
+   *
+   * @return The estimated size in bytes.
+   */
+  public long estimateBytes() {
+    return OBJECT_BYTES
+        + 3 * Node.alignedArrayBytes(points.length, Integer.BYTES)
+        + Node.alignedArrayBytes(characters.length, Character.BYTES);
+  }
+
+  /**
+   * Creates a human-readable report comparing the memory footprint of this
+   * trie with the one of the object based trie holding the same keys.
+   *
+   * @param statistics The statistics of the object based trie.
+   * @return The memory report, one fact per line.
+   */
+  public String memoryReport(TrieStatistics statistics) {
+    long compactBytes = estimateBytes();
+    long objectBytes = statistics.getEstimatedBytes();
+    long savedPercent = objectBytes == 0 ? 0
+        : 100 - compactBytes * 100 / objectBytes;
+    return "keys: " + keyCount + "\n"
+        + "nodes: " + nodeCount + " (capacity " + points.length + ")\n"
+        + "compact layout: " + compactBytes + " bytes\n"
+        + "object per node layout: " + objectBytes + " bytes ("
+        + statistics.getNodeCount() + " nodes)\n"
+        + "saved: " + savedPercent + "%";
+  }
+
+  /**
+   * Stringifies the trie in the same format as Trie#toString(), where an
+   * empty trie is "+".
+   *
+   * @return The trie in string representation based of the root element.
+   * @see Node#toString()
+   */
+  @Override
+  public String toString() {
+    StringBuilder trieStringBuilder = new StringBuilder();
+    try {
+      writeTo(trieStringBuilder);
+    } catch (IOException e) {
+      // A StringBuilder never throws, so this can not happen.
+      throw new UncheckedIOException(e);
+    }
+    return trieStringBuilder.toString();
+  }
+
+  /**
+   * Writes the string representation of the trie (see Trie#toString())
+   * incrementally to the given output. The nodes are walked with an explicit
+   * stack instead of recursion, so very long keys can not overflow the call
+   * stack.
+   *
+   * @param out The output to write the representation to.
+   * @throws IOException If writing to the output fails.
+   */
+  public void writeTo(Appendable out) throws IOException {
+    // One buffer is reused to format the points of all nodes.
+    StringBuilder pointsBuffer = new StringBuilder(11);
+    // The nodes on the path to the current node, stack[0] is the root.
+    int[] stack = new int[16];
+    int depth = 0;
+    int node = ROOT;
+    while (true) {
+      out.append(characters[node]);
+      if (points[node] != NO_POINTS) {
+        pointsBuffer.setLength(0);
+        pointsBuffer.append(points[node]);
+        out.append('[').append(pointsBuffer).append(']');
+      }
+      stack[depth] = node;
+      if (firstChildren[node] != NO_NODE) {
+        out.append('(');
+        depth++;
+        if (depth == stack.length) {
+          stack = Arrays.copyOf(stack, depth * 2);
+        }
+        node = firstChildren[node];
+        continue;
+      }
+
+      /*
+       The node has no children, so continue with the next sibling of the
+       closest node on the path which has one and close the parentheses of
+       all levels which are done on the way up.
+      */
+      while (depth > 0 && nextSiblings[stack[depth]] == NO_NODE) {
+        depth--;
+        out.append(')');
+      }
+      if (depth == 0) {
+        return;
+      }
+      node = nextSiblings[stack[depth]];
+    }
+  }
+
+}
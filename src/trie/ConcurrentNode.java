@@ -0,0 +1,421 @@
+package trie;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * ConcurrentNode is a single node of the ConcurrentTrie. Its children and
+ * points are published through volatile writes, so readers can walk the trie
+ * without taking any lock. Like the Node it stores its children sparse or in
+ * a dense array over a narrow range, so any character can be used in keys.
+ * Every structural change to a node happens while holding the monitor of that
+ * node.
+ */
+class ConcurrentNode {
+
+  /*
+   The maximum amount of children which are kept in the sorted sparse arrays
+   and the widest range of characters which is kept in a dense array, the
+   same limits as of the Node.
+  */
+  private static final int SPARSE_CHILDREN_LIMIT = 8;
+  private static final int DENSE_RANGE_LIMIT = 32;
+
+  // The character which this node represents.
+  private final char character;
+  // The parent of this node, null for the global root.
+  private final ConcurrentNode parent;
+  /*
+   The children of this node, null if it has none. Readers get them without
+   locking, they are only changed while holding the monitor of this node.
+  */
+  private volatile Children children;
+  /*
+   The points value which this node holds, NO_POINTS for connection nodes.
+   Only written while holding the monitor of this node.
+  */
+  private volatile int points = Node.NO_POINTS;
+  /*
+   Set once the node got unlinked from its parent, nothing may be attached to
+   a removed node anymore. Only written while holding the monitors of the
+   parent and this node.
+  */
+  private volatile boolean removed;
+  // The amount of non-null children, guarded by the monitor of this node.
+  private int childrenCount;
+
+  /**
+   * Naked constructor to initialize an empty global root.
+   */
+  ConcurrentNode() {
+    this('+', null);
+  }
+
+  /**
+   * Initializes a new node with the assigned letter and parent given, the node
+   * is not yet linked to the parent.
+   *
+   * @param ch     The letter which is assigned to this node.
+   * @param parent The parent node which is assigned to this node.
+   */
+  private ConcurrentNode(char ch, ConcurrentNode parent) {
+    character = ch;
+    this.parent = parent;
+  }
+
+  /**
+   * Gets a child from this nodes children by the given character without
+   * locking.
+   *
+   * @param ch The character und which the child node is saved.
+   * @return The child node or null if it does not exist.
+   */
+  ConcurrentNode getChild(char ch) {
+    Children current = children;
+    return current == null ? null : current.get(ch);
+  }
+
+  /**
+   * Gets the child with the lowest character without locking.
+   *
+   * @return The first child or null if this node has no children.
+   */
+  ConcurrentNode getFirstChild() {
+    Children current = children;
+    return current == null ? null : current.next(-1);
+  }
+
+  /**
+   * Gets the child with the lowest character above the given one without
+   * locking.
+   *
+   * @param ch The character after which to look for a child.
+   * @return The next child or null if there is none.
+   */
+  ConcurrentNode getNextChild(char ch) {
+    Children current = children;
+    return current == null ? null : current.next(ch);
+  }
+
+  /**
+   * Gets the child with the given character and creates it if it does not
+   * exist yet.
+   *
+   * @param ch The character und which the child node is saved.
+   * @return The existing or created child node or null if this node got
+   * removed in the meantime, in which case the caller has to start over from
+   * the root.
+   */
+  ConcurrentNode getOrCreateChild(char ch) {
+    ConcurrentNode child = getChild(ch);
+    if (child != null) {
+      return child;
+    }
+
+    synchronized (this) {
+      if (removed) {
+        return null;
+      }
+      child = getChild(ch);
+      if (child == null) {
+        child = new ConcurrentNode(ch, this);
+        addChild(child);
+      }
+      return child;
+    }
+  }
+
+  /**
+   * Adds a child whose character has no child yet, the caller has to hold the
+   * monitor of this node. A dense array which covers the character gets the
+   * child in place, every other change publishes new children.
+   *
+   * @param child The child to add.
+   */
+  private void addChild(ConcurrentNode child) {
+    Children current = children;
+    if (current != null && current.keys == null) {
+      int index = child.character - current.base;
+      if (index >= 0 && index < current.nodes.length) {
+        Children.SLOTS.setVolatile(current.nodes, index, child);
+        childrenCount++;
+        return;
+      }
+    }
+
+    char[] keys = new char[childrenCount + 1];
+    ConcurrentNode[] nodes = new ConcurrentNode[childrenCount + 1];
+    int count = 0;
+    boolean added = false;
+    for (ConcurrentNode node = getFirstChild(); node != null;
+        node = getNextChild(node.character)) {
+      if (!added && child.character < node.character) {
+        keys[count] = child.character;
+        nodes[count++] = child;
+        added = true;
+      }
+      keys[count] = node.character;
+      nodes[count++] = node;
+    }
+    if (!added) {
+      keys[count] = child.character;
+      nodes[count++] = child;
+    }
+    children = Children.of(keys, nodes, count);
+    childrenCount++;
+  }
+
+  /**
+   * Removes the child with the given character, the caller has to hold the
+   * monitor of this node. A dense array goes back to the sparse arrays once
+   * half of them would be free, so a node which keeps on adding and removing
+   * one child does not switch its representation every time.
+   *
+   * @param ch The character of the child to remove.
+   */
+  private void removeChild(char ch) {
+    Children current = children;
+    childrenCount--;
+    if (current.keys == null) {
+      Children.SLOTS.setVolatile(current.nodes, ch - current.base, null);
+      if (childrenCount > SPARSE_CHILDREN_LIMIT / 2) {
+        return;
+      }
+    }
+
+    char[] keys = new char[childrenCount];
+    ConcurrentNode[] nodes = new ConcurrentNode[childrenCount];
+    int count = 0;
+    for (ConcurrentNode node = getFirstChild(); node != null;
+        node = getNextChild(node.character)) {
+      if (node.character != ch) {
+        keys[count] = node.character;
+        nodes[count++] = node;
+      }
+    }
+    children = count == 0 ? null : Children.of(keys, nodes, count);
+  }
+
+  /**
+   * Unlinks this node from its parent and continues with the parent as long
+   * as the nodes have neither points nor children anymore. The monitors are
+   * always taken parent first, so this can not deadlock with other writers.
+   */
+  void prune() {
+    ConcurrentNode node = this;
+    while (node.parent != null) {
+      ConcurrentNode parentNode = node.parent;
+      synchronized (parentNode) {
+        synchronized (node) {
+          if (node.removed || node.points != Node.NO_POINTS
+              || node.childrenCount != 0) {
+            return;
+          }
+          node.removed = true;
+          parentNode.removeChild(node.character);
+        }
+      }
+      node = parentNode;
+    }
+  }
+
+  /**
+   * Weather the node got unlinked from the trie, must be checked while holding
+   * the monitor of this node before changing it.
+   *
+   * @return Weather the node got removed.
+   */
+  boolean isRemoved() {
+    return removed;
+  }
+
+  /**
+   * Gets the points value of this node without locking.
+   *
+   * @return The points this node has assigned to it, might be NO_POINTS.
+   */
+  int getPoints() {
+    return points;
+  }
+
+  /**
+   * Sets the given points to this node, the caller has to hold the monitor of
+   * this node.
+   *
+   * @param points The value of points to assign to this node.
+   */
+  void setPoints(int points) {
+    this.points = points;
+  }
+
+  /**
+   * Stringifies this node and all of its children in the same format as
+   * Node#toString(). The result is weakly consistent, concurrent changes may
+   * or may not be visible in it.
+   *
+   * @param builder The builder to append the representation to.
+   */
+  void appendTo(StringBuilder builder) {
+    /*
+     The nodes on the path to the current node, stack[0] is this node. Every
+     node on the stack has its opening parentheses appended already.
+    */
+    ConcurrentNode[] stack = new ConcurrentNode[16];
+    int depth = 0;
+    stack[0] = this;
+    ConcurrentNode node = this;
+
+    while (node != null) {
+      builder.append(node.character);
+      int currentPoints = node.points;
+      if (currentPoints != Node.NO_POINTS) {
+        builder.append('[').append(currentPoints).append(']');
+      }
+
+      ConcurrentNode child = node.getFirstChild();
+      if (child != null) {
+        builder.append('(');
+        depth++;
+        if (depth == stack.length) {
+          stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[depth] = child;
+        node = child;
+        continue;
+      }
+
+      /*
+       The node has no children, so continue with the next sibling of the
+       closest node on the path which has one and close the parentheses of
+       all levels which are done on the way up.
+      */
+      node = null;
+      while (depth > 0) {
+        ConcurrentNode sibling =
+            stack[depth - 1].getNextChild(stack[depth].character);
+        if (sibling != null) {
+          stack[depth] = sibling;
+          node = sibling;
+          break;
+        }
+        stack[depth] = null;
+        depth--;
+        builder.append(')');
+      }
+    }
+  }
+
+  /**
+   * Children holds the children of a node in one of two representations:
+   * sparse, where keys holds the characters of the children in sorted order
+   * and nodes the child at the same position, or dense, where keys is null and
+   * nodes has one slot per character of the range starting at base. Sparse
+   * children are never changed, a dense array gets children added and removed
+   * in place as long as they are in its range, so its slots are accessed with
+   * volatile semantics.
+   */
+  private static final class Children {
+
+    private static final VarHandle SLOTS =
+        MethodHandles.arrayElementVarHandle(ConcurrentNode[].class);
+
+    private final char[] keys;
+    private final char base;
+    private final ConcurrentNode[] nodes;
+
+    /**
+     * Creates children in the given representation.
+     *
+     * @param keys  The sorted characters of sparse children, null if dense.
+     * @param base  The first character of the dense range.
+     * @param nodes The children.
+     */
+    private Children(char[] keys, char base, ConcurrentNode[] nodes) {
+      this.keys = keys;
+      this.base = base;
+      this.nodes = nodes;
+    }
+
+    /**
+     * Creates the children for the given sorted children. They are kept dense
+     * if there are more than SPARSE_CHILDREN_LIMIT of them and they are close
+     * enough to each other, otherwise sparse.
+     *
+     * @param keys  The sorted characters of the children.
+     * @param nodes The children at the positions of their characters.
+     * @param count The amount of children, at least one.
+     * @return The new children.
+     */
+    static Children of(char[] keys, ConcurrentNode[] nodes, int count) {
+      char low = keys[0];
+      char high = keys[count - 1];
+      if (count <= SPARSE_CHILDREN_LIMIT || high - low >= DENSE_RANGE_LIMIT) {
+        return new Children(Arrays.copyOf(keys, count), low,
+            Arrays.copyOf(nodes, count));
+      }
+      ConcurrentNode[] slots = new ConcurrentNode[high - low + 1];
+      for (int i = 0; i < count; i++) {
+        slots[keys[i] - low] = nodes[i];
+      }
+      return new Children(null, low, slots);
+    }
+
+    /**
+     * Gets the child with the given character.
+     *
+     * @param ch The character of the child.
+     * @return The child or null if it does not exist.
+     */
+    ConcurrentNode get(char ch) {
+      if (keys == null) {
+        int index = ch - base;
+        return index >= 0 && index < nodes.length
+            ? (ConcurrentNode) SLOTS.getVolatile(nodes, index) : null;
+      }
+      int position = keys.length > SPARSE_CHILDREN_LIMIT
+          ? Arrays.binarySearch(keys, ch) : indexOf(ch);
+      return position >= 0 ? nodes[position] : null;
+    }
+
+    /**
+     * Gets the child with the lowest character above the given one.
+     *
+     * @param ch The character after which to look, -1 for the first child.
+     * @return The next child or null if there is none.
+     */
+    ConcurrentNode next(int ch) {
+      if (keys == null) {
+        for (int i = Math.max(ch - base + 1, 0); i < nodes.length; i++) {
+          ConcurrentNode child = (ConcurrentNode) SLOTS.getVolatile(nodes, i);
+          if (child != null) {
+            return child;
+          }
+        }
+        return null;
+      }
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] > ch) {
+          return nodes[i];
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Finds the position of a character in the few sparse keys.
+     *
+     * @param ch The character.
+     * @return The position or -1 if there is no child with it.
+     */
+    private int indexOf(char ch) {
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] == ch) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+}
@@ -0,0 +1,239 @@
+package trie;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * ConcurrentTrie is a thread-safe variant of the Trie which can be shared
+ * between threads. Like the Trie it takes keys of any characters. Lookups
+ * never take a lock, they only read the volatile children and points of the
+ * nodes on their path. Writers lock just the single node they change, and the
+ * cleanup of nodes which are not needed anymore after a removal locks parent
+ * and child (always in this order) one level at a time. A node which got
+ * unlinked is marked as removed, writers which still reach it start over from
+ * the root.
+ */
+public class ConcurrentTrie {
+
+  /**
+   * Returned by the primitive methods if a key has no points, this value can
+   * therefore not be used as points itself.
+   */
+  public static final int NO_POINTS = Node.NO_POINTS;
+
+  /**
+   * The trie always has final root element which never undergoes any changes
+   * but adding and removing children.
+   */
+  private final ConcurrentNode root = new ConcurrentNode();
+
+  /**
+   * Constructs an empty ConcurrentTrie.
+   */
+  public ConcurrentTrie() {
+  }
+
+  /**
+   * Makes sure the given points can be stored, which is every value except the
+   * NO_POINTS sentinel.
+   *
+   * @param points The points to check.
+   * @throws IllegalArgumentException If the points equal NO_POINTS.
+   */
+  private static void checkPoints(int points) {
+    if (points == NO_POINTS) {
+      throw new IllegalArgumentException("points can not be " + NO_POINTS);
+    }
+  }
+
+  /**
+   * @param key    The key for which to store the points value.
+   * @param points The value of points to associate with the given key.
+   * @return Returns false in the case that the key already exists as we do not
+   * want to overwrite points, otherwise always returns true.
+   * @throws IllegalArgumentException If the points equal NO_POINTS.
+   */
+  public boolean add(CharSequence key, int points) {
+    checkPoints(points);
+    while (true) {
+      ConcurrentNode node = findOrCreate(key);
+      synchronized (node) {
+        if (node.isRemoved()) {
+          continue;
+        }
+        if (node.getPoints() != NO_POINTS) {
+          return false;
+        }
+        node.setPoints(points);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Changes the points value of a specific key to the given points.
+   *
+   * @param key    The key for which to change the points for.
+   * @param points The new points to assign.
+   * @return Returns false if the key does not exist, otherwise always
+   * returns true.
+   * @throws IllegalArgumentException If the points equal NO_POINTS.
+   */
+  public boolean change(CharSequence key, int points) {
+    checkPoints(points);
+    ConcurrentNode node = find(key);
+    if (node == null) {
+      return false;
+    }
+    synchronized (node) {
+      /*
+       A removed node never has points, so checking the points also covers
+       nodes which got unlinked after the lookup.
+      */
+      if (node.getPoints() == NO_POINTS) {
+        return false;
+      }
+      node.setPoints(points);
+      return true;
+    }
+  }
+
+  /**
+   * Atomically merges the given points into the points of the key, e.g.
+   * merge(key, 10, Integer::sum) to increment points. A key which does not
+   * exist yet gets the given points, otherwise the operator combines the
+   * current and the given points. If the operator returns NO_POINTS the key is
+   * removed.
+   *
+   * @param key      The key for which to merge the points.
+   * @param points   The points to merge into the current points.
+   * @param operator The operator which combines the current and the given
+   *                 points, it is called while holding a lock.
+   * @return The new points or NO_POINTS if the key got removed.
+   * @throws IllegalArgumentException If the given points equal NO_POINTS.
+   */
+  public int merge(CharSequence key, int points, IntBinaryOperator operator) {
+    checkPoints(points);
+    while (true) {
+      ConcurrentNode node = findOrCreate(key);
+      int mergedPoints;
+      synchronized (node) {
+        if (node.isRemoved()) {
+          continue;
+        }
+        int currentPoints = node.getPoints();
+        mergedPoints = currentPoints == NO_POINTS ? points
+            : operator.applyAsInt(currentPoints, points);
+        node.setPoints(mergedPoints);
+      }
+      if (mergedPoints == NO_POINTS) {
+        node.prune();
+      }
+      return mergedPoints;
+    }
+  }
+
+  /**
+   * Removes the key from the trie and unlinks all nodes which are not needed
+   * anymore afterwards.
+   *
+   * @param key The key (name) to remove from the trie.
+   * @return Returns false if the key does not exist, otherwise always
+   * returns true.
+   */
+  public boolean remove(CharSequence key) {
+    ConcurrentNode node = find(key);
+    if (node == null) {
+      return false;
+    }
+    synchronized (node) {
+      if (node.getPoints() == NO_POINTS) {
+        return false;
+      }
+      node.setPoints(NO_POINTS);
+    }
+    node.prune();
+    return true;
+  }
+
+  /**
+   * Gets the points associated with a key without taking any lock.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * NO_POINTS.
+   */
+  public int getInt(CharSequence key) {
+    ConcurrentNode node = find(key);
+    if (node == null) {
+      return NO_POINTS;
+    }
+    return node.getPoints();
+  }
+
+  /**
+   * Gets the points associated with a key without taking any lock.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * null.
+   */
+  public Integer points(CharSequence key) {
+    int points = getInt(key);
+    if (points == NO_POINTS) {
+      return null;
+    }
+    return points;
+  }
+
+  /**
+   * Finds the node which holds the value for the last letter in the key.
+   *
+   * @param key The key for which to look for.
+   * @return The found node or null if it does not exist.
+   */
+  private ConcurrentNode find(CharSequence key) {
+    ConcurrentNode node = root;
+    for (int i = 0; i < key.length(); i++) {
+      node = node.getChild(key.charAt(i));
+      if (node == null) {
+        return null;
+      }
+    }
+    return node;
+  }
+
+  /**
+   * Finds the node for the last letter in the key and creates all missing
+   * nodes on the way. If the walk runs into a node which got removed
+   * concurrently it starts over from the root.
+   *
+   * @param key The key for which to look for.
+   * @return The existing or created node for the last letter in the key, it
+   * might get removed before the caller locks it.
+   */
+  private ConcurrentNode findOrCreate(CharSequence key) {
+    ConcurrentNode node = root;
+    for (int i = 0; i < key.length(); i++) {
+      node = node.getOrCreateChild(key.charAt(i));
+      if (node == null) {
+        node = root;
+        i = -1;
+      }
+    }
+    return node;
+  }
+
+  /**
+   * Shows the trie as a string representation where an empty trie is "+". The
+   * representation is weakly consistent while other threads change the trie.
+   *
+   * @return The trie in string representation based of the root element.
+   * @see Node#toString()
+   */
+  @Override
+  public String toString() {
+    StringBuilder trieStringBuilder = new StringBuilder();
+    root.appendTo(trieStringBuilder);
+    return trieStringBuilder.toString();
+  }
+}
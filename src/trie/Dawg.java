@@ -0,0 +1,253 @@
+package trie;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Dawg is a read-only copy of a trie as a minimal acyclic automaton (a
+ * directed acyclic word graph), see Trie#toDawg(). Where the trie stores the
+ * suffixes of its keys separately, the Dawg shares every suffix whose keys
+ * follow the same edges and lead to the same remaining points, so key sets
+ * with many common endings like names or words take a fraction of the memory.
+ * <p>
+ * The points are not stored in the states but as outputs along the edges:
+ * the points of a key are the sum of the outputs on its path plus the output
+ * of the final state it ends in. All methods are thread-safe as nothing
+ * changes after the creation.
+ */
+public final class Dawg {
+
+  /**
+   * Returned by the primitive methods if a key has no points, this value can
+   * therefore not be used as points itself.
+   */
+  public static final int NO_POINTS = Node.NO_POINTS;
+
+  private static final long POINTS_OFFSET = Integer.MIN_VALUE;
+  // The header and fields of a Dawg without its arrays.
+  private static final int OBJECT_BYTES = 64;
+
+  /*
+   The edges of state s are the edges from firstEdges[s] to firstEdges[s + 1]
+   with sorted labels. Outputs are unsigned ints.
+  */
+  private final char[] labels;
+  private final int[] outputs;
+  private final int[] targets;
+  private final int[] firstEdges;
+  private final long[] finalBits;
+  private final int[] finalOutputs;
+  private final int root;
+  private final int keyCount;
+  private final long trieNodeCount;
+  private final long trieEstimatedBytes;
+
+  /**
+   * Creates the Dawg from its states, see DawgBuilder.
+   *
+   * @param labels             The labels of all edges.
+   * @param outputs            The outputs of all edges.
+   * @param targets            The target states of all edges.
+   * @param firstEdges         The first edge of every state and the amount of
+   *                           edges at the end.
+   * @param finalBits          The bit of every state which marks it as final.
+   * @param finalOutputs       The output of every final state.
+   * @param root               The state of the empty key.
+   * @param keyCount           The amount of keys.
+   * @param trieNodeCount      The amount of nodes of the trie it was built
+   *                           from.
+   * @param trieEstimatedBytes The estimated heap size of that trie.
+   */
+  Dawg(char[] labels, int[] outputs, int[] targets, int[] firstEdges,
+      long[] finalBits, int[] finalOutputs, int root, int keyCount,
+      long trieNodeCount, long trieEstimatedBytes) {
+    this.labels = labels;
+    this.outputs = outputs;
+    this.targets = targets;
+    this.firstEdges = firstEdges;
+    this.finalBits = finalBits;
+    this.finalOutputs = finalOutputs;
+    this.root = root;
+    this.keyCount = keyCount;
+    this.trieNodeCount = trieNodeCount;
+    this.trieEstimatedBytes = trieEstimatedBytes;
+  }
+
+  /**
+   * Builds the minimal Dawg of all keys below the given root. The keys are
+   * walked in lexicographic order with an explicit stack, so long keys can
+   * not overflow the call stack.
+   *
+   * @param root The root node of the trie.
+   * @return The Dawg of the trie.
+   */
+  static Dawg of(Node root) {
+    DawgBuilder builder = new DawgBuilder();
+    long nodeCount = 0;
+    long estimatedBytes = 0;
+
+    // The nodes on the path to the current node and the key of the path.
+    Node[] stack = new Node[16];
+    char[] key = new char[16];
+    int depth = 0;
+    Node node = root;
+    while (node != null) {
+      stack[depth] = node;
+      if (depth > 0) {
+        key[depth - 1] = node.getCharacter();
+      }
+      nodeCount++;
+      estimatedBytes += node.estimateBytes();
+      if (node.hasPoints()) {
+        builder.add(key, depth, node.getPoints());
+      }
+
+      Node child = node.getFirstChild();
+      if (child != null) {
+        depth++;
+        if (depth == stack.length) {
+          stack = Arrays.copyOf(stack, stack.length * 2);
+          key = Arrays.copyOf(key, key.length * 2);
+        }
+        node = child;
+        continue;
+      }
+
+      // Continue with the next sibling of the closest node which has one.
+      node = null;
+      while (depth > 0 && node == null) {
+        node = stack[depth - 1].getNextChild(stack[depth].getCharacter());
+        if (node == null) {
+          stack[depth] = null;
+          depth--;
+        }
+      }
+    }
+    return builder.build(nodeCount, estimatedBytes);
+  }
+
+  /**
+   * Gets the points associated with a key.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * null.
+   */
+  public Integer points(CharSequence key) {
+    int points = getInt(key);
+    return points == NO_POINTS ? null : points;
+  }
+
+  /**
+   * Gets the points associated with a key without boxing them, summing up the
+   * outputs along its path.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * NO_POINTS.
+   */
+  public int getInt(CharSequence key) {
+    int state = root;
+    long sum = 0;
+    for (int i = 0; i < key.length(); i++) {
+      int edge = Arrays.binarySearch(labels, firstEdges[state],
+          firstEdges[state + 1], key.charAt(i));
+      if (edge < 0) {
+        return NO_POINTS;
+      }
+      sum += Integer.toUnsignedLong(outputs[edge]);
+      state = targets[edge];
+    }
+    if ((finalBits[state >>> 6] & (1L << state)) == 0) {
+      return NO_POINTS;
+    }
+    return (int) (sum + Integer.toUnsignedLong(finalOutputs[state])
+        + POINTS_OFFSET);
+  }
+
+  /**
+   * Gets the amount of keys.
+   *
+   * @return The amount of keys.
+   */
+  public int size() {
+    return keyCount;
+  }
+
+  /**
+   * Gets the amount of states, which would be the amount of nodes of a trie
+   * without shared suffixes.
+   *
+   * @return The amount of states.
+   */
+  public int getStateCount() {
+    return firstEdges.length - 1;
+  }
+
+  /**
+   * Gets the amount of edges between the states.
+   *
+   * @return The amount of edges.
+   */
+  public int getEdgeCount() {
+    return labels.length;
+  }
+
+  /**
+   * Gets the amount of nodes of the trie the Dawg was built from, including
+   * its root.
+   *
+   * @return The amount of nodes.
+   */
+  public long getTrieNodeCount() {
+    return trieNodeCount;
+  }
+
+  /**
+   * Gets the estimated heap size of the trie the Dawg was built from, see
+   * TrieStatistics#getEstimatedBytes().
+   *
+   * @return The estimated size in bytes.
+   */
+  public long getTrieEstimatedBytes() {
+    return trieEstimatedBytes;
+  }
+
+  /**
+   * Estimates the bytes the Dawg takes on the heap.
+   *
+   * @return The estimated size in bytes.
+   */
+  public long estimateBytes() {
+    return OBJECT_BYTES + Node.alignedArrayBytes(labels.length, Character.BYTES)
+        + Node.alignedArrayBytes(outputs.length, Integer.BYTES)
+        + Node.alignedArrayBytes(targets.length, Integer.BYTES)
+        + Node.alignedArrayBytes(firstEdges.length, Integer.BYTES)
+        + Node.alignedArrayBytes(finalBits.length, Long.BYTES)
+        + Node.alignedArrayBytes(finalOutputs.length, Integer.BYTES);
+  }
+
+  /**
+   * Gets how many times smaller the Dawg is than the trie it was built from.
+   *
+   * @return The estimated size of the trie divided by the one of the Dawg.
+   */
+  public double getCompressionRatio() {
+    return (double) trieEstimatedBytes / estimateBytes();
+  }
+
+  /**
+   * Reports how much the Dawg compressed the trie it was built from, e.g. for
+   * logging after the conversion.
+   *
+   * @return The string representation of the Dawg.
+   */
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT, "Dawg{keys=%d, trieNodes=%d, "
+            + "states=%d, edges=%d, trieBytes=%d, bytes=%d, ratio=%.2f}",
+        keyCount, trieNodeCount, getStateCount(), getEdgeCount(),
+        trieEstimatedBytes, estimateBytes(), getCompressionRatio());
+  }
+
+}
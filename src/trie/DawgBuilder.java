@@ -0,0 +1,387 @@
+package trie;
+
+import java.util.Arrays;
+
+/**
+ * DawgBuilder builds the minimal Dawg of keys which are added in ascending
+ * order, following the incremental construction of minimal acyclic
+ * subsequential transducers by Mihov and Maurel. The states on the path of the
+ * previous key are kept mutable, the other states are final and stored once
+ * in a register: once a key is added, the states of the previous key which do
+ * not lead to the new key can not change anymore and are replaced by an equal
+ * registered state if there is one.
+ * <p>
+ * The points are carried as outputs: an edge carries the lowest points of all
+ * keys below it minus the outputs of the edges before it, so the outputs are
+ * pushed as close to the root as possible and suffixes with equal remaining
+ * outputs are shared. The points are shifted to unsigned values first, so all
+ * outputs are between 0 and 2^32 - 1.
+ */
+final class DawgBuilder {
+
+  private static final int NO_STATE = -1;
+  private static final long POINTS_OFFSET = Integer.MIN_VALUE;
+
+  /*
+   The registered states, the edges of state s are the edges from
+   firstEdges[s] to firstEdges[s + 1] with sorted labels. Outputs are stored
+   as unsigned ints.
+  */
+  private char[] labels = new char[64];
+  private int[] outputs = new int[64];
+  private int[] targets = new int[64];
+  private int edgeCount;
+  private int[] firstEdges = new int[64];
+  private long[] finalBits = new long[1];
+  private int[] finalOutputs = new int[64];
+  private int stateCount;
+  // The open addressing register of the states by content, state + 1 or 0.
+  private int[] register = new int[64];
+
+  /*
+   The mutable states on the path of the previous key, the state of depth d
+   follows the first d chars. Its last edge leads to the state of depth d + 1
+   whose target is not known before it is registered.
+  */
+  private char[][] pathLabels = new char[0][];
+  private long[][] pathOutputs = new long[0][];
+  private int[][] pathTargets = new int[0][];
+  private int[] pathEdgeCounts = new int[0];
+  private boolean[] pathFinals = new boolean[0];
+  private long[] pathFinalOutputs = new long[0];
+
+  private char[] previousKey = new char[16];
+  private int previousLength = -1;
+  private int keyCount;
+
+  /**
+   * Adds the next key with its points.
+   *
+   * @param key    The buffer which holds the key.
+   * @param length The length of the key.
+   * @param points The points of the key.
+   * @throws IllegalArgumentException If the key is not greater than the
+   *                                  previous key.
+   */
+  void add(char[] key, int length, int points) {
+    ensureDepth(length + 1);
+    int prefix = 0;
+    if (previousLength >= 0) {
+      int maxPrefix = Math.min(length, previousLength);
+      while (prefix < maxPrefix && key[prefix] == previousKey[prefix]) {
+        prefix++;
+      }
+      if (prefix == length || (prefix < previousLength
+          && key[prefix] < previousKey[prefix])) {
+        throw new IllegalArgumentException("keys are not sorted, \""
+            + new String(key, 0, length) + "\" comes after \""
+            + new String(previousKey, 0, previousLength) + "\"");
+      }
+    } else {
+      clearState(0);
+    }
+
+    // The states below the shared prefix can not change anymore.
+    registerPathBelow(prefix);
+
+    long output = points - POINTS_OFFSET;
+    for (int depth = 0; depth < prefix; depth++) {
+      int edge = pathEdgeCounts[depth] - 1;
+      long edgeOutput = pathOutputs[depth][edge];
+      long common = Math.min(edgeOutput, output);
+      long rest = edgeOutput - common;
+      pathOutputs[depth][edge] = common;
+      if (rest != 0) {
+        // The rest of the old output moves one edge further down.
+        for (int i = 0; i < pathEdgeCounts[depth + 1]; i++) {
+          pathOutputs[depth + 1][i] += rest;
+        }
+        if (pathFinals[depth + 1]) {
+          pathFinalOutputs[depth + 1] += rest;
+        }
+      }
+      output -= common;
+    }
+
+    for (int depth = prefix; depth < length; depth++) {
+      clearState(depth + 1);
+      addEdge(depth, key[depth], depth == prefix ? output : 0);
+    }
+    pathFinals[length] = true;
+    pathFinalOutputs[length] = length == prefix ? output : 0;
+
+    if (length > previousKey.length) {
+      previousKey = Arrays.copyOf(previousKey, Math.max(length,
+          previousKey.length * 2));
+    }
+    System.arraycopy(key, prefix, previousKey, prefix, length - prefix);
+    previousLength = length;
+    keyCount++;
+  }
+
+  /**
+   * Registers the remaining states and creates the Dawg.
+   *
+   * @param trieNodeCount      The amount of nodes of the trie the keys come
+   *                           from.
+   * @param trieEstimatedBytes The estimated heap size of the trie.
+   * @return The minimal Dawg of the added keys.
+   */
+  Dawg build(long trieNodeCount, long trieEstimatedBytes) {
+    ensureDepth(1);
+    if (previousLength < 0) {
+      clearState(0);
+    } else {
+      registerPathBelow(0);
+    }
+    int root = registerState(0);
+    firstEdges[stateCount] = edgeCount;
+    return new Dawg(Arrays.copyOf(labels, edgeCount),
+        Arrays.copyOf(outputs, edgeCount), Arrays.copyOf(targets, edgeCount),
+        Arrays.copyOf(firstEdges, stateCount + 1),
+        Arrays.copyOf(finalBits, (stateCount + 63) >>> 6),
+        Arrays.copyOf(finalOutputs, stateCount), root, keyCount,
+        trieNodeCount, trieEstimatedBytes);
+  }
+
+  /**
+   * Registers the states of the previous key which are deeper than the given
+   * depth, from the deepest up, and links each to its parent.
+   *
+   * @param depth The depth of the deepest state which stays mutable.
+   */
+  private void registerPathBelow(int depth) {
+    for (int i = previousLength; i > depth; i--) {
+      int state = registerState(i);
+      pathTargets[i - 1][pathEdgeCounts[i - 1] - 1] = state;
+    }
+  }
+
+  /**
+   * Finds a registered state which equals the mutable state of the given
+   * depth or registers a copy of it.
+   *
+   * @param depth The depth of the mutable state.
+   * @return The registered state.
+   */
+  private int registerState(int depth) {
+    int mask = register.length - 1;
+    int index = hashPathState(depth) & mask;
+    while (register[index] != 0) {
+      int state = register[index] - 1;
+      if (equalsPathState(state, depth)) {
+        return state;
+      }
+      index = (index + 1) & mask;
+    }
+
+    int state = stateCount++;
+    ensureStates(stateCount + 1);
+    int count = pathEdgeCounts[depth];
+    ensureEdges(edgeCount + count);
+    firstEdges[state] = edgeCount;
+    for (int i = 0; i < count; i++) {
+      labels[edgeCount] = pathLabels[depth][i];
+      outputs[edgeCount] = (int) pathOutputs[depth][i];
+      targets[edgeCount] = pathTargets[depth][i];
+      edgeCount++;
+    }
+    firstEdges[state + 1] = edgeCount;
+    if (pathFinals[depth]) {
+      finalBits[state >>> 6] |= 1L << state;
+      finalOutputs[state] = (int) pathFinalOutputs[depth];
+    }
+    register[index] = state + 1;
+    if (stateCount * 2 > register.length) {
+      growRegister();
+    }
+    return state;
+  }
+
+  /**
+   * Checks if a registered state equals the mutable state of the given depth.
+   *
+   * @param state The registered state.
+   * @param depth The depth of the mutable state.
+   * @return Weather both have the same edges and are final with the same
+   * output or not final.
+   */
+  private boolean equalsPathState(int state, int depth) {
+    boolean isFinal = (finalBits[state >>> 6] & (1L << state)) != 0;
+    if (isFinal != pathFinals[depth] || (isFinal
+        && finalOutputs[state] != (int) pathFinalOutputs[depth])) {
+      return false;
+    }
+    int first = firstEdges[state];
+    int count = pathEdgeCounts[depth];
+    if (firstEdges[state + 1] - first != count) {
+      return false;
+    }
+    for (int i = 0; i < count; i++) {
+      if (labels[first + i] != pathLabels[depth][i]
+          || outputs[first + i] != (int) pathOutputs[depth][i]
+          || targets[first + i] != pathTargets[depth][i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Hashes the mutable state of the given depth like hashState(int) hashes a
+   * registered state with the same content.
+   *
+   * @param depth The depth of the mutable state.
+   * @return The hash code.
+   */
+  private int hashPathState(int depth) {
+    int hash = pathFinals[depth] ? (int) pathFinalOutputs[depth] * 31 + 1 : 0;
+    for (int i = 0; i < pathEdgeCounts[depth]; i++) {
+      hash = hashEdge(hash, pathLabels[depth][i], (int) pathOutputs[depth][i],
+          pathTargets[depth][i]);
+    }
+    return mix(hash);
+  }
+
+  /**
+   * Hashes a registered state.
+   *
+   * @param state The registered state.
+   * @return The hash code.
+   */
+  private int hashState(int state) {
+    boolean isFinal = (finalBits[state >>> 6] & (1L << state)) != 0;
+    int hash = isFinal ? finalOutputs[state] * 31 + 1 : 0;
+    for (int edge = firstEdges[state]; edge < firstEdges[state + 1]; edge++) {
+      hash = hashEdge(hash, labels[edge], outputs[edge], targets[edge]);
+    }
+    return mix(hash);
+  }
+
+  /**
+   * Combines the hash code of the edges so far with the next edge.
+   *
+   * @param hash   The hash code so far.
+   * @param label  The label of the edge.
+   * @param output The output of the edge.
+   * @param target The target of the edge.
+   * @return The combined hash code.
+   */
+  private static int hashEdge(int hash, char label, int output, int target) {
+    return ((hash * 31 + label) * 31 + output) * 31 + target;
+  }
+
+  /**
+   * Spreads the bits of a hash code, so the low bits which index the register
+   * depend on all bits.
+   *
+   * @param hash The hash code.
+   * @return The spread hash code.
+   */
+  private static int mix(int hash) {
+    hash *= 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Doubles the register and inserts all registered states again.
+   */
+  private void growRegister() {
+    register = new int[register.length * 2];
+    int mask = register.length - 1;
+    for (int state = 0; state < stateCount; state++) {
+      int index = hashState(state) & mask;
+      while (register[index] != 0) {
+        index = (index + 1) & mask;
+      }
+      register[index] = state + 1;
+    }
+  }
+
+  /**
+   * Adds an edge to the mutable state of the given depth, whose target is the
+   * mutable state of the next depth until it is registered.
+   *
+   * @param depth  The depth of the mutable state.
+   * @param label  The label of the edge, greater than the labels before.
+   * @param output The output of the edge.
+   */
+  private void addEdge(int depth, char label, long output) {
+    int count = pathEdgeCounts[depth];
+    if (count == pathLabels[depth].length) {
+      pathLabels[depth] = Arrays.copyOf(pathLabels[depth], count * 2);
+      pathOutputs[depth] = Arrays.copyOf(pathOutputs[depth], count * 2);
+      pathTargets[depth] = Arrays.copyOf(pathTargets[depth], count * 2);
+    }
+    pathLabels[depth][count] = label;
+    pathOutputs[depth][count] = output;
+    pathTargets[depth][count] = NO_STATE;
+    pathEdgeCounts[depth] = count + 1;
+  }
+
+  /**
+   * Empties the mutable state of the given depth.
+   *
+   * @param depth The depth of the mutable state.
+   */
+  private void clearState(int depth) {
+    pathEdgeCounts[depth] = 0;
+    pathFinals[depth] = false;
+    pathFinalOutputs[depth] = 0;
+  }
+
+  /**
+   * Makes sure there are mutable states for the given amount of depths.
+   *
+   * @param depths The amount of depths, one more than the length of the key.
+   */
+  private void ensureDepth(int depths) {
+    int old = pathLabels.length;
+    if (depths <= old) {
+      return;
+    }
+    int capacity = Math.max(depths, old * 2);
+    pathLabels = Arrays.copyOf(pathLabels, capacity);
+    pathOutputs = Arrays.copyOf(pathOutputs, capacity);
+    pathTargets = Arrays.copyOf(pathTargets, capacity);
+    pathEdgeCounts = Arrays.copyOf(pathEdgeCounts, capacity);
+    pathFinals = Arrays.copyOf(pathFinals, capacity);
+    pathFinalOutputs = Arrays.copyOf(pathFinalOutputs, capacity);
+    for (int depth = old; depth < capacity; depth++) {
+      pathLabels[depth] = new char[4];
+      pathOutputs[depth] = new long[4];
+      pathTargets[depth] = new int[4];
+    }
+  }
+
+  /**
+   * Makes sure the registered states have room for the given amount.
+   *
+   * @param count The amount of states.
+   */
+  private void ensureStates(int count) {
+    if (count > firstEdges.length) {
+      int capacity = Math.max(count, firstEdges.length * 2);
+      firstEdges = Arrays.copyOf(firstEdges, capacity);
+      finalOutputs = Arrays.copyOf(finalOutputs, capacity);
+    }
+    if ((count + 63) >>> 6 > finalBits.length) {
+      finalBits = Arrays.copyOf(finalBits, finalBits.length * 2);
+    }
+  }
+
+  /**
+   * Makes sure the edges have room for the given amount.
+   *
+   * @param count The amount of edges.
+   */
+  private void ensureEdges(int count) {
+    if (count > labels.length) {
+      int capacity = Math.max(count, labels.length * 2);
+      labels = Arrays.copyOf(labels, capacity);
+      outputs = Arrays.copyOf(outputs, capacity);
+      targets = Arrays.copyOf(targets, capacity);
+    }
+  }
+
+}
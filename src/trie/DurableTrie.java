@@ -0,0 +1,898 @@
+package trie;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * DurableTrie is a Trie whose changes survive a crash. Every change is
+ * appended to a write-ahead log and forced to disk before it is applied to the
+ * trie and before the method which made it returns, so reads only ever see
+ * durable changes. From time to time the whole trie is written to a snapshot
+ * file by a background thread and the log up to the snapshot is deleted.
+ * Opening a DurableTrie loads the latest snapshot and replays the rest of the
+ * log.
+ * <p>
+ * Changes of concurrent threads are forced to disk together (group commit).
+ * The thread which forces the log can wait a configurable delay for more
+ * changes to join its batch, which trades latency for throughput. All methods
+ * are thread-safe, a failed write to the log makes all later changes fail.
+ * <p>
+ * The directory contains the snapshot "snapshot.trie" in the format of the
+ * TrieFile and the log files "wal-N.log", where N is the sequence number of
+ * the first change in the file. Every record in a log is:
+ * <pre>
+ * int length of the rest of the record without the checksum
+ * int CRC32 of the rest of the record
+ * long sequence number
+ * byte operation (PUT or REMOVE)
+ * int points
+ * int key length followed by the chars of the key
+ * </pre>
+ */
+public class DurableTrie implements Closeable {
+
+  /**
+   * Returned by the primitive methods if a key has no points, this value can
+   * therefore not be used as points itself.
+   */
+  public static final int NO_POINTS = Node.NO_POINTS;
+
+  private static final String SNAPSHOT_FILE = "snapshot.trie";
+  private static final String LOG_PREFIX = "wal-";
+  private static final String LOG_SUFFIX = ".log";
+  private static final byte PUT = 1;
+  private static final byte REMOVE = 2;
+  // The bytes of a record before the key, without length and checksum.
+  private static final int RECORD_HEADER_BYTES =
+      Long.BYTES + Byte.BYTES + Integer.BYTES + Integer.BYTES;
+  // Longer records can only come from a damaged log.
+  private static final int MAX_RECORD_BYTES = 1 << 24;
+
+  private final Path directory;
+  private final long groupCommitNanos;
+  private final long checkpointRecords;
+  // The trie with all durable changes.
+  private final Trie trie;
+  private final AtomicBoolean checkpointing = new AtomicBoolean();
+  // The thread writing the automatic checkpoint, if any.
+  private Thread checkpointThread;
+  /*
+   The latest logged change of every key whose changes are not durable yet,
+   so new changes are checked against them instead of the trie.
+  */
+  private final Map<String, PendingChange> pendingChanges = new HashMap<>();
+
+  /*
+   The log file new records are written to and the records which are not
+   written to it yet. Both are only changed while holding the lock of this
+   trie, the log is only written by the thread which is flushing.
+  */
+  private FileChannel log;
+  private ByteBuffer pending = ByteBuffer.allocate(4096);
+  private ByteBuffer spare = ByteBuffer.allocate(4096);
+  // The sequence number of the last logged and of the last forced record.
+  private long sequence;
+  private long durableSequence;
+  // The amount of records which got logged since the last checkpoint.
+  private long recordsSinceCheckpoint;
+  // Weather a thread is writing the log right now.
+  private boolean flushing;
+  // The error which made the log unusable, if any.
+  private IOException failure;
+  private boolean closed;
+
+  /**
+   * Creates a durable trie on top of an already recovered trie.
+   *
+   * @param directory         The directory of the snapshot and the log.
+   * @param trie              The recovered trie.
+   * @param log               The log file to append to.
+   * @param sequence          The sequence number of the last recovered change.
+   * @param groupCommitNanos  The delay to wait for more changes before forcing
+   *                          the log.
+   * @param checkpointRecords The amount of records after which a checkpoint is
+   *                          written automatically.
+   */
+  private DurableTrie(Path directory, Trie trie, FileChannel log,
+      long sequence, long groupCommitNanos, long checkpointRecords) {
+    this.directory = directory;
+    this.trie = trie;
+    this.log = log;
+    this.sequence = sequence;
+    this.durableSequence = sequence;
+    this.groupCommitNanos = groupCommitNanos;
+    this.checkpointRecords = checkpointRecords;
+  }
+
+  /**
+   * Opens the durable trie in the given directory without a group commit
+   * delay, checkpointing after every million changes.
+   *
+   * @param directory The directory of the snapshot and the log, it gets
+   *                  created if it does not exist.
+   * @return The recovered trie.
+   * @throws IOException If the directory can not be read or is damaged.
+   */
+  public static DurableTrie open(Path directory) throws IOException {
+    return open(directory, 0, TimeUnit.NANOSECONDS, 1_000_000);
+  }
+
+  /**
+   * Opens the durable trie in the given directory. The latest snapshot is
+   * loaded and all changes in the log after it are replayed. A record which
+   * was only partially written at the end of the log is cut off.
+   *
+   * @param directory         The directory of the snapshot and the log, it
+   *                          gets created if it does not exist.
+   * @param groupCommitDelay  The time a thread which forces the log waits for
+   *                          further changes to join, 0 to force at once.
+   * @param unit              The unit of the group commit delay.
+   * @param checkpointRecords The amount of changes after which a checkpoint is
+   *                          written automatically, 0 to never do so.
+   * @return The recovered trie.
+   * @throws IOException If the directory can not be read or is damaged.
+   * @throws IllegalArgumentException If the delay or the amount of changes are
+   *                                  negative.
+   */
+  public static DurableTrie open(Path directory, long groupCommitDelay,
+      TimeUnit unit, long checkpointRecords) throws IOException {
+    if (groupCommitDelay < 0 || checkpointRecords < 0) {
+      throw new IllegalArgumentException(
+          "group commit delay and checkpoint records can not be negative");
+    }
+    Files.createDirectories(directory);
+
+    Trie trie;
+    long snapshotSequence;
+    Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+    if (Files.exists(snapshotFile)) {
+      MappedTrie snapshot = MappedTrie.open(snapshotFile);
+      snapshot.verify();
+      trie = TrieFile.read(snapshot);
+      snapshotSequence = snapshot.sequence();
+    } else {
+      trie = new Trie();
+      snapshotSequence = 0;
+    }
+
+    long sequence = snapshotSequence;
+    List<Path> logFiles = listLogFiles(directory);
+    for (int i = 0; i < logFiles.size(); i++) {
+      sequence = replay(logFiles.get(i), trie, sequence,
+          i == logFiles.size() - 1);
+    }
+
+    FileChannel log;
+    if (logFiles.isEmpty()) {
+      log = createLogFile(directory, sequence + 1);
+    } else {
+      log = FileChannel.open(logFiles.get(logFiles.size() - 1),
+          StandardOpenOption.WRITE);
+      log.position(log.size());
+    }
+    return new DurableTrie(directory, trie, log, sequence,
+        unit.toNanos(groupCommitDelay), checkpointRecords);
+  }
+
+  /**
+   * Makes sure the given points can be stored, which is every value except the
+   * NO_POINTS sentinel.
+   *
+   * @param points The points to check.
+   * @throws IllegalArgumentException If the points equal NO_POINTS.
+   */
+  private static void checkPoints(int points) {
+    if (points == NO_POINTS) {
+      throw new IllegalArgumentException("points can not be " + NO_POINTS);
+    }
+  }
+
+  /**
+   * Adds a key with its points once the change is durable.
+   *
+   * @param key    The key for which to store the points value.
+   * @param points The value of points to associate with the given key.
+   * @return Returns false in the case that the key already exists as we do not
+   * want to overwrite points, otherwise always returns true.
+   * @throws IOException If the change can not be written to the log.
+   * @throws IllegalArgumentException If the points equal NO_POINTS.
+   */
+  public boolean add(CharSequence key, int points) throws IOException {
+    checkPoints(points);
+    long recordSequence;
+    synchronized (this) {
+      checkWritable();
+      if (latestPoints(key) != NO_POINTS) {
+        return false;
+      }
+      recordSequence = appendRecord(PUT, key, points);
+    }
+    commit(recordSequence);
+    return true;
+  }
+
+  /**
+   * Changes the points value of a specific key once the change is durable.
+   *
+   * @param key    The key for which to change the points for.
+   * @param points The new points to assign.
+   * @return Returns false if the key does not exist, otherwise always
+   * returns true.
+   * @throws IOException If the change can not be written to the log.
+   * @throws IllegalArgumentException If the points equal NO_POINTS.
+   */
+  public boolean change(CharSequence key, int points) throws IOException {
+    checkPoints(points);
+    long recordSequence;
+    synchronized (this) {
+      checkWritable();
+      if (latestPoints(key) == NO_POINTS) {
+        return false;
+      }
+      recordSequence = appendRecord(PUT, key, points);
+    }
+    commit(recordSequence);
+    return true;
+  }
+
+  /**
+   * Removes the key from the trie once the change is durable.
+   *
+   * @param key The key (name) to remove from the trie.
+   * @return Returns false if the key does not exist, otherwise always
+   * returns true.
+   * @throws IOException If the change can not be written to the log.
+   */
+  public boolean remove(CharSequence key) throws IOException {
+    long recordSequence;
+    synchronized (this) {
+      checkWritable();
+      if (latestPoints(key) == NO_POINTS) {
+        return false;
+      }
+      recordSequence = appendRecord(REMOVE, key, NO_POINTS);
+    }
+    commit(recordSequence);
+    return true;
+  }
+
+  /**
+   * Gets the points a key has after all logged changes, including the ones
+   * which are not durable yet. The lock of this trie has to be held.
+   *
+   * @param key The key for which to get the points from.
+   * @return The latest points or NO_POINTS if the key does not exist.
+   */
+  private int latestPoints(CharSequence key) {
+    if (!pendingChanges.isEmpty()) {
+      PendingChange change = pendingChanges.get(key.toString());
+      if (change != null) {
+        return change.points;
+      }
+    }
+    return trie.getInt(key);
+  }
+
+  /**
+   * Gets the points associated with a key, changes which are not durable yet
+   * are not visible.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * NO_POINTS.
+   */
+  public synchronized int getInt(CharSequence key) {
+    return trie.getInt(key);
+  }
+
+  /**
+   * Gets the points associated with a key, changes which are not durable yet
+   * are not visible.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * null.
+   */
+  public synchronized Integer points(CharSequence key) {
+    return trie.points(key);
+  }
+
+  /**
+   * Takes a snapshot of the durable state, which can be read while the trie
+   * keeps changing.
+   *
+   * @return The snapshot of the trie.
+   */
+  public synchronized TrieSnapshot snapshot() {
+    return trie.snapshot();
+  }
+
+  /**
+   * Gets the sequence number of the last logged change, every change
+   * increments it.
+   *
+   * @return The sequence number of the last logged change.
+   */
+  public synchronized long sequence() {
+    return sequence;
+  }
+
+  /**
+   * Writes the current state to the snapshot file and deletes the log files
+   * which are covered by it. Changes can go on while the snapshot is written,
+   * they are logged to a new log file. Does nothing if another checkpoint is
+   * running right now.
+   *
+   * @throws IOException If the snapshot can not be written.
+   */
+  public void checkpoint() throws IOException {
+    if (!checkpointing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      TrieSnapshot snapshot;
+      long snapshotSequence;
+      synchronized (this) {
+        checkWritable();
+        awaitFlushDone();
+        // The old log gets completed and new changes go to a new one.
+        int pendingBytes = pending.position();
+        writeFully(log, pending);
+        log.force(false);
+        applyRecords(pending, pendingBytes);
+        log.close();
+        log = null;
+        log = createLogFile(directory, sequence + 1);
+        durableSequence = sequence;
+        recordsSinceCheckpoint = 0;
+        snapshot = trie.snapshot();
+        snapshotSequence = sequence;
+        notifyAll();
+      }
+
+      Path temporaryFile = directory.resolve(SNAPSHOT_FILE + ".tmp");
+      TrieFile.write(snapshot, temporaryFile, snapshotSequence);
+      try (FileChannel channel = FileChannel.open(temporaryFile,
+          StandardOpenOption.WRITE)) {
+        channel.force(true);
+      }
+      Files.move(temporaryFile, directory.resolve(SNAPSHOT_FILE),
+          StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      forceDirectory(directory);
+
+      for (Path logFile : listLogFiles(directory)) {
+        if (startSequence(logFile) <= snapshotSequence) {
+          Files.delete(logFile);
+        }
+      }
+    } catch (IOException e) {
+      synchronized (this) {
+        if (log == null) {
+          // Without a log file no further change can be made durable.
+          fail(e);
+        }
+      }
+      throw e;
+    } finally {
+      checkpointing.set(false);
+    }
+  }
+
+  /**
+   * Forces all logged changes to disk and closes the log. The trie can not be
+   * changed anymore afterwards.
+   *
+   * @throws IOException If the log can not be written.
+   */
+  @Override
+  public void close() throws IOException {
+    Thread runningCheckpoint;
+    synchronized (this) {
+      runningCheckpoint = checkpointThread;
+    }
+    if (runningCheckpoint != null) {
+      try {
+        runningCheckpoint.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(
+            "interrupted while waiting for the checkpoint");
+      }
+    }
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      awaitFlushDone();
+      closed = true;
+      try {
+        if (failure == null && log != null) {
+          int pendingBytes = pending.position();
+          writeFully(log, pending);
+          log.force(false);
+          applyRecords(pending, pendingBytes);
+          durableSequence = sequence;
+        }
+      } finally {
+        if (log != null) {
+          log.close();
+        }
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Shows the trie as a string representation where an empty trie is "+".
+   *
+   * @return The trie in string representation based of the root element.
+   * @see Node#toString()
+   */
+  @Override
+  public synchronized String toString() {
+    return trie.toString();
+  }
+
+  /**
+   * Makes sure changes can still be logged.
+   *
+   * @throws IOException If the trie is closed or the log failed before.
+   */
+  private void checkWritable() throws IOException {
+    if (closed) {
+      throw new IOException("trie is closed");
+    }
+    if (failure != null) {
+      throw new IOException("write-ahead log failed before", failure);
+    }
+  }
+
+  /**
+   * Appends a record to the pending records, the lock of this trie has to be
+   * held.
+   *
+   * @param operation The operation of the record.
+   * @param key       The key which is changed.
+   * @param points    The new points of the key, NO_POINTS for a removal.
+   * @return The sequence number of the record.
+   */
+  private long appendRecord(byte operation, CharSequence key, int points) {
+    int length = RECORD_HEADER_BYTES + key.length() * Character.BYTES;
+    if (pending.remaining() < 2 * Integer.BYTES + length) {
+      ByteBuffer larger = ByteBuffer.allocate(
+          Math.max(pending.capacity() * 2, pending.position() + 2 * length));
+      pending.flip();
+      larger.put(pending);
+      pending = larger;
+    }
+
+    long recordSequence = ++sequence;
+    int start = pending.position();
+    pending.putInt(length);
+    pending.putInt(0);
+    pending.putLong(recordSequence);
+    pending.put(operation);
+    pending.putInt(points);
+    pending.putInt(key.length());
+    for (int i = 0; i < key.length(); i++) {
+      pending.putChar(key.charAt(i));
+    }
+    CRC32 checksum = new CRC32();
+    checksum.update(pending.array(), start + 2 * Integer.BYTES, length);
+    pending.putInt(start + Integer.BYTES, (int) checksum.getValue());
+    pendingChanges.put(key.toString(),
+        new PendingChange(recordSequence, points));
+    recordsSinceCheckpoint++;
+    return recordSequence;
+  }
+
+  /**
+   * Applies the records at the start of a buffer to the trie once they are
+   * durable, the lock of this trie has to be held. Keys without later logged
+   * changes are not pending anymore.
+   *
+   * @param buffer The buffer which held the records, its content is read
+   *               regardless of its position.
+   * @param end    The amount of bytes of the records.
+   */
+  private void applyRecords(ByteBuffer buffer, int end) {
+    ByteBuffer records = ByteBuffer.wrap(buffer.array(), 0, end);
+    while (records.hasRemaining()) {
+      int length = records.getInt();
+      int next = records.position() + Integer.BYTES + length;
+      records.getInt();
+      long recordSequence = records.getLong();
+      byte operation = records.get();
+      int points = records.getInt();
+      char[] chars = new char[records.getInt()];
+      for (int i = 0; i < chars.length; i++) {
+        chars[i] = records.getChar();
+      }
+      String key = new String(chars);
+      if (operation == PUT) {
+        trie.putInt(key, points);
+      } else {
+        trie.remove(key);
+      }
+      PendingChange change = pendingChanges.get(key);
+      if (change != null && change.sequence == recordSequence) {
+        pendingChanges.remove(key);
+      }
+      records.position(next);
+    }
+  }
+
+  /**
+   * Waits until the record with the given sequence number is forced to disk.
+   * If no other thread is writing the log right now, the calling thread
+   * becomes the one which does, it waits the group commit delay for other
+   * records and then forces all pending records at once. Afterwards it writes
+   * a checkpoint if enough records were logged.
+   *
+   * @param recordSequence The sequence number of the record.
+   * @throws IOException If the log can not be written.
+   */
+  private void commit(long recordSequence) throws IOException {
+    FileChannel channel;
+    ByteBuffer batch;
+    int batchBytes;
+    long batchSequence;
+    synchronized (this) {
+      while (true) {
+        if (durableSequence >= recordSequence) {
+          return;
+        }
+        if (failure != null) {
+          throw new IOException("write-ahead log failed", failure);
+        }
+        if (closed) {
+          throw new IOException("trie is closed");
+        }
+        if (!flushing) {
+          break;
+        }
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException(
+              "interrupted while waiting for the write-ahead log");
+        }
+      }
+
+      flushing = true;
+      waitForGroupCommit();
+      channel = log;
+      batch = pending;
+      batchBytes = batch.position();
+      batchSequence = sequence;
+      pending = spare;
+      spare = null;
+    }
+
+    IOException error = null;
+    try {
+      writeFully(channel, batch);
+      channel.force(false);
+    } catch (IOException e) {
+      error = e;
+    }
+
+    boolean checkpointDue;
+    synchronized (this) {
+      flushing = false;
+      if (error == null) {
+        applyRecords(batch, batchBytes);
+        durableSequence = Math.max(durableSequence, batchSequence);
+      } else {
+        fail(error);
+      }
+      spare = batch;
+      checkpointDue = checkpointRecords > 0
+          && recordsSinceCheckpoint >= checkpointRecords;
+      notifyAll();
+    }
+    if (error != null) {
+      throw error;
+    }
+    if (checkpointDue) {
+      startCheckpoint();
+    }
+  }
+
+  /**
+   * Writes a checkpoint in a background thread, so the thread which committed
+   * does not wait for the snapshot to be written. Does nothing if a
+   * checkpoint is running already. A failed automatic checkpoint is retried
+   * after the next checkpointRecords changes, the log keeps all changes until
+   * then.
+   */
+  private void startCheckpoint() {
+    synchronized (this) {
+      if (closed || checkpointing.get()
+          || (checkpointThread != null && checkpointThread.isAlive())) {
+        return;
+      }
+      checkpointThread = new Thread(() -> {
+        try {
+          checkpoint();
+        } catch (IOException e) {
+          // The log still holds all changes, see the javadoc above.
+        }
+      }, "trie-checkpoint");
+      checkpointThread.setDaemon(true);
+      checkpointThread.start();
+    }
+  }
+
+  /**
+   * Waits the group commit delay while holding the flushing role, other
+   * threads can log records in the meantime. An interrupt ends the waiting
+   * early.
+   */
+  private void waitForGroupCommit() {
+    long deadline = System.nanoTime() + groupCommitNanos;
+    long remaining = groupCommitNanos;
+    while (remaining > 0) {
+      try {
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      remaining = deadline - System.nanoTime();
+    }
+  }
+
+  /**
+   * Waits until no thread is writing the log, the lock of this trie has to be
+   * held.
+   *
+   * @throws InterruptedIOException If the thread gets interrupted.
+   */
+  private void awaitFlushDone() throws InterruptedIOException {
+    while (flushing) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(
+            "interrupted while waiting for the write-ahead log");
+      }
+    }
+  }
+
+  /**
+   * Marks the log as unusable, the lock of this trie has to be held.
+   *
+   * @param error The error which made the log unusable.
+   */
+  private void fail(IOException error) {
+    if (failure == null) {
+      failure = error;
+    }
+    notifyAll();
+  }
+
+  /**
+   * Writes and clears the given buffer.
+   *
+   * @param channel The channel to write to.
+   * @param buffer  The buffer with the bytes to write.
+   * @throws IOException If writing fails.
+   */
+  private static void writeFully(FileChannel channel, ByteBuffer buffer)
+      throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Replays all records of a log file with a sequence number above the given
+   * one. A damaged record at the end of the last log file is the result of a
+   * crash while it was written, so the file is cut off before it.
+   *
+   * @param logFile  The log file to replay.
+   * @param trie     The trie to apply the records to.
+   * @param sequence The sequence number of the last change already applied.
+   * @param last     Weather it is the last log file.
+   * @return The sequence number of the last change applied.
+   * @throws IOException If the log file can not be read or is damaged in the
+   *                     middle.
+   */
+  private static long replay(Path logFile, Trie trie, long sequence,
+      boolean last) throws IOException {
+    long validBytes = 0;
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(logFile)))) {
+      while (true) {
+        int length;
+        try {
+          length = in.readInt();
+        } catch (EOFException e) {
+          if (validBytes == Files.size(logFile)) {
+            // The log ends after a complete record.
+            return sequence;
+          }
+          break;
+        }
+        byte[] record = readRecord(in, length);
+        if (record == null) {
+          break;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        long recordSequence = buffer.getLong();
+        byte operation = buffer.get();
+        int points = buffer.getInt();
+        char[] key = new char[buffer.getInt()];
+        buffer.asCharBuffer().get(key);
+        if (recordSequence > sequence) {
+          if (operation == PUT) {
+            trie.putInt(new String(key), points);
+          } else {
+            trie.remove(new String(key));
+          }
+          sequence = recordSequence;
+        }
+        validBytes += 2 * Integer.BYTES + length;
+      }
+    }
+
+    if (!last) {
+      throw new IOException("write-ahead log is damaged: " + logFile);
+    }
+    try (FileChannel channel = FileChannel.open(logFile,
+        StandardOpenOption.WRITE)) {
+      channel.truncate(validBytes);
+      channel.force(false);
+    }
+    return sequence;
+  }
+
+  /**
+   * Reads the rest of a record after its length and checks its checksum.
+   *
+   * @param in     The stream to read from.
+   * @param length The length of the record.
+   * @return The record without length and checksum or null if it is damaged or
+   * incomplete.
+   * @throws IOException If reading fails.
+   */
+  private static byte[] readRecord(InputStream in, int length)
+      throws IOException {
+    if (length < RECORD_HEADER_BYTES || length > MAX_RECORD_BYTES) {
+      return null;
+    }
+    byte[] record = new byte[length + Integer.BYTES];
+    if (in.readNBytes(record, 0, record.length) != record.length) {
+      return null;
+    }
+    CRC32 checksum = new CRC32();
+    checksum.update(record, Integer.BYTES, length);
+    int expected = ByteBuffer.wrap(record).getInt();
+    if ((int) checksum.getValue() != expected) {
+      return null;
+    }
+    ByteBuffer body = ByteBuffer.wrap(record, Integer.BYTES, length).slice();
+    if (body.getInt(Long.BYTES + Byte.BYTES + Integer.BYTES)
+        != (length - RECORD_HEADER_BYTES) / Character.BYTES) {
+      return null;
+    }
+    byte[] result = new byte[length];
+    body.get(result);
+    return result;
+  }
+
+  /**
+   * Lists all log files in the given directory sorted by the sequence number
+   * of their first record.
+   *
+   * @param directory The directory to look in.
+   * @return The log files in replay order.
+   * @throws IOException If the directory can not be read.
+   */
+  private static List<Path> listLogFiles(Path directory) throws IOException {
+    List<Path> logFiles = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+        LOG_PREFIX + "*" + LOG_SUFFIX)) {
+      for (Path file : files) {
+        logFiles.add(file);
+      }
+    }
+    logFiles.sort((first, second) ->
+        Long.compare(startSequence(first), startSequence(second)));
+    return logFiles;
+  }
+
+  /**
+   * Gets the sequence number of the first record in a log file from its name.
+   *
+   * @param logFile The log file.
+   * @return The sequence number of the first record.
+   */
+  private static long startSequence(Path logFile) {
+    String name = logFile.getFileName().toString();
+    return Long.parseLong(name.substring(LOG_PREFIX.length(),
+        name.length() - LOG_SUFFIX.length()));
+  }
+
+  /**
+   * Creates a new empty log file.
+   *
+   * @param directory     The directory to create the log file in.
+   * @param startSequence The sequence number of the first record.
+   * @return The channel to append to the log file.
+   * @throws IOException If the file can not be created.
+   */
+  private static FileChannel createLogFile(Path directory, long startSequence)
+      throws IOException {
+    FileChannel channel = FileChannel.open(
+        directory.resolve(LOG_PREFIX + startSequence + LOG_SUFFIX),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    channel.position(channel.size());
+    forceDirectory(directory);
+    return channel;
+  }
+
+  /**
+   * Forces the entries of a directory to disk, so created and renamed files
+   * survive a crash. Not every platform supports this, so failures are
+   * ignored.
+   *
+   * @param directory The directory to force.
+   */
+  private static void forceDirectory(Path directory) {
+    try (FileChannel channel = FileChannel.open(directory,
+        StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // Directories can not be opened on every platform.
+    }
+  }
+
+  /**
+   * PendingChange is the latest logged change of a key which is not durable
+   * yet.
+   */
+  private static final class PendingChange {
+
+    private final long sequence;
+    // The new points of the key, NO_POINTS for a removal.
+    private final int points;
+
+    /**
+     * Creates a pending change.
+     *
+     * @param sequence The sequence number of the record of the change.
+     * @param points   The new points of the key, NO_POINTS for a removal.
+     */
+    PendingChange(long sequence, int points) {
+      this.sequence = sequence;
+      this.points = points;
+    }
+  }
+
+}
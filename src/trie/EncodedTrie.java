@@ -0,0 +1,245 @@
+package trie;
+
+import java.nio.CharBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * EncodedTrie is a Trie whose keys are stored in the symbols of a KeyEncoding,
+ * so keys of large alphabets like Unicode can be stored in narrow nodes. The
+ * keys which are passed in and returned are plain strings, they are encoded
+ * and decoded on the way. Keys are ordered as defined by the encoding.
+ * <p>
+ * Like the Trie it is not thread-safe, it also reuses a buffer to encode the
+ * keys of lookups.
+ */
+public class EncodedTrie {
+
+  /**
+   * Returned by the primitive methods if a key has no points, this value can
+   * therefore not be used as points itself.
+   */
+  public static final int NO_POINTS = Node.NO_POINTS;
+
+  private final KeyEncoding encoding;
+  private final Trie trie = new Trie();
+  // The buffer keys are encoded into, it grows with the longest key.
+  private char[] symbols = new char[64];
+
+  /**
+   * Creates an empty trie which stores its keys with the given encoding.
+   *
+   * @param encoding The encoding of the keys.
+   */
+  public EncodedTrie(KeyEncoding encoding) {
+    this.encoding = Objects.requireNonNull(encoding);
+  }
+
+  /**
+   * Gets the encoding the keys are stored with.
+   *
+   * @return The encoding.
+   */
+  public KeyEncoding getEncoding() {
+    return encoding;
+  }
+
+  /**
+   * Adds a key with its points if the key has no points yet.
+   *
+   * @param key    The key for which to store the points.
+   * @param points The points of the key.
+   * @return False if the key has points already, otherwise true.
+   * @see Trie#add(CharSequence, Integer)
+   */
+  public boolean add(CharSequence key, int points) {
+    return trie.putIfAbsentInt(encode(key), points) == NO_POINTS;
+  }
+
+  /**
+   * Sets the points of a key whether it has points or not.
+   *
+   * @param key    The key for which to store the points.
+   * @param points The points of the key.
+   * @return The previous points of the key or null if it had none.
+   * @see Trie#put(CharSequence, Integer)
+   */
+  public Integer put(CharSequence key, int points) {
+    return trie.put(encode(key), points);
+  }
+
+  /**
+   * Changes the points of a key which has points already.
+   *
+   * @param key    The key whose points to change.
+   * @param points The new points of the key.
+   * @return False if the key has no points, otherwise true.
+   * @see Trie#change(CharSequence, Integer)
+   */
+  public boolean change(CharSequence key, int points) {
+    return trie.changeInt(encode(key), points);
+  }
+
+  /**
+   * Removes the points of a key.
+   *
+   * @param key The key whose points to remove.
+   * @return False if the key had no points, otherwise true.
+   * @see Trie#remove(CharSequence)
+   */
+  public boolean remove(CharSequence key) {
+    return trie.remove(encode(key));
+  }
+
+  /**
+   * Gets the points associated with a key.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * null.
+   */
+  public Integer points(CharSequence key) {
+    int points = getInt(key);
+    return points == NO_POINTS ? null : points;
+  }
+
+  /**
+   * Gets the points associated with a key without boxing them.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * NO_POINTS.
+   */
+  public int getInt(CharSequence key) {
+    if (encoding == KeyEncoding.CHARS) {
+      return trie.getInt(key);
+    }
+    int length = encodeToBuffer(key);
+    return trie.getInt(symbols, 0, length);
+  }
+
+  /**
+   * Lazily streams all keys which start with the given prefix together with
+   * their points in the order of the encoding.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The stream of key to points entries.
+   * @see Trie#prefixScan(CharSequence)
+   */
+  public Stream<Map.Entry<String, Integer>> prefixScan(CharSequence prefix) {
+    return trie.prefixScan(encode(prefix).toString()).map(this::decode);
+  }
+
+  /**
+   * Finds the k keys with the highest points which start with the given
+   * prefix.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @param k      The maximum amount of keys to return.
+   * @return The entries sorted by their points from high to low, keys with
+   * equal points are sorted in the order of the encoding.
+   * @throws IllegalArgumentException If k is negative.
+   * @see Trie#topK(CharSequence, int)
+   */
+  public List<Map.Entry<String, Integer>> topK(CharSequence prefix, int k) {
+    return trie.topK(encode(prefix), k).stream().map(this::decode)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Gets the amount of keys which start with the given prefix.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The amount of keys.
+   */
+  public int count(CharSequence prefix) {
+    return trie.count(encode(prefix));
+  }
+
+  /**
+   * Gets the sum of the points of all keys which start with the given prefix.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The sum of the points, 0 if there are no such keys.
+   */
+  public long sum(CharSequence prefix) {
+    return trie.sum(encode(prefix));
+  }
+
+  /**
+   * Gets the lowest points of all keys which start with the given prefix.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The lowest points or null if there are no such keys.
+   */
+  public Integer min(CharSequence prefix) {
+    return trie.min(encode(prefix));
+  }
+
+  /**
+   * Gets the highest points of all keys which start with the given prefix.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The highest points or null if there are no such keys.
+   */
+  public Integer max(CharSequence prefix) {
+    return trie.max(encode(prefix));
+  }
+
+  /**
+   * Walks the whole trie to describe its structure, e.g. to compare how many
+   * nodes and how much memory the encodings need for the same keys.
+   *
+   * @return The statistics of the trie of encoded keys.
+   * @see Trie#statistics()
+   */
+  public TrieStatistics statistics() {
+    return trie.statistics();
+  }
+
+  /**
+   * Encodes a key into the buffer, growing it if needed.
+   *
+   * @param key The key to encode.
+   * @return The amount of symbols.
+   */
+  private int encodeToBuffer(CharSequence key) {
+    int maxLength = encoding.maxLength(key.length());
+    if (maxLength > symbols.length) {
+      symbols = new char[Math.max(maxLength, symbols.length * 2)];
+    }
+    return encoding.encode(key, symbols);
+  }
+
+  /**
+   * Encodes a key for the trie. The result is a view into the buffer, so it is
+   * only valid until the next key is encoded.
+   *
+   * @param key The key to encode.
+   * @return The encoded key.
+   */
+  private CharSequence encode(CharSequence key) {
+    if (encoding == KeyEncoding.CHARS) {
+      return key;
+    }
+    int length = encodeToBuffer(key);
+    return CharBuffer.wrap(symbols, 0, length);
+  }
+
+  /**
+   * Decodes the key of an entry of the trie.
+   *
+   * @param entry The entry with the encoded key.
+   * @return The entry with the decoded key.
+   */
+  private Map.Entry<String, Integer> decode(Map.Entry<String, Integer> entry) {
+    if (encoding == KeyEncoding.CHARS) {
+      return entry;
+    }
+    return Map.entry(encoding.decode(entry.getKey()), entry.getValue());
+  }
+
+}
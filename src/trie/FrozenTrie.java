@@ -0,0 +1,444 @@
+package trie;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * FrozenTrie is an immutable copy of a trie in a succinct layout, made for
+ * tries which are only read once they are loaded, see Trie#freeze(). It takes
+ * a few bytes per node instead of a Node object with its arrays:
+ * <ul>
+ *   <li>The shape is stored as LOUDS bits (level-order unary degree
+ *   sequence): the nodes are numbered in breadth-first order starting with the
+ *   root as 0, and every node writes a one per child followed by a zero. The
+ *   children of node i follow the (i - 1)-th zero, so they are found by a
+ *   select over the bits.</li>
+ *   <li>The character of node i is labels[i - 1], the children of a node have
+ *   consecutive numbers and sorted labels, so a child is binary searched.</li>
+ *   <li>A bit per node marks the nodes with points, the rank of a node among
+ *   them is the index of its points in a bit packed array, which uses just as
+ *   many bits per value as the range of the points needs.</li>
+ * </ul>
+ * All methods are thread-safe as nothing changes after the creation.
+ */
+public final class FrozenTrie {
+
+  /**
+   * Returned by the primitive methods if a key has no points, this value can
+   * therefore not be used as points itself.
+   */
+  public static final int NO_POINTS = Node.NO_POINTS;
+
+  // The header and fields of a frozen trie without its arrays.
+  private static final int OBJECT_BYTES = 40;
+
+  private final BitVector louds;
+  private final char[] labels;
+  private final BitVector hasPoints;
+  private final long[] packedPoints;
+  private final int pointsBits;
+  // The lowest points, the packed values are stored relative to it.
+  private final int minPoints;
+  private final int keyCount;
+
+  /**
+   * Creates the frozen trie from its parts.
+   *
+   * @param louds        The LOUDS bits of the shape.
+   * @param labels       The characters of all nodes but the root.
+   * @param hasPoints    The bit of every node which marks if it has points.
+   * @param packedPoints The packed points of the nodes with points.
+   * @param pointsBits   The bits per packed points.
+   * @param minPoints    The lowest points.
+   * @param keyCount     The amount of keys.
+   */
+  private FrozenTrie(BitVector louds, char[] labels, BitVector hasPoints,
+      long[] packedPoints, int pointsBits, int minPoints, int keyCount) {
+    this.louds = louds;
+    this.labels = labels;
+    this.hasPoints = hasPoints;
+    this.packedPoints = packedPoints;
+    this.pointsBits = pointsBits;
+    this.minPoints = minPoints;
+    this.keyCount = keyCount;
+  }
+
+  /**
+   * Copies all nodes below the given root in breadth-first order.
+   *
+   * @param root The root node of the trie.
+   * @return The frozen trie.
+   */
+  static FrozenTrie of(Node root) {
+    // The nodes in breadth-first order, which is also the queue of the walk.
+    Node[] nodes = new Node[16];
+    nodes[0] = root;
+    int nodeCount = 1;
+    long[] shape = new long[4];
+    int shapeSize = 0;
+    for (int i = 0; i < nodeCount; i++) {
+      Node node = nodes[i];
+      for (Node child = node.getFirstChild(); child != null;
+          child = node.getNextChild(child.getCharacter())) {
+        if (nodeCount == nodes.length) {
+          nodes = Arrays.copyOf(nodes, nodeCount * 2);
+        }
+        nodes[nodeCount++] = child;
+        shape = setBit(shape, shapeSize++);
+      }
+      // The zero which ends the children of the node.
+      shape = ensureBits(shape, ++shapeSize);
+    }
+
+    char[] labels = new char[nodeCount - 1];
+    long[] marks = new long[(nodeCount + 63) >>> 6];
+    int keyCount = 0;
+    int minPoints = Integer.MAX_VALUE;
+    int maxPoints = Integer.MIN_VALUE;
+    for (int i = 0; i < nodeCount; i++) {
+      if (i > 0) {
+        labels[i - 1] = nodes[i].getCharacter();
+      }
+      if (nodes[i].hasPoints()) {
+        marks[i >>> 6] |= 1L << i;
+        keyCount++;
+        minPoints = Math.min(minPoints, nodes[i].getPoints());
+        maxPoints = Math.max(maxPoints, nodes[i].getPoints());
+      }
+    }
+
+    int pointsBits = keyCount == 0 ? 0 : Long.SIZE
+        - Long.numberOfLeadingZeros((long) maxPoints - minPoints);
+    long[] packedPoints =
+        new long[(int) (((long) keyCount * pointsBits + 63) >>> 6) + 1];
+    int key = 0;
+    for (int i = 0; i < nodeCount; i++) {
+      if (nodes[i].hasPoints()) {
+        pack(packedPoints, key++, pointsBits,
+            (long) nodes[i].getPoints() - minPoints);
+      }
+    }
+    return new FrozenTrie(new BitVector(shape, shapeSize), labels,
+        new BitVector(marks, nodeCount), packedPoints, pointsBits, minPoints,
+        keyCount);
+  }
+
+  /**
+   * Gets the points associated with a key.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * null.
+   */
+  public Integer points(CharSequence key) {
+    int points = getInt(key);
+    return points == NO_POINTS ? null : points;
+  }
+
+  /**
+   * Gets the points associated with a key without boxing them.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * NO_POINTS.
+   */
+  public int getInt(CharSequence key) {
+    int node = find(key);
+    return node < 0 ? NO_POINTS : pointsOf(node);
+  }
+
+  /**
+   * Gets the amount of keys in the trie.
+   *
+   * @return The amount of keys.
+   */
+  public int size() {
+    return keyCount;
+  }
+
+  /**
+   * Gets the amount of keys which start with the given prefix. The nodes of a
+   * subtree which have the same depth have consecutive numbers, so it takes
+   * two selects and two ranks per level of the subtree.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The amount of keys.
+   */
+  public int count(CharSequence prefix) {
+    int node = find(prefix);
+    if (node < 0) {
+      return 0;
+    }
+    int count = 0;
+    int first = node;
+    int last = node;
+    while (first <= last) {
+      count += hasPoints.rank1(last + 1) - hasPoints.rank1(first);
+      first = childrenStart(first) - first + 1;
+      last = louds.select0(last) - last;
+    }
+    return count;
+  }
+
+  /**
+   * Lazily streams all keys which start with the given prefix together with
+   * their points in lexicographic order.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The stream of key to points entries.
+   */
+  public Stream<Map.Entry<String, Integer>> prefixScan(CharSequence prefix) {
+    EntryIterator iterator = new EntryIterator(find(prefix), prefix);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+        Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+        false);
+  }
+
+  /**
+   * Estimates the bytes the frozen trie takes on the heap, to compare it with
+   * TrieStatistics#getEstimatedBytes() of the mutable trie.
+   *
+   * @return The estimated size in bytes.
+   */
+  public long estimateBytes() {
+    return OBJECT_BYTES + louds.estimateBytes()
+        + Node.alignedArrayBytes(labels.length, Character.BYTES)
+        + hasPoints.estimateBytes()
+        + Node.alignedArrayBytes(packedPoints.length, Long.BYTES);
+  }
+
+  /**
+   * Shows the size of the frozen trie, e.g. for logging.
+   *
+   * @return The string representation of the frozen trie.
+   */
+  @Override
+  public String toString() {
+    return "FrozenTrie{keys=" + keyCount + ", nodes=" + (labels.length + 1)
+        + ", estimatedBytes=" + estimateBytes() + "}";
+  }
+
+  /**
+   * Finds the node of a key.
+   *
+   * @param key The key.
+   * @return The number of the node or -1 if there is no node for the key.
+   */
+  private int find(CharSequence key) {
+    int node = 0;
+    for (int i = 0; i < key.length(); i++) {
+      int start = childrenStart(node);
+      int end = louds.nextZero(start);
+      // The labels of the children are at the numbers of the children - 1.
+      int firstLabel = start - node;
+      int label = Arrays.binarySearch(labels, firstLabel,
+          firstLabel + end - start, key.charAt(i));
+      if (label < 0) {
+        return -1;
+      }
+      node = label + 1;
+    }
+    return node;
+  }
+
+  /**
+   * Gets the position of the first child bit of a node in the LOUDS bits,
+   * which is the position of its zero if it has no children.
+   *
+   * @param node The number of the node.
+   * @return The position after the zero of the previous node.
+   */
+  private int childrenStart(int node) {
+    return node == 0 ? 0 : louds.select0(node - 1) + 1;
+  }
+
+  /**
+   * Gets the points of a node.
+   *
+   * @param node The number of the node.
+   * @return The points or NO_POINTS.
+   */
+  private int pointsOf(int node) {
+    if (!hasPoints.get(node)) {
+      return NO_POINTS;
+    }
+    return (int) (unpack(hasPoints.rank1(node)) + minPoints);
+  }
+
+  /**
+   * Reads a value from the bit packed points.
+   *
+   * @param index The index of the value.
+   * @return The value relative to the lowest points.
+   */
+  private long unpack(int index) {
+    if (pointsBits == 0) {
+      return 0;
+    }
+    long bit = (long) index * pointsBits;
+    int word = (int) (bit >>> 6);
+    int offset = (int) (bit & 63);
+    long value = packedPoints[word] >>> offset;
+    if (offset + pointsBits > Long.SIZE) {
+      value |= packedPoints[word + 1] << (Long.SIZE - offset);
+    }
+    return value & ((1L << pointsBits) - 1);
+  }
+
+  /**
+   * Writes a value into bit packed words.
+   *
+   * @param words The words, the value must fit.
+   * @param index The index of the value.
+   * @param bits  The bits per value.
+   * @param value The value.
+   */
+  private static void pack(long[] words, int index, int bits, long value) {
+    if (bits == 0) {
+      return;
+    }
+    long bit = (long) index * bits;
+    int word = (int) (bit >>> 6);
+    int offset = (int) (bit & 63);
+    words[word] |= value << offset;
+    if (offset + bits > Long.SIZE) {
+      words[word + 1] |= value >>> (Long.SIZE - offset);
+    }
+  }
+
+  /**
+   * Sets a bit, growing the words if needed.
+   *
+   * @param words The words.
+   * @param index The index of the bit.
+   * @return The words, a larger copy if they had to grow.
+   */
+  private static long[] setBit(long[] words, int index) {
+    words = ensureBits(words, index + 1);
+    words[index >>> 6] |= 1L << index;
+    return words;
+  }
+
+  /**
+   * Makes sure the words can hold the given amount of bits.
+   *
+   * @param words The words.
+   * @param bits  The amount of bits.
+   * @return The words, a larger copy if they had to grow.
+   */
+  private static long[] ensureBits(long[] words, int bits) {
+    int length = (bits + 63) >>> 6;
+    if (length > words.length) {
+      return Arrays.copyOf(words, Math.max(length, words.length * 2));
+    }
+    return words;
+  }
+
+  /**
+   * EntryIterator lazily walks over all keys with points below a start node in
+   * lexicographic order like the TrieEntryIterator, keeping the range of the
+   * children which are left to visit for every node on the current path.
+   */
+  private final class EntryIterator
+      implements Iterator<Map.Entry<String, Integer>> {
+
+    // The current key, the prefix of the start node plus one char per level.
+    private final StringBuilder key;
+    /*
+     For every node on the current path, the next child to visit and the end
+     of its children, the start node is at depth 0.
+    */
+    private int[] nextChildren = new int[16];
+    private int[] childrenEnds = new int[16];
+    // The depth of the current node, -1 once the iteration is exhausted.
+    private int depth;
+    // The entry which is returned by the next call of next(), if any.
+    private Map.Entry<String, Integer> nextEntry;
+
+    /**
+     * Creates an iterator over the start node and all nodes below it.
+     *
+     * @param start  The node to start at, -1 for an empty iteration.
+     * @param prefix The key of the start node.
+     */
+    EntryIterator(int start, CharSequence prefix) {
+      key = new StringBuilder(prefix);
+      if (start < 0) {
+        depth = -1;
+        return;
+      }
+      depth = -1;
+      push(start);
+      int points = pointsOf(start);
+      if (points != NO_POINTS) {
+        nextEntry = Map.entry(key.toString(), points);
+      } else {
+        nextEntry = findNextEntry();
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextEntry != null;
+    }
+
+    @Override
+    public Map.Entry<String, Integer> next() {
+      if (nextEntry == null) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<String, Integer> entry = nextEntry;
+      nextEntry = findNextEntry();
+      return entry;
+    }
+
+    /**
+     * Moves on in pre-order until the next node with points is reached.
+     *
+     * @return The entry of the next node with points or null if there is none.
+     */
+    private Map.Entry<String, Integer> findNextEntry() {
+      while (depth >= 0) {
+        if (nextChildren[depth] < childrenEnds[depth]) {
+          int child = nextChildren[depth]++;
+          key.append(labels[child - 1]);
+          push(child);
+          int points = pointsOf(child);
+          if (points != NO_POINTS) {
+            return Map.entry(key.toString(), points);
+          }
+        } else {
+          // All children are visited, go back to the parent.
+          if (depth > 0) {
+            key.setLength(key.length() - 1);
+          }
+          depth--;
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Makes the given node the current node.
+     *
+     * @param node The number of the node.
+     */
+    private void push(int node) {
+      depth++;
+      if (depth == nextChildren.length) {
+        nextChildren = Arrays.copyOf(nextChildren, depth * 2);
+        childrenEnds = Arrays.copyOf(childrenEnds, depth * 2);
+      }
+      int start = childrenStart(node);
+      nextChildren[depth] = start - node + 1;
+      childrenEnds[depth] = louds.nextZero(start) - node + 1;
+    }
+  }
+
+}
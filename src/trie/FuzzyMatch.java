@@ -0,0 +1,80 @@
+package trie;
+
+import java.util.Objects;
+
+/**
+ * FuzzyMatch is a key found by Trie#fuzzySearch(CharSequence, int) together
+ * with its points and its edit distance to the searched key.
+ */
+public final class FuzzyMatch {
+
+  private final String key;
+  private final int points;
+  private final int distance;
+
+  /**
+   * Creates a new match.
+   *
+   * @param key      The key in the trie.
+   * @param points   The points of the key.
+   * @param distance The edit distance between the key and the searched key.
+   */
+  FuzzyMatch(String key, int points, int distance) {
+    this.key = key;
+    this.points = points;
+    this.distance = distance;
+  }
+
+  /**
+   * Gets the key in the trie.
+   *
+   * @return The key.
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * Gets the points of the key.
+   *
+   * @return The points.
+   */
+  public int getPoints() {
+    return points;
+  }
+
+  /**
+   * Gets the Levenshtein distance between the key and the searched key, the
+   * least amount of inserted, removed or replaced characters which turns one
+   * into the other.
+   *
+   * @return The edit distance.
+   */
+  public int getDistance() {
+    return distance;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof FuzzyMatch)) {
+      return false;
+    }
+    FuzzyMatch other = (FuzzyMatch) o;
+    return points == other.points && distance == other.distance
+        && key.equals(other.key);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(key, points, distance);
+  }
+
+  @Override
+  public String toString() {
+    return key + "=" + points + " (distance " + distance + ")";
+  }
+
+}
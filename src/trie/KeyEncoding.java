@@ -0,0 +1,225 @@
+package trie;
+
+/**
+ * KeyEncoding turns the characters of a key into the symbols which are stored
+ * in the nodes of an EncodedTrie. Every node has one child per symbol which
+ * follows it, so the encoding decides how wide the nodes of a trie can get:
+ * <ul>
+ *   <li>CHARS stores the characters as they are, which suits small alphabets
+ *   like a-z best, as their nodes keep a slot for every character.</li>
+ *   <li>UTF8 stores the UTF-8 bytes of the characters, so a node has at most
+ *   256 children however large the alphabet is. Characters beyond ASCII take
+ *   two to four nodes each.</li>
+ *   <li>NIBBLES splits every UTF-8 byte into its high and low four bits, so a
+ *   node has at most 16 children and always fits into a dense array, at the
+ *   cost of twice as many nodes as UTF8.</li>
+ * </ul>
+ * Keys are ordered by their symbols, which is the order of String for CHARS
+ * and the order of the code points for UTF8 and NIBBLES.
+ * <p>
+ * Every symbol costs a step down the trie, so lookups are usually fastest with
+ * CHARS, whose wide nodes are searched binary. UTF8 and NIBBLES bound the
+ * width of the nodes at the cost of longer paths, which pays off where every
+ * node has to have a slot for every symbol.
+ */
+public enum KeyEncoding {
+
+  CHARS {
+    @Override
+    int maxLength(int length) {
+      return length;
+    }
+
+    @Override
+    int encode(CharSequence key, char[] symbols) {
+      for (int i = 0; i < key.length(); i++) {
+        symbols[i] = key.charAt(i);
+      }
+      return key.length();
+    }
+
+    @Override
+    String decode(CharSequence symbols) {
+      return symbols.toString();
+    }
+  },
+
+  UTF8 {
+    @Override
+    int maxLength(int length) {
+      return length * MAX_BYTES_PER_CHAR;
+    }
+
+    @Override
+    int encode(CharSequence key, char[] symbols) {
+      return encodeUtf8(key, symbols, false);
+    }
+
+    @Override
+    String decode(CharSequence symbols) {
+      return decodeUtf8(symbols, false);
+    }
+  },
+
+  NIBBLES {
+    @Override
+    int maxLength(int length) {
+      return length * MAX_BYTES_PER_CHAR * 2;
+    }
+
+    @Override
+    int encode(CharSequence key, char[] symbols) {
+      return encodeUtf8(key, symbols, true);
+    }
+
+    @Override
+    String decode(CharSequence symbols) {
+      return decodeUtf8(symbols, true);
+    }
+  };
+
+  /*
+   A char takes at most three bytes, only a surrogate pair takes four bytes
+   for its two chars.
+  */
+  private static final int MAX_BYTES_PER_CHAR = 3;
+
+  /**
+   * Gets the maximum amount of symbols a key can be encoded into.
+   *
+   * @param length The length of the key.
+   * @return The maximum amount of symbols.
+   */
+  abstract int maxLength(int length);
+
+  /**
+   * Encodes a key into its symbols.
+   *
+   * @param key     The key to encode.
+   * @param symbols The array to write the symbols to, it has to have at least
+   *                maxLength(key.length()) elements.
+   * @return The amount of symbols.
+   */
+  abstract int encode(CharSequence key, char[] symbols);
+
+  /**
+   * Decodes the symbols of a key which were encoded with this encoding.
+   *
+   * @param symbols The symbols of the key.
+   * @return The key.
+   */
+  abstract String decode(CharSequence symbols);
+
+  /**
+   * Encodes a key into its UTF-8 bytes. A surrogate pair is encoded as the
+   * four bytes of its code point, a lone surrogate as the three bytes of its
+   * char, so every key has its own encoding and decodes to itself.
+   *
+   * @param key     The key to encode.
+   * @param symbols The array to write the bytes to.
+   * @param nibbles Weather every byte is split into two symbols of four bits.
+   * @return The amount of symbols.
+   */
+  private static int encodeUtf8(CharSequence key, char[] symbols,
+      boolean nibbles) {
+    int length = 0;
+    for (int i = 0; i < key.length(); i++) {
+      char ch = key.charAt(i);
+      if (ch < 0x80) {
+        length = putByte(symbols, length, ch, nibbles);
+      } else if (ch < 0x800) {
+        length = putByte(symbols, length, 0xC0 | ch >> 6, nibbles);
+        length = putByte(symbols, length, 0x80 | ch & 0x3F, nibbles);
+      } else if (Character.isHighSurrogate(ch) && i + 1 < key.length()
+          && Character.isLowSurrogate(key.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(ch, key.charAt(++i));
+        length = putByte(symbols, length, 0xF0 | codePoint >> 18, nibbles);
+        length =
+            putByte(symbols, length, 0x80 | codePoint >> 12 & 0x3F, nibbles);
+        length =
+            putByte(symbols, length, 0x80 | codePoint >> 6 & 0x3F, nibbles);
+        length = putByte(symbols, length, 0x80 | codePoint & 0x3F, nibbles);
+      } else {
+        length = putByte(symbols, length, 0xE0 | ch >> 12, nibbles);
+        length = putByte(symbols, length, 0x80 | ch >> 6 & 0x3F, nibbles);
+        length = putByte(symbols, length, 0x80 | ch & 0x3F, nibbles);
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Writes a byte as one symbol or as two symbols of four bits.
+   *
+   * @param symbols The array to write the byte to.
+   * @param length  The amount of symbols written so far.
+   * @param value   The byte.
+   * @param nibbles Weather the byte is split into two symbols.
+   * @return The amount of symbols written afterwards.
+   */
+  private static int putByte(char[] symbols, int length, int value,
+      boolean nibbles) {
+    if (nibbles) {
+      symbols[length] = (char) (value >> 4);
+      symbols[length + 1] = (char) (value & 0xF);
+      return length + 2;
+    }
+    symbols[length] = (char) value;
+    return length + 1;
+  }
+
+  /**
+   * Decodes a key from its UTF-8 bytes as they are written by
+   * KeyEncoding#encodeUtf8(CharSequence, char[], boolean).
+   *
+   * @param symbols The symbols of the key.
+   * @param nibbles Weather every byte was split into two symbols.
+   * @return The key.
+   */
+  private static String decodeUtf8(CharSequence symbols, boolean nibbles) {
+    int width = nibbles ? 2 : 1;
+    StringBuilder key = new StringBuilder(symbols.length() / width);
+    int i = 0;
+    while (i < symbols.length()) {
+      int first = getByte(symbols, i, nibbles);
+      int length;
+      int value;
+      if (first < 0x80) {
+        length = 1;
+        value = first;
+      } else if (first < 0xE0) {
+        length = 2;
+        value = first & 0x1F;
+      } else if (first < 0xF0) {
+        length = 3;
+        value = first & 0x0F;
+      } else {
+        length = 4;
+        value = first & 0x07;
+      }
+      for (int j = 1; j < length; j++) {
+        value = value << 6 | getByte(symbols, i + j * width, nibbles) & 0x3F;
+      }
+      key.appendCodePoint(value);
+      i += length * width;
+    }
+    return key.toString();
+  }
+
+  /**
+   * Reads a byte which is one symbol or two symbols of four bits.
+   *
+   * @param symbols The symbols of the key.
+   * @param index   The index of the first symbol of the byte.
+   * @param nibbles Weather the byte is split into two symbols.
+   * @return The byte between 0 and 255.
+   */
+  private static int getByte(CharSequence symbols, int index,
+      boolean nibbles) {
+    if (nibbles) {
+      return symbols.charAt(index) << 4 | symbols.charAt(index + 1);
+    }
+    return symbols.charAt(index);
+  }
+
+}
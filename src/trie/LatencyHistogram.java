@@ -0,0 +1,121 @@
+package trie;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram counts latencies in buckets whose width grows with the
+ * value, like an HdrHistogram: every power of two is split into 16 buckets,
+ * so a recorded value is known with a relative error below 6.25% while the
+ * whole range of long values fits into 960 buckets. Values are recorded by
+ * one thread and can be read by any other thread.
+ */
+final class LatencyHistogram {
+
+  // Every power of two is split into 2^SUB_BUCKET_BITS buckets.
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  /*
+   Values below SUB_BUCKETS have a bucket each, the powers of two from
+   SUB_BUCKET_BITS to 62 have SUB_BUCKETS buckets each.
+  */
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  /**
+   * Records a single value.
+   *
+   * @param value The value, negative values are counted as 0.
+   */
+  void record(long value) {
+    counts.incrementAndGet(bucketOf(Math.max(value, 0)));
+  }
+
+  /**
+   * Gets the amount of recorded values.
+   *
+   * @return The amount of values.
+   */
+  long count() {
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      count += counts.get(i);
+    }
+    return count;
+  }
+
+  /**
+   * Gets the value which the given percentage of all recorded values does not
+   * exceed, rounded up to the highest value of its bucket.
+   *
+   * @param percentile The percentage between 0 and 100.
+   * @return The value or 0 if nothing was recorded.
+   */
+  long percentile(double percentile) {
+    long[] snapshot = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      count += snapshot[i];
+    }
+    if (count == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return highestValueOf(i);
+      }
+    }
+    return highestValueOf(BUCKETS - 1);
+  }
+
+  /**
+   * Removes all recorded values.
+   */
+  void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+  }
+
+  /**
+   * Calculates the bucket of a value.
+   *
+   * @param value The value, which is not negative.
+   * @return The index of the bucket.
+   */
+  private static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    /*
+     The leading one bit selects the power of two, the following bits the
+     bucket within it. The buckets of 2^SUB_BUCKET_BITS follow directly after
+     the exact buckets of the small values.
+    */
+    return (shift + 1) * SUB_BUCKETS
+        + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  /**
+   * Calculates the highest value which falls into a bucket.
+   *
+   * @param bucket The index of the bucket.
+   * @return The highest value of the bucket.
+   */
+  private static long highestValueOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+}
@@ -0,0 +1,358 @@
+package trie;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+
+/**
+ * MappedTrie is a read-only trie which answers queries straight from a memory
+ * mapped trie file as written by the TrieFile. Opening it only checks the
+ * header, no node is read into the heap, so the operating system loads just
+ * the pages which are actually touched by the queries.
+ *
+ * @see TrieFile
+ */
+public final class MappedTrie {
+
+  /**
+   * Returned by the primitive methods if a key has no points.
+   */
+  public static final int NO_POINTS = Node.NO_POINTS;
+
+  private final ByteBuffer buffer;
+  private final int nodeCount;
+  private final long sequence;
+  // The byte offsets of the columns in the file.
+  private final int firstChildrenOffset;
+  private final int pointsOffset;
+  private final int labelsOffset;
+
+  /**
+   * Creates a trie on top of the given mapped file.
+   *
+   * @param buffer    The mapped file.
+   * @param nodeCount The amount of nodes in the file.
+   * @param sequence  The sequence number of the file.
+   */
+  private MappedTrie(ByteBuffer buffer, int nodeCount, long sequence) {
+    this.buffer = buffer;
+    this.nodeCount = nodeCount;
+    this.sequence = sequence;
+    firstChildrenOffset = TrieFile.HEADER_BYTES;
+    pointsOffset = firstChildrenOffset + (nodeCount + 1) * Integer.BYTES;
+    labelsOffset = pointsOffset + nodeCount * Integer.BYTES;
+  }
+
+  /**
+   * Maps the given trie file into memory. Only the header and the size of the
+   * file are checked, use verify() to check the checksum as well.
+   *
+   * @param file The trie file to open.
+   * @return The trie which reads from the mapped file.
+   * @throws IOException If the file can not be read, is no valid trie file or
+   *                     is too large to be mapped at once.
+   */
+  public static MappedTrie open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < TrieFile.HEADER_BYTES) {
+        throw new IOException("not a trie file: " + file);
+      }
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("trie file is too large to be mapped: " + file);
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+          size);
+
+      if (buffer.getInt(0) != TrieFile.MAGIC) {
+        throw new IOException("not a trie file: " + file);
+      }
+      int version = buffer.getInt(Integer.BYTES);
+      if (version != TrieFile.VERSION) {
+        throw new IOException("unsupported trie file version " + version);
+      }
+      int nodeCount = buffer.getInt(TrieFile.NODE_COUNT_POSITION);
+      if (nodeCount < 1 || TrieFile.fileBytes(nodeCount) != size) {
+        throw new IOException("trie file is truncated or corrupt: " + file);
+      }
+      return new MappedTrie(buffer, nodeCount,
+          buffer.getLong(TrieFile.SEQUENCE_POSITION));
+    }
+  }
+
+  /**
+   * Checks the columns of the file against the checksum in the header. This
+   * reads the whole file once.
+   *
+   * @throws IOException If the checksum does not match.
+   */
+  public void verify() throws IOException {
+    CRC32 checksum = new CRC32();
+    checksum.update(buffer.duplicate().position(TrieFile.HEADER_BYTES));
+    if ((int) checksum.getValue() != buffer.getInt(TrieFile.CHECKSUM_POSITION)) {
+      throw new IOException("trie file checksum does not match");
+    }
+  }
+
+  /**
+   * Gets the sequence number which was stored when the file was written.
+   *
+   * @return The sequence number of the file.
+   */
+  public long sequence() {
+    return sequence;
+  }
+
+  /**
+   * Gets the amount of nodes in the file, including the root.
+   *
+   * @return The amount of nodes.
+   */
+  public int nodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Gets the points associated with a key.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * NO_POINTS.
+   */
+  public int getInt(CharSequence key) {
+    int node = find(key);
+    if (node < 0) {
+      return NO_POINTS;
+    }
+    return pointsOf(node);
+  }
+
+  /**
+   * Gets the points associated with a key.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * null.
+   */
+  public Integer points(CharSequence key) {
+    int points = getInt(key);
+    if (points == NO_POINTS) {
+      return null;
+    }
+    return points;
+  }
+
+  /**
+   * Lazily streams all keys which start with the given prefix together with
+   * their points in lexicographic order.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The stream of key to points entries.
+   */
+  public Stream<Map.Entry<String, Integer>> prefixScan(CharSequence prefix) {
+    EntryIterator iterator = new EntryIterator(find(prefix), prefix);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+        Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+        false);
+  }
+
+  /**
+   * Finds the node which holds the value for the last letter in the key.
+   *
+   * @param key The key for which to look for.
+   * @return The index of the found node or -1 if it does not exist.
+   */
+  private int find(CharSequence key) {
+    int node = 0;
+    for (int i = 0; i < key.length() && node >= 0; i++) {
+      node = findChild(node, key.charAt(i));
+    }
+    return node;
+  }
+
+  /**
+   * Binary searches the children of a node, which are sorted by character.
+   *
+   * @param node The index of the parent node.
+   * @param ch   The character of the child.
+   * @return The index of the child or -1 if it does not exist.
+   */
+  private int findChild(int node, char ch) {
+    int low = firstChild(node);
+    int high = firstChild(node + 1) - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      char label = labelOf(middle);
+      if (label < ch) {
+        low = middle + 1;
+      } else if (label > ch) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the index of the first child of a node. The first child of the next
+   * node marks the end of the children.
+   *
+   * @param node The index of the node, might be nodeCount for the end.
+   * @return The index of the first child.
+   */
+  private int firstChild(int node) {
+    return buffer.getInt(firstChildrenOffset + node * Integer.BYTES);
+  }
+
+  /**
+   * Gets the points of a node.
+   *
+   * @param node The index of the node.
+   * @return The points or NO_POINTS.
+   */
+  private int pointsOf(int node) {
+    return buffer.getInt(pointsOffset + node * Integer.BYTES);
+  }
+
+  /**
+   * Gets the character of a node.
+   *
+   * @param node The index of the node.
+   * @return The character of the node.
+   */
+  private char labelOf(int node) {
+    return buffer.getChar(labelsOffset + node * Character.BYTES);
+  }
+
+  /**
+   * EntryIterator walks over all keys with points below a start node in
+   * lexicographic order. Children of a node are stored next to each other, so
+   * the next sibling of a node is simply the next index until the first child
+   * of the parent's successor is reached.
+   */
+  private final class EntryIterator
+      implements Iterator<Map.Entry<String, Integer>> {
+
+    // The current key, the prefix of the start node plus one char per level.
+    private final StringBuilder key;
+    // The node indexes of the current path, stack[0] is the start node.
+    private int[] stack = new int[16];
+    // The depth of the current node, -1 once the iteration is exhausted.
+    private int depth;
+    // The entry which is returned by the next call of next(), if any.
+    private Map.Entry<String, Integer> nextEntry;
+
+    /**
+     * Creates an iterator over the start node and all nodes below it.
+     *
+     * @param start  The index of the node to start at, -1 for an empty
+     *               iteration.
+     * @param prefix The key of the start node.
+     */
+    private EntryIterator(int start, CharSequence prefix) {
+      key = new StringBuilder(prefix);
+      if (start < 0) {
+        depth = -1;
+        return;
+      }
+      stack[0] = start;
+      depth = 0;
+      int points = pointsOf(start);
+      if (points != NO_POINTS) {
+        nextEntry = Map.entry(key.toString(), points);
+      } else {
+        nextEntry = findNextEntry();
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextEntry != null;
+    }
+
+    @Override
+    public Map.Entry<String, Integer> next() {
+      if (nextEntry == null) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<String, Integer> entry = nextEntry;
+      nextEntry = findNextEntry();
+      return entry;
+    }
+
+    /**
+     * Moves on until the next node with points is reached.
+     *
+     * @return The entry of the next node with points or null if there is none.
+     */
+    private Map.Entry<String, Integer> findNextEntry() {
+      while (moveToNextNode()) {
+        int points = pointsOf(stack[depth]);
+        if (points != NO_POINTS) {
+          return Map.entry(key.toString(), points);
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Moves to the next node in pre-order, which is the first child of the
+     * current node or otherwise the next sibling of the closest node on the
+     * path which has one.
+     *
+     * @return Weather there is a next node, false once the iteration is done.
+     */
+    private boolean moveToNextNode() {
+      if (depth < 0) {
+        return false;
+      }
+
+      int node = stack[depth];
+      if (firstChild(node) < firstChild(node + 1)) {
+        push(firstChild(node));
+        return true;
+      }
+
+      while (depth > 0) {
+        int sibling = stack[depth] + 1;
+        boolean hasSibling = sibling < firstChild(stack[depth - 1] + 1);
+        key.setLength(key.length() - 1);
+        depth--;
+        if (hasSibling) {
+          push(sibling);
+          return true;
+        }
+      }
+      depth = -1;
+      return false;
+    }
+
+    /**
+     * Makes the given child of the current node the current node.
+     *
+     * @param child The index of the child to descend to.
+     */
+    private void push(int child) {
+      depth++;
+      if (depth == stack.length) {
+        stack = Arrays.copyOf(stack, stack.length * 2);
+      }
+      stack[depth] = child;
+      key.append(labelOf(child));
+    }
+  }
+
+}
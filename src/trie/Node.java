@@ -1,5 +1,9 @@
 package trie;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
 /**
  * Node is the representation of a single node with an assigned character
  * which either holds a points value itself or is just the link to another
@@ -7,85 +11,394 @@ package trie;
  */
 public class Node {
 
+  /**
+   * Sentinel for the points of nodes which have no points assigned, this value
+   * can therefore not be used as points itself.
+   */
+  public static final int NO_POINTS = Integer.MIN_VALUE;
+
+  /*
+   The maximum amount of children which are kept in the sorted sparse arrays,
+   a node with more children switches to the dense array with one slot per
+   character if they are close enough to each other.
+  */
+  private static final int SPARSE_CHILDREN_LIMIT = 8;
+  /*
+   The widest range of characters which is kept in a dense array, enough for
+   the letters a-z. Children which spread over more characters, e.g. of a
+   large alphabet, stay in the sparse arrays, so a node never has a slot for
+   every character of the alphabet.
+  */
+  private static final int DENSE_RANGE_LIMIT = 32;
+  /*
+   The estimated size of a node and of the headers of arrays on a 64-bit JVM
+   with compressed references: a 12 byte object header, the fields and the
+   padding to a multiple of 8 bytes.
+  */
+  private static final int NODE_BYTES = 64;
+  private static final int ARRAY_HEADER_BYTES = 16;
+
   /*
-   The array of all possible children with the letters a-z
-   (26 different characters), might be empty.
+   The children are stored in one of three representations depending on how
+   many children this node has:
+   - inline: childNodes is null and the only child (if any) is inlineChild.
+   - sparse: childKeys holds the characters of the children in sorted order
+     and childNodes holds the child at the same position. There are more than
+     SPARSE_CHILDREN_LIMIT children only if they spread over more than
+     DENSE_RANGE_LIMIT characters.
+   - dense: childKeys is null and childNodes has one slot per character of
+     the range starting at denseBase, which covers all children.
   */
-  private final Node[] children = new Node[26];
-  // The character which this node represents (lowercase a-z range).
-  private char character;
+  private Node inlineChild;
+  private char[] childKeys;
+  private Node[] childNodes;
+  private char denseBase;
+  // The amount of non-null children which are assigned to this node.
+  private int childrenCount;
+  // The character which this node represents.
+  private final char character;
   /*
    The points value which this node holds (optional as some nodes are
-   just connection nodes).
+   just connection nodes, those hold NO_POINTS).
+  */
+  private int points = NO_POINTS;
+  /*
+   The aggregates of the points of this node and all nodes below it: the
+   amount of keys, the sum of their points and the lowest and highest points,
+   which are NO_POINTS if none of the nodes has points. Kept up to date by
+   Node#updateAggregates(int, int) for single changes and recalculated by
+   Node#updateAggregates() after bulk changes.
+  */
+  private int count;
+  private long sum;
+  private int minPoints = NO_POINTS;
+  private int maxPoints = NO_POINTS;
+  /*
+   The token of the trie version which is allowed to change this node in
+   place. Nodes with another owner might be shared with snapshots and have to
+   be copied before they are changed.
   */
-  private Integer points;
-  private Node parent;
+  private final Object owner;
 
   /**
-   * Naked constructor to initialize an empty node.
+   * Naked constructor to initialize an empty global root which is represented
+   * by "+".
+   *
+   * @param owner The token of the trie version which may change this node.
    */
-  public Node() {
+  public Node(Object owner) {
+    this('+', owner);
   }
 
   /**
-   * Initializes a new node with the assigned letter and parent given.
+   * Initializes a new node with the assigned letter, the node still has to be
+   * put as a child of its parent.
    *
-   * @param ch     The letter which is assigned to this node, value between
-   *               a-z.
-   * @param parent The parent node which is assigned to this node.
+   * @param ch    The character which is assigned to this node.
+   * @param owner The token of the trie version which may change this node.
    */
-  public Node(char ch, Node parent) {
+  public Node(char ch, Object owner) {
     character = ch;
-    this.parent = parent;
-    // Set this node as the child of the given parent element.
-    parent.setChild(ch, this);
+    this.owner = owner;
   }
 
   /**
-   * Calculates the array index based by the given character, a = 0 ... z = 25.
+   * Calculates the index of a character within the dense array, which is
+   * outside of the array if the character is outside of its range.
    *
    * @param ch The character for which to calculate the array index for.
    * @return The array index for this character.
    */
-  private static int calculateArrayIndexByChar(char ch) {
-    return ch - 'a';
+  private int calculateArrayIndexByChar(char ch) {
+    return ch - denseBase;
+  }
+
+  /**
+   * Creates a copy of this node for the given owner. The copy links to the same
+   * children, but changing the children of the copy does not affect this node.
+   *
+   * @param newOwner The token of the trie version which may change the copy.
+   * @return The copy of this node.
+   */
+  Node copy(Object newOwner) {
+    Node copy = new Node(character, newOwner);
+    copy.points = points;
+    copy.count = count;
+    copy.sum = sum;
+    copy.minPoints = minPoints;
+    copy.maxPoints = maxPoints;
+    copy.inlineChild = inlineChild;
+    copy.childrenCount = childrenCount;
+    copy.denseBase = denseBase;
+    if (childKeys != null) {
+      copy.childKeys = childKeys.clone();
+    }
+    if (childNodes != null) {
+      copy.childNodes = childNodes.clone();
+    }
+    return copy;
+  }
+
+  /**
+   * Weather this node may be changed in place by the trie version with the
+   * given token.
+   *
+   * @param token The token of the trie version.
+   * @return Weather the given token owns this node.
+   */
+  boolean isOwnedBy(Object token) {
+    return owner == token;
   }
 
   /**
-   * Returns true if the parent element of this node is the global root
-   * element.
+   * Gets the child with the given character for a change in place. A missing
+   * child is created, a child which is not owned by the given token is
+   * replaced by a copy first. This node has to be owned by the token itself.
    *
-   * @return Returns true if this node is the global root, otherwise always
-   * false.
+   * @param ch    The character und which the child node is saved.
+   * @param token The token of the trie version which makes the change.
+   * @return The child node which is owned by the given token.
    */
-  private boolean isGlobalRoot() {
-    return parent == null;
+  Node getOwnedChild(char ch, Object token) {
+    Node child = getChild(ch);
+    if (child == null) {
+      child = new Node(ch, token);
+      putChild(ch, child);
+    } else if (child.owner != token) {
+      child = child.copy(token);
+      putChild(ch, child);
+    }
+    return child;
   }
 
   /**
-   * Sets the given node with the given character as a child element for the
-   * given character
+   * Stores the given child under its character, switching to a bigger
+   * representation of the children if the current one is full. An existing
+   * child with the same character is replaced.
    *
    * @param ch    The character which the child element represents.
    * @param child The child node.
    */
-  private void setChild(char ch, Node child) {
-    // Set the new child element to the index of the character.
-    children[calculateArrayIndexByChar(ch)] = child;
+  void putChild(char ch, Node child) {
+    if (childNodes == null) {
+      if (inlineChild == null || inlineChild.character == ch) {
+        if (inlineChild == null) {
+          childrenCount++;
+        }
+        inlineChild = child;
+        return;
+      }
+      // A second child moves both children into the sparse arrays.
+      childKeys = new char[2];
+      childNodes = new Node[2];
+      childKeys[0] = inlineChild.character;
+      childNodes[0] = inlineChild;
+      inlineChild = null;
+    }
 
-    /*
-     If child == null we are removing a child from the children of this node.
-     In the case of that this node is just a link to the child which is getting
-     deleted, we need to check if we could also delete this node as it might not
-     be used anymore. A node is not useful anymore if it has not points
-     assigned (points == null), that is has no children to which it links to
-     (!hasChildren()) and that the node is not the global root as that can
-     not be removed. If all conditions match, this node is deleted by
-     calling its parent to delete this node from its children.
-    */
-    if (child == null && points == null && !hasChildren() && !isGlobalRoot()) {
-      parent.setChild(character, null);
+    if (childKeys == null) {
+      int index = calculateArrayIndexByChar(ch);
+      if (index < 0 || index >= childNodes.length) {
+        if (!growDenseRange(ch)) {
+          // The range would get too wide, so the node goes back to sparse.
+          makeSparse(childrenCount * 2);
+          putChild(ch, child);
+          return;
+        }
+        index = calculateArrayIndexByChar(ch);
+      }
+      if (childNodes[index] == null) {
+        childrenCount++;
+      }
+      childNodes[index] = child;
+      return;
+    }
+
+    int position = findSparsePosition(ch);
+    if (position < childrenCount && childKeys[position] == ch) {
+      childNodes[position] = child;
+      return;
+    }
+
+    if (childrenCount >= SPARSE_CHILDREN_LIMIT) {
+      char low = (char) Math.min(childKeys[0], ch);
+      char high = (char) Math.max(childKeys[childrenCount - 1], ch);
+      if (high - low < DENSE_RANGE_LIMIT) {
+        // The sparse arrays are full, from now on every character gets a slot.
+        Node[] denseChildren = new Node[high - low + 1];
+        for (int i = 0; i < childrenCount; i++) {
+          denseChildren[childKeys[i] - low] = childNodes[i];
+        }
+        denseChildren[ch - low] = child;
+        childKeys = null;
+        childNodes = denseChildren;
+        denseBase = low;
+        childrenCount++;
+        return;
+      }
+    }
+
+    if (childrenCount == childKeys.length) {
+      int capacity = childKeys.length * 2;
+      childKeys = Arrays.copyOf(childKeys, capacity);
+      childNodes = Arrays.copyOf(childNodes, capacity);
+    }
+    // Shift the higher characters to the right to keep the arrays sorted.
+    System.arraycopy(childKeys, position, childKeys, position + 1,
+        childrenCount - position);
+    System.arraycopy(childNodes, position, childNodes, position + 1,
+        childrenCount - position);
+    childKeys[position] = ch;
+    childNodes[position] = child;
+    childrenCount++;
+  }
+
+  /**
+   * Removes the child with the given character, switching back to a smaller
+   * representation of the children once only a few of them are left.
+   *
+   * @param ch The character of the child to remove.
+   */
+  void removeChild(char ch) {
+    if (childNodes == null) {
+      if (inlineChild != null && inlineChild.character == ch) {
+        inlineChild = null;
+        childrenCount--;
+      }
+      return;
+    }
+
+    if (childKeys == null) {
+      int index = calculateArrayIndexByChar(ch);
+      if (index < 0 || index >= childNodes.length
+          || childNodes[index] == null) {
+        return;
+      }
+      childNodes[index] = null;
+      childrenCount--;
+      /*
+       Only go back to the sparse arrays once half of them would be free, so a
+       node which keeps on adding and removing one child does not switch its
+       representation every time.
+      */
+      if (childrenCount <= SPARSE_CHILDREN_LIMIT / 2) {
+        makeSparse(SPARSE_CHILDREN_LIMIT);
+      }
+      return;
+    }
+
+    int position = findSparsePosition(ch);
+    if (position == childrenCount || childKeys[position] != ch) {
+      return;
+    }
+    childrenCount--;
+    System.arraycopy(childKeys, position + 1, childKeys, position,
+        childrenCount - position);
+    System.arraycopy(childNodes, position + 1, childNodes, position,
+        childrenCount - position);
+    childNodes[childrenCount] = null;
+
+    if (childrenCount == 1) {
+      // A single child is stored inline again.
+      inlineChild = childNodes[0];
+      childKeys = null;
+      childNodes = null;
+    }
+  }
+
+  /**
+   * Widens the range of the dense array so it covers the given character.
+   *
+   * @param ch The character which is outside of the current range.
+   * @return False if the range would get wider than DENSE_RANGE_LIMIT, the
+   * array is unchanged then.
+   */
+  private boolean growDenseRange(char ch) {
+    char low = (char) Math.min(denseBase, ch);
+    char high = (char) Math.max(denseBase + childNodes.length - 1, ch);
+    if (high - low >= DENSE_RANGE_LIMIT) {
+      return false;
+    }
+    Node[] denseChildren = new Node[high - low + 1];
+    System.arraycopy(childNodes, 0, denseChildren, denseBase - low,
+        childNodes.length);
+    childNodes = denseChildren;
+    denseBase = low;
+    return true;
+  }
+
+  /**
+   * Moves the children from the dense array into new sparse arrays.
+   *
+   * @param capacity The length of the sparse arrays, at least the amount of
+   *                 children.
+   */
+  private void makeSparse(int capacity) {
+    Node[] denseChildren = childNodes;
+    childKeys = new char[capacity];
+    childNodes = new Node[capacity];
+    int position = 0;
+    for (Node child : denseChildren) {
+      if (child != null) {
+        childKeys[position] = child.character;
+        childNodes[position] = child;
+        position++;
+      }
+    }
+  }
+
+  /**
+   * Replaces all children of this node at once, using the smallest
+   * representation for their amount. Sparse arrays are allocated with their
+   * exact size, so a node built this way does not waste any slots.
+   *
+   * @param children The children sorted by their character, which is copied.
+   * @param count    The amount of children in the array.
+   */
+  void setChildren(Node[] children, int count) {
+    inlineChild = null;
+    childKeys = null;
+    childNodes = null;
+    childrenCount = count;
+    if (count == 1) {
+      inlineChild = children[0];
+    } else if (count > SPARSE_CHILDREN_LIMIT
+        && children[count - 1].character - children[0].character
+        < DENSE_RANGE_LIMIT) {
+      denseBase = children[0].character;
+      childNodes =
+          new Node[children[count - 1].character - children[0].character + 1];
+      for (int i = 0; i < count; i++) {
+        childNodes[calculateArrayIndexByChar(children[i].character)] =
+            children[i];
+      }
+    } else if (count > 1) {
+      childKeys = new char[count];
+      childNodes = Arrays.copyOf(children, count);
+      for (int i = 0; i < count; i++) {
+        childKeys[i] = children[i].character;
+      }
+    }
+  }
+
+  /**
+   * Finds the position of the given character within the sorted sparse
+   * children, which is either the position of the character itself or the
+   * position at which it would have to be inserted.
+   *
+   * @param ch The character to look for.
+   * @return The position of the first key which is greater or equal to ch.
+   */
+  private int findSparsePosition(char ch) {
+    if (childrenCount > SPARSE_CHILDREN_LIMIT) {
+      int position = Arrays.binarySearch(childKeys, 0, childrenCount, ch);
+      return position >= 0 ? position : -position - 1;
+    }
+    int position = 0;
+    while (position < childrenCount && childKeys[position] < ch) {
+      position++;
     }
+    return position;
   }
 
   /**
@@ -95,51 +408,154 @@ public class Node {
    * @return The child node or null if it does not exist.
    */
   public Node getChild(char ch) {
-    return children[calculateArrayIndexByChar(ch)];
+    if (childNodes == null) {
+      Node child = inlineChild;
+      if (child != null && child.character == ch) {
+        return child;
+      }
+      return null;
+    }
+    if (childKeys == null) {
+      int index = calculateArrayIndexByChar(ch);
+      if (index < 0 || index >= childNodes.length) {
+        return null;
+      }
+      return childNodes[index];
+    }
+    if (childrenCount > SPARSE_CHILDREN_LIMIT) {
+      // Only children of large alphabets are that many without being dense.
+      int position = Arrays.binarySearch(childKeys, 0, childrenCount, ch);
+      return position >= 0 ? childNodes[position] : null;
+    }
+    /*
+     The sparse arrays are tiny, so a linear scan is faster than a binary
+     search and it can stop early as the keys are sorted.
+    */
+    for (int i = 0; i < childrenCount; i++) {
+      char key = childKeys[i];
+      if (key == ch) {
+        return childNodes[i];
+      }
+      if (key > ch) {
+        break;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Gets the child with the lowest character of this node.
+   *
+   * @return The first child in alphabetical order or null if there are no
+   * children.
+   */
+  Node getFirstChild() {
+    if (childNodes == null) {
+      return inlineChild;
+    }
+    if (childKeys == null) {
+      for (Node child : childNodes) {
+        if (child != null) {
+          return child;
+        }
+      }
+      return null;
+    }
+    return childNodes[0];
+  }
+
+  /**
+   * Gets the child with the lowest character which is greater than the given
+   * character, used to walk over all children in alphabetical order.
+   *
+   * @param ch The character of the previous child.
+   * @return The next child in alphabetical order or null if there is none.
+   */
+  Node getNextChild(char ch) {
+    if (childNodes == null) {
+      if (inlineChild != null && inlineChild.character > ch) {
+        return inlineChild;
+      }
+      return null;
+    }
+    if (childKeys == null) {
+      int start = Math.max(calculateArrayIndexByChar(ch) + 1, 0);
+      for (int i = start; i < childNodes.length; i++) {
+        if (childNodes[i] != null) {
+          return childNodes[i];
+        }
+      }
+      return null;
+    }
+    int position = findSparsePosition(ch);
+    if (position < childrenCount && childKeys[position] == ch) {
+      position++;
+    }
+    return position < childrenCount ? childNodes[position] : null;
   }
 
   /**
    * Finds the last node from the children nodes by a key, so the node with last
-   * letter in the key (for "abc" it would be "c").
+   * letter in the key (for "abc" it would be "c"). The key is walked by index,
+   * so no intermediate Strings are created.
    *
    * @param key The key for which to look for.
    * @return The found node which holds the value for the last letter in the key
    * or null if it does not exist.
    */
-  public Node find(String key) {
-    Node firstChild = getChild(key.charAt(0));
-    if (firstChild == null) {
-      return null;
-    }
-    if (key.length() == 1) {
-      return firstChild;
+  public Node find(CharSequence key) {
+    Node node = this;
+    for (int i = 0; i < key.length(); i++) {
+      node = node.getChild(key.charAt(i));
+      if (node == null) {
+        return null;
+      }
     }
-    return firstChild.find(key.substring(1));
+    return node;
   }
 
   /**
-   * Removes this node if it is not the global root and if Node#cleanup()
-   * succeeds.
+   * Finds the last node from the children nodes by a key which is given as a
+   * range of a char array.
    *
-   * @see Node#cleanup()
+   * @param key    The buffer which holds the key.
+   * @param offset The index of the first character of the key.
+   * @param length The amount of characters of the key.
+   * @return The found node which holds the value for the last letter in the key
+   * or null if it does not exist.
+   * @see Node#find(CharSequence)
    */
-  public void remove() {
-    if (isGlobalRoot()) {
-      return;
+  public Node find(char[] key, int offset, int length) {
+    Node node = this;
+    for (int i = offset; i < offset + length; i++) {
+      node = node.getChild(key[i]);
+      if (node == null) {
+        return null;
+      }
     }
-    points = null;
-    cleanup();
+    return node;
   }
 
   /**
-   * Deletes this node by setting it null on the parent if this node has no more
-   * children itself and is practically useless.
+   * Finds the last node from the children nodes by a key which is given as a
+   * range of ASCII encoded bytes.
+   *
+   * @param key    The buffer which holds the ASCII encoded key.
+   * @param offset The index of the first byte of the key.
+   * @param length The amount of bytes of the key.
+   * @return The found node which holds the value for the last letter in the key
+   * or null if it does not exist.
+   * @see Node#find(CharSequence)
    */
-  private void cleanup() {
-    if (hasChildren()) {
-      return;
+  public Node find(byte[] key, int offset, int length) {
+    Node node = this;
+    for (int i = offset; i < offset + length; i++) {
+      node = node.getChild((char) key[i]);
+      if (node == null) {
+        return null;
+      }
     }
-    parent.setChild(character, null);
+    return node;
   }
 
   /**
@@ -151,56 +567,89 @@ public class Node {
    * like "(a(b[10])(c[10]))".
    *
    * @return The string representation of the trie beginning from this node on.
+   * @see Node#writeTo(Appendable)
    */
   @Override
   public String toString() {
-    if (isGlobalRoot() && !hasChildren()) {
-      /*
-       If the root just exists without any children, we return just the
-       character of the root.
-      */
-      return String.valueOf(getCharacter());
+    StringBuilder nodeStringBuilder = new StringBuilder();
+    try {
+      writeTo(nodeStringBuilder);
+    } catch (IOException e) {
+      // A StringBuilder never throws, so this can not happen.
+      throw new UncheckedIOException(e);
     }
+    return nodeStringBuilder.toString();
+  }
 
+  /**
+   * Writes the string representation of this node and all nodes below it (see
+   * Node#toString()) incrementally to the given output. The nodes are walked
+   * with an explicit stack instead of recursion, so very long keys can not
+   * overflow the call stack, and no intermediate Strings are built.
+   *
+   * @param out The output to write the representation to.
+   * @throws IOException If writing to the output fails.
+   */
+  public void writeTo(Appendable out) throws IOException {
+    // One buffer is reused to format the points of all nodes.
+    StringBuilder pointsBuffer = new StringBuilder(11);
     /*
-     characterStringRepresentation holds the current character of this node and
-     if applicable the associated points in the format "character[points]".
+     The nodes on the path to the current node, stack[0] is this node. Every
+     node on the stack has its opening parentheses written already.
     */
-    String characterStringRepresentation = String.valueOf(this.getCharacter());
-
-    if (hasPoints()) {
-      /*
-       There are points associated with ths node, we have to add the points
-       associated with the character.
-      */
-      characterStringRepresentation += "[" + points + "]";
-    }
+    Node[] stack = new Node[16];
+    int depth = 0;
+    stack[0] = this;
+    Node node = this;
 
-    /*
-     As there are no children on this node we can just return the character
-     with the possibly associated points.
-    */
-    if (!this.hasChildren()) {
-      return characterStringRepresentation;
-    }
+    while (node != null) {
+      out.append(node.character);
+      if (node.hasPoints()) {
+        pointsBuffer.setLength(0);
+        pointsBuffer.append(node.points);
+        out.append('[').append(pointsBuffer).append(']');
+      }
 
-    StringBuilder nodeStringBuilder = new StringBuilder();
-    // Loop over all children and append their string representation.
-    for (Node child : children) {
+      Node child = node.skipEmptyChildren(node.getFirstChild());
       if (child != null) {
-        nodeStringBuilder.append(child);
+        out.append('(');
+        depth++;
+        if (depth == stack.length) {
+          stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[depth] = child;
+        node = child;
+        continue;
       }
-    }
 
-    return characterStringRepresentation + "(" + nodeStringBuilder + ")";
+      /*
+       The node has no children, so continue with the next sibling of the
+       closest node on the path which has one and close the parentheses of
+       all levels which are done on the way up.
+      */
+      node = null;
+      while (depth > 0) {
+        Node parent = stack[depth - 1];
+        Node sibling = parent.skipEmptyChildren(
+            parent.getNextChild(stack[depth].character));
+        if (sibling != null) {
+          stack[depth] = sibling;
+          node = sibling;
+          break;
+        }
+        stack[depth] = null;
+        depth--;
+        out.append(')');
+      }
+    }
   }
 
   /**
    * Gets the points value of this node.
    *
-   * @return The points this node has assigned to it, might be null.
+   * @return The points this node has assigned to it, might be NO_POINTS.
    */
-  public Integer getPoints() {
+  public int getPoints() {
     return points;
   }
 
@@ -209,17 +658,147 @@ public class Node {
    *
    * @param points The value of points to assign to this node.
    */
-  public void setPoints(Integer points) {
+  public void setPoints(int points) {
     this.points = points;
   }
 
+  /**
+   * Gets the amount of keys with points within the subtree of this node.
+   *
+   * @return The amount of nodes with points, including this node.
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Gets the sum of all points within the subtree of this node.
+   *
+   * @return The sum of the points, 0 if none of the nodes has points.
+   */
+  public long getSum() {
+    return sum;
+  }
+
+  /**
+   * Gets the lowest points of this node and all nodes below it.
+   *
+   * @return The lowest points within the subtree of this node, NO_POINTS if
+   * none of the nodes has points.
+   */
+  public int getMinPoints() {
+    return minPoints;
+  }
+
+  /**
+   * Gets the highest points of this node and all nodes below it.
+   *
+   * @return The highest points within the subtree of this node, NO_POINTS if
+   * none of the nodes has points.
+   */
+  public int getMaxPoints() {
+    return maxPoints;
+  }
+
+  /**
+   * Skips the children without any keys below them, which lazy removals leave
+   * in the trie until the next compaction.
+   *
+   * @param child The child of this node to start at, might be null.
+   * @return The first child from the given one on with keys or null.
+   */
+  private Node skipEmptyChildren(Node child) {
+    while (child != null && child.count == 0) {
+      child = getNextChild(child.character);
+    }
+    return child;
+  }
+
+  /**
+   * Updates the aggregates after the points of a single key within the subtree
+   * of this node changed, in constant time. The children are only scanned
+   * again if the old points were the lowest or highest ones and the new points
+   * do not replace them, as the next lowest or highest points are unknown.
+   * The aggregates of the children have to be up to date already.
+   *
+   * @param oldPoints The points the key had before, NO_POINTS if it was added.
+   * @param newPoints The points the key has now, NO_POINTS if it was removed.
+   */
+  void updateAggregates(int oldPoints, int newPoints) {
+    if (oldPoints != NO_POINTS
+        && ((oldPoints == minPoints
+        && (newPoints == NO_POINTS || newPoints > oldPoints))
+        || (oldPoints == maxPoints
+        && (newPoints == NO_POINTS || newPoints < oldPoints)))) {
+      updateAggregates();
+      return;
+    }
+    if (oldPoints != NO_POINTS) {
+      count--;
+      sum -= oldPoints;
+    }
+    if (newPoints != NO_POINTS) {
+      if (count == 0) {
+        minPoints = newPoints;
+        maxPoints = newPoints;
+      } else {
+        minPoints = Math.min(minPoints, newPoints);
+        maxPoints = Math.max(maxPoints, newPoints);
+      }
+      count++;
+      sum += newPoints;
+    }
+  }
+
+  /**
+   * Recalculates the aggregates of the subtree of this node from its own
+   * points and the aggregates of its children, which have to be up to date
+   * already.
+   *
+   * @return Weather any aggregate of this node changed.
+   */
+  boolean updateAggregates() {
+    int newCount = 0;
+    long newSum = 0;
+    // NO_POINTS is the lowest int, so it never wins against real points.
+    int newMax = points;
+    int newMin = Integer.MAX_VALUE;
+    if (points != NO_POINTS) {
+      newCount = 1;
+      newSum = points;
+      newMin = points;
+    }
+    for (Node child = getFirstChild(); child != null;
+        child = getNextChild(child.character)) {
+      if (child.count != 0) {
+        newCount += child.count;
+        newSum += child.sum;
+        newMin = Math.min(newMin, child.minPoints);
+        newMax = Math.max(newMax, child.maxPoints);
+      }
+    }
+    if (newCount == 0) {
+      newMin = NO_POINTS;
+    }
+
+    if (newCount == count && newSum == sum && newMin == minPoints
+        && newMax == maxPoints) {
+      return false;
+    }
+    count = newCount;
+    sum = newSum;
+    minPoints = newMin;
+    maxPoints = newMax;
+    return true;
+  }
+
   /**
    * Weather the node has any points assigned or not.
    *
    * @return Weather the node has any points assigned or not.
    */
-  private boolean hasPoints() {
-    return points != null;
+  public boolean hasPoints() {
+    return points != NO_POINTS;
   }
 
   /**
@@ -227,14 +806,8 @@ public class Node {
    *
    * @return The count of non-null children.
    */
-  private int getChildrenCount() {
-    int count = 0;
-    for (Node child : children) {
-      if (child != null) {
-        count++;
-      }
-    }
-    return count;
+  int getChildrenCount() {
+    return childrenCount;
   }
 
   /**
@@ -242,20 +815,46 @@ public class Node {
    *
    * @return Weather the node has any children or not.
    */
-  private boolean hasChildren() {
+  boolean hasChildren() {
     return this.getChildrenCount() != 0;
   }
 
+  /**
+   * Estimates the bytes this node and its arrays of children take on the heap,
+   * without the children themselves.
+   *
+   * @return The estimated size in bytes.
+   */
+  long estimateBytes() {
+    long bytes = NODE_BYTES;
+    if (childKeys != null) {
+      bytes += alignedArrayBytes(childKeys.length, Character.BYTES);
+    }
+    if (childNodes != null) {
+      bytes += alignedArrayBytes(childNodes.length, Integer.BYTES);
+    }
+    return bytes;
+  }
+
+  /**
+   * Estimates the bytes an array takes on the heap.
+   *
+   * @param length      The length of the array.
+   * @param elementSize The bytes of a single element, references take 4 bytes.
+   * @return The estimated size including the header and the padding.
+   */
+  static long alignedArrayBytes(int length, int elementSize) {
+    long bytes = ARRAY_HEADER_BYTES + (long) length * elementSize;
+    return (bytes + 7) & ~7L;
+  }
+
   /**
    * Gets the character of this node which is the assigned character or "+" for
    * the global root element.
    *
    * @return The character by which this node should be represented.
    */
-  private char getCharacter() {
-    if (isGlobalRoot()) {
-      return '+';
-    }
+  char getCharacter() {
     return character;
   }
 
@@ -0,0 +1,179 @@
+package trie;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ParallelTrieBuilder builds a trie from sorted entries with the threads of a
+ * ForkJoinPool. The entries are partitioned by their first character, large
+ * partitions further by the following characters, and every partition is
+ * built by its own TrieBuilder. As all partitions share the owner token of
+ * the resulting trie, their subtrees are simply grafted under the node of
+ * their common prefix without copying anything.
+ */
+final class ParallelTrieBuilder {
+
+  // Partitions with fewer entries are built by a single TrieBuilder.
+  private static final int SEQUENTIAL_THRESHOLD = 1 << 13;
+
+  /**
+   * The class should never be initialised as it is just a utility class.
+   */
+  private ParallelTrieBuilder() {
+  }
+
+  /**
+   * Builds a trie from the given sorted entries.
+   *
+   * @param entries The entries sorted by key without duplicates, the list
+   *                should support fast random access.
+   * @param pool    The pool whose threads build the partitions.
+   * @return The trie with all entries.
+   * @throws IllegalArgumentException If the keys are not sorted or contain
+   *                                  duplicates or if points are null or
+   *                                  NO_POINTS.
+   */
+  static Trie build(
+      List<? extends Map.Entry<? extends CharSequence, Integer>> entries,
+      ForkJoinPool pool) {
+    Object owner = new Object();
+    Node root = new Node(owner);
+    try {
+      pool.invoke(new PartitionTask(entries, owner, root, 0, 0,
+          entries.size()));
+    } catch (IllegalArgumentException e) {
+      // The pool wraps exceptions of other threads, the original is clearer.
+      if (e.getCause() instanceof IllegalArgumentException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+    return new Trie(owner, root);
+  }
+
+  /**
+   * Gets the points of an entry.
+   *
+   * @param entry The entry.
+   * @return The points of the entry.
+   * @throws IllegalArgumentException If the points are null.
+   */
+  private static int pointsOf(Map.Entry<? extends CharSequence, Integer> entry) {
+    Integer points = entry.getValue();
+    if (points == null) {
+      throw new IllegalArgumentException(
+          "points of key \"" + entry.getKey() + "\" can not be null");
+    }
+    return points;
+  }
+
+  /**
+   * PartitionTask builds the subtree of a node from the entries whose keys
+   * start with the prefix of the node.
+   */
+  private static final class PartitionTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<? extends Map.Entry<? extends CharSequence, Integer>>
+        entries;
+    private final Object owner;
+    private final Node node;
+    // The length of the prefix all keys in the partition share.
+    private final int depth;
+    private final int from;
+    private final int to;
+
+    /**
+     * Creates a task for the entries from (inclusive) to (exclusive).
+     *
+     * @param entries The sorted entries.
+     * @param owner   The token which owns the built nodes.
+     * @param node    The node of the shared prefix.
+     * @param depth   The length of the shared prefix.
+     * @param from    The index of the first entry of the partition.
+     * @param to      The index after the last entry of the partition.
+     */
+    private PartitionTask(
+        List<? extends Map.Entry<? extends CharSequence, Integer>> entries,
+        Object owner, Node node, int depth, int from, int to) {
+      this.entries = entries;
+      this.owner = owner;
+      this.node = node;
+      this.depth = depth;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= SEQUENTIAL_THRESHOLD) {
+        TrieBuilder builder = new TrieBuilder(owner, node);
+        for (int i = from; i < to; i++) {
+          Map.Entry<? extends CharSequence, Integer> entry = entries.get(i);
+          builder.add(entry.getKey(), depth, pointsOf(entry));
+        }
+        builder.buildRoot();
+        return;
+      }
+
+      // Only the key which equals the prefix can be shorter than depth + 1.
+      int start = from;
+      CharSequence firstKey = entries.get(from).getKey();
+      if (firstKey.length() == depth) {
+        int points = pointsOf(entries.get(from));
+        if (points == Trie.NO_POINTS) {
+          throw new IllegalArgumentException(
+              "points can not be " + Trie.NO_POINTS);
+        }
+        node.setPoints(points);
+        start++;
+      }
+
+      // Grown on demand, as keys are not limited to a-z.
+      Node[] children = new Node[8];
+      PartitionTask[] tasks = new PartitionTask[8];
+      int count = 0;
+      int partitionStart = start;
+      char previous = 0;
+      for (int i = start; i <= to; i++) {
+        char ch = 0;
+        if (i < to) {
+          CharSequence key = entries.get(i).getKey();
+          if (key.length() == depth) {
+            throw new IllegalArgumentException(firstKey.length() == depth
+                ? "duplicate key \"" + key + "\""
+                : "keys are not sorted, \"" + key + "\" comes after \""
+                    + entries.get(i - 1).getKey() + "\"");
+          }
+          ch = key.charAt(depth);
+          if (i > start && ch < previous) {
+            throw new IllegalArgumentException("keys are not sorted, \"" + key
+                + "\" comes after \"" + entries.get(i - 1).getKey() + "\"");
+          }
+        }
+        if (i > start && (i == to || ch != previous)) {
+          if (count == children.length) {
+            children = Arrays.copyOf(children, count * 2);
+            tasks = Arrays.copyOf(tasks, count * 2);
+          }
+          children[count] = new Node(previous, owner);
+          tasks[count] = new PartitionTask(entries, owner, children[count],
+              depth + 1, partitionStart, i);
+          count++;
+          partitionStart = i;
+        }
+        previous = ch;
+      }
+
+      ForkJoinTask.invokeAll(Arrays.copyOf(tasks, count));
+      node.setChildren(children, count);
+      node.updateAggregates();
+    }
+  }
+
+}
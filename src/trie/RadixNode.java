@@ -0,0 +1,268 @@
+package trie;
+
+import java.util.Arrays;
+
+/**
+ * RadixNode is a single node of the RadixTrie. Contrary to Node it does not
+ * represent one character but the whole run of characters on the edge from
+ * its parent to itself, so chains of nodes without branches collapse into one
+ * node.
+ */
+class RadixNode {
+
+  private static final RadixNode[] NO_CHILDREN = new RadixNode[0];
+  private static final char[] NO_CHARS = new char[0];
+
+  /*
+   The characters on the edge leading to this node, never empty except for
+   the global root.
+  */
+  private String label;
+  /*
+   The points value which this node holds (optional as some nodes are
+   just connection nodes).
+  */
+  private Integer points;
+  /*
+   The children of this node sorted by the first character of their label,
+   no two children start with the same character.
+  */
+  private RadixNode[] children = NO_CHILDREN;
+  /*
+   The first character of the label of the child at the same position, so a
+   child is found without loading the labels of its siblings.
+  */
+  private char[] childChars = NO_CHARS;
+
+  /**
+   * Initializes a new node with the given edge label and no children.
+   *
+   * @param label  The characters on the edge leading to this node.
+   * @param points The points of this node, might be null.
+   */
+  RadixNode(String label, Integer points) {
+    this.label = label;
+    this.points = points;
+  }
+
+  /**
+   * Gets the child whose label starts with the given character.
+   *
+   * @param ch The first character of the label of the child.
+   * @return The child node or null if it does not exist.
+   */
+  RadixNode getChild(char ch) {
+    int position = findPosition(ch);
+    if (position < childChars.length && childChars[position] == ch) {
+      return children[position];
+    }
+    return null;
+  }
+
+  /**
+   * Finds the position of the child whose label starts with the given
+   * character or the position where it would be inserted.
+   *
+   * @param ch The first character of the label of the child.
+   * @return The position of the first child whose label does not start with
+   * a lower character.
+   */
+  private int findPosition(char ch) {
+    int position = 0;
+    while (position < childChars.length && childChars[position] < ch) {
+      position++;
+    }
+    return position;
+  }
+
+  /**
+   * Adds the given child at its sorted position or replaces the child which
+   * starts with the same character.
+   *
+   * @param child The child node to add.
+   */
+  void putChild(RadixNode child) {
+    char ch = child.label.charAt(0);
+    int position = findPosition(ch);
+    if (position < childChars.length && childChars[position] == ch) {
+      children[position] = child;
+      return;
+    }
+
+    RadixNode[] grown = new RadixNode[children.length + 1];
+    System.arraycopy(children, 0, grown, 0, position);
+    grown[position] = child;
+    System.arraycopy(children, position, grown, position + 1,
+        children.length - position);
+    children = grown;
+    char[] grownChars = new char[childChars.length + 1];
+    System.arraycopy(childChars, 0, grownChars, 0, position);
+    grownChars[position] = ch;
+    System.arraycopy(childChars, position, grownChars, position + 1,
+        childChars.length - position);
+    childChars = grownChars;
+  }
+
+  /**
+   * Removes the child whose label starts with the given character.
+   *
+   * @param ch The first character of the label of the child.
+   */
+  void removeChild(char ch) {
+    int i = findPosition(ch);
+    if (i == childChars.length || childChars[i] != ch) {
+      return;
+    }
+    RadixNode[] shrunk = Arrays.copyOf(children, children.length - 1);
+    System.arraycopy(children, i + 1, shrunk, i, children.length - i - 1);
+    children = shrunk;
+    char[] shrunkChars = Arrays.copyOf(childChars, childChars.length - 1);
+    System.arraycopy(childChars, i + 1, shrunkChars, i,
+        childChars.length - i - 1);
+    childChars = shrunkChars;
+  }
+
+  /**
+   * Splits the edge of this node after the given amount of characters. This
+   * node keeps the first part of the label and gets a single child with the
+   * rest of the label, which takes over the points and children.
+   *
+   * @param length The amount of characters this node keeps.
+   */
+  void split(int length) {
+    RadixNode tail = new RadixNode(label.substring(length), points);
+    tail.children = children;
+    tail.childChars = childChars;
+    label = label.substring(0, length);
+    points = null;
+    children = new RadixNode[]{tail};
+    childChars = new char[]{tail.label.charAt(0)};
+  }
+
+  /**
+   * Merges this node with its only child if this node has no points, so no
+   * node without points and with just one child is left on the edge.
+   */
+  void mergeWithOnlyChild() {
+    if (points != null || children.length != 1) {
+      return;
+    }
+    RadixNode child = children[0];
+    label = label + child.label;
+    points = child.points;
+    children = child.children;
+    childChars = child.childChars;
+  }
+
+  /**
+   * Gets the characters on the edge leading to this node.
+   *
+   * @return The label of this node.
+   */
+  String getLabel() {
+    return label;
+  }
+
+  /**
+   * Gets the children of this node sorted by their first character.
+   *
+   * @return The children of this node, must not be modified.
+   */
+  RadixNode[] getChildren() {
+    return children;
+  }
+
+  /**
+   * Gets the points value of this node.
+   *
+   * @return The points this node has assigned to it, might be null.
+   */
+  Integer getPoints() {
+    return points;
+  }
+
+  /**
+   * Sets the given points to this node.
+   *
+   * @param points The value of points to assign to this node.
+   */
+  void setPoints(Integer points) {
+    this.points = points;
+  }
+
+  /**
+   * Stringifies this node and all nodes below it in the same format as
+   * Node#toString(). Every character of a label opens its own layer, only the
+   * last character carries the points and the children of the node. The nodes
+   * are walked with an explicit stack instead of recursion, so very long keys
+   * can not overflow the call stack.
+   *
+   * @param builder The builder to append the representation to.
+   */
+  void appendTo(StringBuilder builder) {
+    /*
+     The nodes on the path to the current node and the index of the next child
+     of each of them to write, stack[0] is this node.
+    */
+    RadixNode[] stack = new RadixNode[16];
+    int[] nextChildren = new int[16];
+    int depth = 0;
+    stack[0] = this;
+    appendOpening(builder);
+
+    while (depth >= 0) {
+      RadixNode node = stack[depth];
+      if (nextChildren[depth] < node.children.length) {
+        RadixNode child = node.children[nextChildren[depth]++];
+        depth++;
+        if (depth == stack.length) {
+          stack = Arrays.copyOf(stack, depth * 2);
+          nextChildren = Arrays.copyOf(nextChildren, depth * 2);
+        }
+        stack[depth] = child;
+        nextChildren[depth] = 0;
+        child.appendOpening(builder);
+        continue;
+      }
+      node.appendClosing(builder);
+      stack[depth] = null;
+      depth--;
+    }
+  }
+
+  /**
+   * Appends the label, the points and the opening parenthesis of the children
+   * of this node.
+   *
+   * @param builder The builder to append to.
+   */
+  private void appendOpening(StringBuilder builder) {
+    int lastIndex = label.length() - 1;
+    for (int i = 0; i < lastIndex; i++) {
+      builder.append(label.charAt(i)).append('(');
+    }
+    builder.append(label.charAt(lastIndex));
+    if (points != null) {
+      builder.append('[').append(points).append(']');
+    }
+    if (children.length != 0) {
+      builder.append('(');
+    }
+  }
+
+  /**
+   * Appends the closing parentheses of the children and of the label layers
+   * of this node.
+   *
+   * @param builder The builder to append to.
+   */
+  private void appendClosing(StringBuilder builder) {
+    if (children.length != 0) {
+      builder.append(')');
+    }
+    for (int i = 0; i < label.length() - 1; i++) {
+      builder.append(')');
+    }
+  }
+
+}
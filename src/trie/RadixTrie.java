@@ -0,0 +1,250 @@
+package trie;
+
+import java.util.Arrays;
+
+/**
+ * RadixTrie is a path compressed variant of the Trie. Runs of characters
+ * without any branch or points in between are stored as a single edge label
+ * on one RadixNode, so long and sparse keys need far fewer nodes and pointer
+ * hops. It offers the same operations and string representation as Trie.
+ */
+public class RadixTrie {
+
+  /**
+   * The trie always has final root element with an empty label which never
+   * undergoes any changes but adding and removing children.
+   */
+  private final RadixNode root = new RadixNode("", null);
+
+  /**
+   * Constructs an empty RadixTrie.
+   */
+  public RadixTrie() {
+  }
+
+  /**
+   * Adds a key with the given points. The empty key stores its points on the
+   * global root like in Trie.
+   *
+   * @param key    The key for which to store the points value.
+   * @param points The value of points to associate with the given key.
+   * @return Returns false in the case that the key already exists as we do not
+   * want to overwrite points, otherwise always returns true.
+   */
+  public boolean add(String key, Integer points) {
+    RadixNode node = root;
+    int position = 0;
+    while (position < key.length()) {
+      RadixNode child = node.getChild(key.charAt(position));
+      if (child == null) {
+        // Nothing shares the rest of the key, it becomes one new edge.
+        node.putChild(new RadixNode(key.substring(position), points));
+        return true;
+      }
+
+      String label = child.getLabel();
+      int matching = countMatchingCharacters(key, position, label);
+      if (matching < label.length()) {
+        /*
+         The key leaves the edge in the middle of its label, thus the edge is
+         split at that point and the new key hangs off the split point (or
+         ends right there).
+        */
+        child.split(matching);
+        if (position + matching < key.length()) {
+          child.putChild(new RadixNode(key.substring(position + matching),
+              points));
+        } else {
+          child.setPoints(points);
+        }
+        return true;
+      }
+
+      node = child;
+      position += matching;
+    }
+
+    if (node.getPoints() != null) {
+      return false;
+    }
+    node.setPoints(points);
+    return true;
+  }
+
+  /**
+   * Removes the key from the trie. Edges which are not needed anymore are
+   * removed and edges which lost their branch are merged with their only
+   * remaining child.
+   *
+   * @param key The key (name) to remove from the trie.
+   * @return Returns false if the key does not exist, otherwise always
+   * returns true.
+   */
+  public boolean remove(String key) {
+    RadixNode parent = null;
+    RadixNode node = root;
+    int position = 0;
+    while (position < key.length()) {
+      RadixNode child = node.getChild(key.charAt(position));
+      if (child == null || !key.startsWith(child.getLabel(), position)) {
+        return false;
+      }
+      parent = node;
+      node = child;
+      position += child.getLabel().length();
+    }
+
+    if (node.getPoints() == null) {
+      return false;
+    }
+    node.setPoints(null);
+    if (parent == null) {
+      // The empty key only had its points on the global root.
+      return true;
+    }
+
+    if (node.getChildren().length == 0) {
+      parent.removeChild(node.getLabel().charAt(0));
+      if (parent != root) {
+        parent.mergeWithOnlyChild();
+      }
+    } else {
+      node.mergeWithOnlyChild();
+    }
+    return true;
+  }
+
+  /**
+   * Changes the points value of a specific key to the given points.
+   *
+   * @param key    The key for which to change the points for.
+   * @param points The new points to assign.
+   * @return Returns false if the key does not exist, otherwise always
+   * returns true.
+   */
+  public boolean change(String key, Integer points) {
+    RadixNode node = find(key);
+    if (node == null || node.getPoints() == null) {
+      return false;
+    }
+    node.setPoints(points);
+    return true;
+  }
+
+  /**
+   * Gets the points associated with a key.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * null.
+   */
+  public Integer points(String key) {
+    RadixNode node = find(key);
+    if (node == null) {
+      return null;
+    }
+    return node.getPoints();
+  }
+
+  /**
+   * Finds the node at which the given key ends exactly.
+   *
+   * @param key The key for which to look for.
+   * @return The found node, the global root for the empty key, or null if the
+   * key does not end at a node.
+   */
+  private RadixNode find(String key) {
+    RadixNode node = root;
+    int position = 0;
+    while (position < key.length()) {
+      node = node.getChild(key.charAt(position));
+      if (node == null || !key.startsWith(node.getLabel(), position)) {
+        return null;
+      }
+      position += node.getLabel().length();
+    }
+    return node;
+  }
+
+  /**
+   * Counts how many characters of the label match the key starting at the
+   * given position.
+   *
+   * @param key      The key which is walked.
+   * @param position The position within the key where the label starts.
+   * @param label    The label of the edge.
+   * @return The amount of matching characters.
+   */
+  private static int countMatchingCharacters(String key, int position,
+      String label) {
+    int limit = Math.min(label.length(), key.length() - position);
+    int matching = 0;
+    while (matching < limit
+        && key.charAt(position + matching) == label.charAt(matching)) {
+      matching++;
+    }
+    return matching;
+  }
+
+  /**
+   * Counts the nodes of the trie including the global root, which is a lot
+   * less than the amount of Node objects a Trie needs for the same keys.
+   *
+   * @return The amount of nodes in this trie.
+   */
+  public int nodeCount() {
+    return countNodes(root);
+  }
+
+  /**
+   * Counts the given node and all nodes below it. The nodes which are not
+   * counted yet are kept on an explicit stack instead of recursing.
+   *
+   * @param node The node to start counting from.
+   * @return The amount of nodes in the subtree of the given node.
+   */
+  private static int countNodes(RadixNode node) {
+    RadixNode[] stack = new RadixNode[16];
+    stack[0] = node;
+    int size = 1;
+    int count = 0;
+    while (size > 0) {
+      RadixNode current = stack[--size];
+      stack[size] = null;
+      count++;
+      RadixNode[] children = current.getChildren();
+      if (size + children.length > stack.length) {
+        stack = Arrays.copyOf(stack,
+            Math.max(stack.length * 2, size + children.length));
+      }
+      System.arraycopy(children, 0, stack, size, children.length);
+      size += children.length;
+    }
+    return count;
+  }
+
+  /**
+   * Shows the trie as a string representation where an empty trie is "+". The
+   * edge labels are expanded again, so the output is the same as of a Trie
+   * with the same keys.
+   *
+   * @return The trie in string representation based of the root element.
+   * @see Node#toString()
+   */
+  @Override
+  public String toString() {
+    StringBuilder trieStringBuilder = new StringBuilder("+");
+    if (root.getPoints() != null) {
+      trieStringBuilder.append('[').append(root.getPoints()).append(']');
+    }
+    RadixNode[] children = root.getChildren();
+    if (children.length == 0) {
+      return trieStringBuilder.toString();
+    }
+    trieStringBuilder.append('(');
+    for (RadixNode child : children) {
+      child.appendTo(trieStringBuilder);
+    }
+    return trieStringBuilder.append(')').toString();
+  }
+}
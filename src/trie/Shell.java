@@ -1,8 +1,11 @@
 package trie;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.Locale;
 import java.util.Objects;
 
 
@@ -13,24 +16,149 @@ import java.util.Objects;
  */
 public final class Shell {
 
-  private Trie trie = new Trie();
+  // The messages are shared with the batch mode, which has to print the same.
+  static final String INVALID_COMMAND =
+      "invalid command, see 'help' for more information";
+  static final String POINTS_NOT_INTEGER =
+      "invalid argument for points, points needs to be an integer value";
+  static final String POINTS_NEGATIVE = "invalid argument for points, points "
+      + "needs to be an integer value greater or equal to 0";
+  static final String NAME_EXISTS =
+      "an entry with the given name already exists";
+  static final String NAME_MISSING =
+      "an entry with the given name does not exist";
+  static final String NAME_NOT_LOWERCASE =
+      "invalid argument for name, names can only be lowercase";
+  static final String NAME_NOT_ALPHABET = "invalid argument for name, names "
+      + "can only be lowercase letters from the standard alphabet (a-z)";
+  static final String NAME_NOT_IDENTIFIER = "invalid argument for name, "
+      + "names can only be letters (a-z, A-Z), digits (0-9) and '_'";
+  static final String NAME_EMPTY =
+      "invalid argument for name, names can not be empty";
+  static final String ERROR_PREFIX = "Error! ";
+  static final String HELP = """
+      new - creates a new trie
+      add <name> <points> - adds a new name with the given points
+      change <name> <points> - changes the points of the given name
+      delete <name> - deletes the given name
+      points <name> - returns the points of the given name
+      trie - prints the trie
+      stats - prints statistics about the trie and its operations
+      help - prints this help message
+      quit - quits the program""";
+
+  private static final String ALPHABET_ARGUMENT = "--alphabet=";
+  private static final String METRICS_ARGUMENT = "--metrics";
+
+  /**
+   * The alphabets names can be made of, chosen with the "--alphabet" argument.
+   * The trie stores any characters, the alphabet only decides which names the
+   * commands accept.
+   */
+  enum Alphabet {
+    // Lowercase letters a-z, the default.
+    LOWERCASE,
+    // Letters a-z and A-Z, digits and '_'.
+    IDENTIFIER,
+    // Any characters, names just can not be empty or contain spaces.
+    UNICODE;
+
+    /**
+     * Checks if a name only contains characters of this alphabet.
+     *
+     * @param name The name input by the user.
+     * @return An error message if any errors were found, otherwise null.
+     */
+    String check(CharSequence name) {
+      switch (this) {
+        case LOWERCASE -> {
+          String string = name.toString();
+          if (!Objects.equals(string, string.toLowerCase())) {
+            return NAME_NOT_LOWERCASE;
+          }
+          if (!string.matches("[a-zA-Z]+")) {
+            return NAME_NOT_ALPHABET;
+          }
+        }
+        case IDENTIFIER -> {
+          if (name.length() == 0) {
+            return NAME_NOT_IDENTIFIER;
+          }
+          for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (!(ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z'
+                || ch >= '0' && ch <= '9' || ch == '_')) {
+              return NAME_NOT_IDENTIFIER;
+            }
+          }
+        }
+        default -> {
+          if (name.length() == 0) {
+            return NAME_EMPTY;
+          }
+        }
+      }
+      return null;
+    }
+  }
+
+  private final Alphabet alphabet;
+  private final boolean metrics;
+  private Trie trie;
 
   /**
    * The class should never be initialised from somewhere else as it is the
    * entry point and just a utility class.
+   *
+   * @param alphabet The alphabet names can be made of.
+   * @param metrics  Weather the tries record metrics about their operations.
    */
-  private Shell() {
+  private Shell(Alphabet alphabet, boolean metrics) {
+    this.alphabet = alphabet;
+    this.metrics = metrics;
+    this.trie = newTrie(metrics);
   }
 
   /**
-   * Entrypoint of the REPL shell.
+   * Entrypoint of the REPL shell. With the "--batch" argument the commands are
+   * read without any prompts in the batch mode, which is meant for large
+   * files piped into the program. The "--alphabet=" argument followed by
+   * lowercase, identifier or unicode chooses which names are accepted, by
+   * default only lowercase letters a-z. The "--metrics" argument makes the
+   * "stats" command also show how often and how fast the operations ran,
+   * which costs some time on every operation and is therefore off by default.
    *
    * @param args The program arguments.
    * @throws IOException Reading a line might trow an IOException.
+   * @see ShellBatch
    */
   public static void main(String[] args) throws IOException {
+    boolean batch = false;
+    boolean metrics = false;
+    Alphabet alphabet = Alphabet.LOWERCASE;
+    for (String arg : args) {
+      if (arg.equals("--batch")) {
+        batch = true;
+      } else if (arg.equals(METRICS_ARGUMENT)) {
+        metrics = true;
+      } else if (arg.startsWith(ALPHABET_ARGUMENT)) {
+        String name = arg.substring(ALPHABET_ARGUMENT.length());
+        try {
+          alphabet = Alphabet.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+          System.out.println(ERROR_PREFIX + "unknown alphabet \"" + name
+              + "\", use lowercase, identifier or unicode");
+          return;
+        }
+      }
+    }
+    if (batch) {
+      new ShellBatch(new InputStreamReader(System.in),
+          new OutputStreamWriter(System.out), alphabet, metrics).run();
+      return;
+    }
     BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in));
-    new Shell().handleUserInput(stdin);
+    new Shell(alphabet, metrics).handleUserInput(stdin);
   }
 
   /**
@@ -58,7 +186,7 @@ public final class Shell {
 
       String[] tokens = line.split(" ");
       if (tokens.length == 0) {
-        printError("invalid command, see 'help' for more information");
+        printError(INVALID_COMMAND);
         continue;
       }
 
@@ -71,10 +199,10 @@ public final class Shell {
         case 'd' -> execDeleteCmd(tokens);
         case 'p' -> execPointsCmd(tokens);
         case 't' -> execTrieCmd();
+        case 's' -> execStatsCmd();
         case 'h' -> execHelpCmd();
         case 'q' -> quit = true;
-        default ->
-            printError("invalid command, see 'help' for more information");
+        default -> printError(INVALID_COMMAND);
       }
     }
   }
@@ -84,7 +212,7 @@ public final class Shell {
    * the older one (by overwriting it).
    */
   private void execNewCmd() {
-    trie = new Trie();
+    trie = newTrie(metrics);
   }
 
   /**
@@ -99,7 +227,7 @@ public final class Shell {
   private void execAddCmd(String[] tokens) {
     // The command is: add <name> <points>, thus we need exactly 3 tokens.
     if (tokens.length != 3) {
-      printError("invalid command, see 'help' for more information");
+      printError(INVALID_COMMAND);
       return;
     }
 
@@ -116,20 +244,19 @@ public final class Shell {
     try {
       pointsInt = Integer.parseInt(points);
     } catch (NumberFormatException e) {
-      printError("invalid argument for points, points needs to be an integer "
-          + "value");
+      printError(POINTS_NOT_INTEGER);
       return;
     }
 
     if (pointsInt < 0) {
-      printError("invalid argument for points, points needs to be an integer "
-          + "value greater or equal to 0");
+      printError(POINTS_NEGATIVE);
       return;
     }
 
-    boolean successfullyInserted = trie.add(name, pointsInt);
+    boolean successfullyInserted =
+        trie.putIfAbsentInt(name, pointsInt) == Trie.NO_POINTS;
     if (!successfullyInserted) {
-      printError("an entry with the given name already exists");
+      printError(NAME_EXISTS);
     }
   }
 
@@ -145,7 +272,7 @@ public final class Shell {
    */
   private void execChangeCmd(String[] tokens) {
     if (tokens.length != 3) {
-      printError("invalid command, see 'help' for more information");
+      printError(INVALID_COMMAND);
       return;
     }
 
@@ -162,20 +289,18 @@ public final class Shell {
     try {
       pointsInt = Integer.parseInt(points);
     } catch (NumberFormatException e) {
-      printError("invalid argument for points, points needs to be an integer "
-          + "value");
+      printError(POINTS_NOT_INTEGER);
       return;
     }
 
     if (pointsInt < 0) {
-      printError("invalid argument for points, points needs to be an integer "
-          + "value greater or equal to 0");
+      printError(POINTS_NEGATIVE);
       return;
     }
 
-    boolean successfullyChangedValue = trie.change(name, pointsInt);
+    boolean successfullyChangedValue = trie.changeInt(name, pointsInt);
     if (!successfullyChangedValue) {
-      printError("an entry with the given name does not exist");
+      printError(NAME_MISSING);
     }
 
   }
@@ -193,7 +318,7 @@ public final class Shell {
    */
   private void execDeleteCmd(String[] tokens) {
     if (tokens.length != 2) {
-      printError("invalid command, see 'help' for more information");
+      printError(INVALID_COMMAND);
       return;
     }
 
@@ -206,7 +331,7 @@ public final class Shell {
 
     boolean entryDeleted = trie.remove(name);
     if (!entryDeleted) {
-      printError("an entry with the given name does not exist");
+      printError(NAME_MISSING);
     }
   }
 
@@ -222,7 +347,7 @@ public final class Shell {
    */
   private void execPointsCmd(String[] tokens) {
     if (tokens.length != 2) {
-      printError("invalid command, see 'help' for more information");
+      printError(INVALID_COMMAND);
       return;
     }
 
@@ -233,9 +358,9 @@ public final class Shell {
       return;
     }
 
-    Integer points = trie.points(name);
-    if (points == null) {
-      printError("an entry with the given name does not exist");
+    int points = trie.getInt(name);
+    if (points == Trie.NO_POINTS) {
+      printError(NAME_MISSING);
       return;
     }
     System.out.println(points);
@@ -243,10 +368,91 @@ public final class Shell {
 
   /**
    * Executes the "trie" command which prints the trie in the console. An empty
-   * trie is represented as just "+".
+   * trie is represented as just "+". The trie is streamed to the console, so
+   * its string representation is never held in memory as a whole.
+   *
+   * @throws IOException writing to the console can cause an exception
+   */
+  private void execTrieCmd() throws IOException {
+    /*
+     The writer is not closed as that would close the standard output, it
+     just buffers the single characters written by the trie.
+    */
+    BufferedWriter stdout = new BufferedWriter(
+        new OutputStreamWriter(System.out));
+    trie.writeTo(stdout);
+    stdout.newLine();
+    stdout.flush();
+  }
+
+  /**
+   * Executes the "stats" command which prints the structure of the trie and
+   * how often and how fast the operations ran since the trie was created.
    */
-  private void execTrieCmd() {
-    System.out.println(trie.toString());
+  private void execStatsCmd() {
+    System.out.println(formatStats(trie));
+  }
+
+  /**
+   * Creates an empty trie which records metrics for the "stats" command if
+   * they are enabled.
+   *
+   * @param metrics Weather the trie records metrics about its operations.
+   * @return The new trie.
+   */
+  static Trie newTrie(boolean metrics) {
+    Trie trie = new Trie();
+    if (metrics) {
+      trie.enableMetrics();
+    }
+    return trie;
+  }
+
+  /**
+   * Formats the statistics and metrics of the trie for the "stats" command,
+   * one value per line. Latencies are shown in microseconds and only if the
+   * trie records metrics.
+   *
+   * @param trie The trie to describe.
+   * @return The formatted lines without a trailing line break.
+   */
+  static String formatStats(Trie trie) {
+    TrieStatistics statistics = trie.statistics();
+    TrieMetrics metrics = trie.getMetrics();
+    StringBuilder stats = new StringBuilder();
+    stats.append("keys: ").append(statistics.getKeyCount())
+        .append(System.lineSeparator());
+    stats.append("nodes: ").append(statistics.getNodeCount())
+        .append(System.lineSeparator());
+    stats.append(String.format(Locale.ROOT, "average depth: %.2f%n",
+        statistics.getAverageDepth()));
+    stats.append("max depth: ").append(statistics.getMaxDepth())
+        .append(System.lineSeparator());
+    stats.append("estimated heap: ").append(statistics.getEstimatedBytes())
+        .append(" bytes").append(System.lineSeparator());
+    stats.append("fanout:");
+    long[] fanout = statistics.getFanoutDistribution();
+    for (int children = 0; children < fanout.length; children++) {
+      if (fanout[children] != 0) {
+        stats.append(' ').append(children).append('=').append(fanout[children]);
+      }
+    }
+    if (metrics == null) {
+      return stats.toString();
+    }
+    stats.append(System.lineSeparator());
+    stats.append("remove cascades: ").append(metrics.getRemoveCascades())
+        .append(" (").append(metrics.getRemovedNodes()).append(" nodes)");
+    for (TrieMetrics.Operation operation : TrieMetrics.Operation.values()) {
+      stats.append(System.lineSeparator());
+      stats.append(String.format(Locale.ROOT,
+          "%s: %d calls, p50 %.1fus, p99 %.1fus, max %.1fus",
+          TrieMetrics.nameOf(operation), metrics.getCount(operation),
+          metrics.getLatencyNanos(operation, 50) / 1000.0,
+          metrics.getLatencyNanos(operation, 99) / 1000.0,
+          metrics.getLatencyNanos(operation, 100) / 1000.0));
+    }
+    return stats.toString();
   }
 
   /**
@@ -254,15 +460,7 @@ public final class Shell {
    * possible commands and how to use them.
    */
   private void execHelpCmd() {
-    System.out.println("""
-        new - creates a new trie
-        add <name> <points> - adds a new name with the given points
-        change <name> <points> - changes the points of the given name
-        delete <name> - deletes the given name
-        points <name> - returns the points of the given name
-        trie - prints the trie
-        help - prints this help message
-        quit - quits the program""");
+    System.out.println(HELP);
   }
 
   /**
@@ -271,25 +469,18 @@ public final class Shell {
    * @param message error message to print
    */
   private void printError(String message) {
-    System.out.println("Error! " + message);
+    System.out.println(ERROR_PREFIX + message);
   }
 
   /**
-   * Checks if the given name qualifies our rules of just lowercase letters from
-   * a-z.
+   * Checks if the given name qualifies our rules of the chosen alphabet, by
+   * default just lowercase letters from a-z.
    *
    * @param name The name input by the user.
    * @return An error message if any errors were found, otherwise null.
    */
   private String isValidName(String name) {
-    if (!Objects.equals(name, name.toLowerCase())) {
-      return "invalid argument for name, names can only be lowercase";
-    }
-    if (!name.matches("[a-zA-Z]+")) {
-      return "invalid argument for name, names can only be lowercase "
-          + "letters from the standard alphabet (a-z)";
-    }
-    return null;
+    return alphabet.check(name);
   }
 
 }
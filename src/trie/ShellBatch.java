@@ -0,0 +1,497 @@
+package trie;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * ShellBatch runs the commands of the Shell without prompts, meant for large
+ * files of commands piped into the program. It prints exactly what the
+ * interactive Shell prints for the same input, just without the "trie> "
+ * prompts. The only difference is an empty line or a line starting with a
+ * space, which makes the interactive Shell fail with an exception while the
+ * batch mode reports it as an invalid command.
+ * <p>
+ * Lines are read into a single char buffer and split into tokens by their
+ * positions in it, names are passed to the trie as views into the buffer and
+ * points are parsed in place, so a command does not create any objects. The
+ * output is buffered and written in large chunks.
+ */
+final class ShellBatch {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  // Only the first three tokens are needed, more make every command invalid.
+  private static final int MAX_TOKENS = 3;
+  private static final String LINE_SEPARATOR = System.lineSeparator();
+
+  private final Reader in;
+  private final Writer out;
+  private final Shell.Alphabet alphabet;
+  private final boolean metrics;
+  private Trie trie;
+
+  // The input buffer, the chars from position to limit are not consumed yet.
+  private char[] buffer = new char[BUFFER_SIZE];
+  private int position;
+  private int limit;
+  private boolean endOfInput;
+  // Weather the last line ended with "\r", so a following "\n" is skipped.
+  private boolean skipLineFeed;
+
+  // The bounds of the tokens of the current line and the amount of tokens.
+  private final int[] tokenStarts = new int[MAX_TOKENS];
+  private final int[] tokenEnds = new int[MAX_TOKENS];
+  private int tokenCount;
+
+  private final CharSlice name = new CharSlice();
+  private final char[] digits = new char[11];
+
+  /**
+   * Creates a batch run which reads commands from the given reader.
+   *
+   * @param in  The reader to read the commands from.
+   * @param out The writer to write the results to, it is buffered by the batch
+   *            run.
+   */
+  ShellBatch(Reader in, Writer out) {
+    this(in, out, Shell.Alphabet.LOWERCASE);
+  }
+
+  /**
+   * Creates a batch run which reads commands from the given reader and accepts
+   * names of the given alphabet.
+   *
+   * @param in       The reader to read the commands from.
+   * @param out      The writer to write the results to, it is buffered by the
+   *                 batch run.
+   * @param alphabet The alphabet names can be made of.
+   */
+  ShellBatch(Reader in, Writer out, Shell.Alphabet alphabet) {
+    this(in, out, alphabet, false);
+  }
+
+  /**
+   * Creates a batch run which reads commands from the given reader, accepts
+   * names of the given alphabet and optionally records metrics.
+   *
+   * @param in       The reader to read the commands from.
+   * @param out      The writer to write the results to, it is buffered by the
+   *                 batch run.
+   * @param alphabet The alphabet names can be made of.
+   * @param metrics  Weather the tries record metrics about their operations.
+   */
+  ShellBatch(Reader in, Writer out, Shell.Alphabet alphabet, boolean metrics) {
+    this.in = in;
+    this.out = new BufferedWriter(out, BUFFER_SIZE);
+    this.alphabet = alphabet;
+    this.metrics = metrics;
+    this.trie = Shell.newTrie(metrics);
+  }
+
+  /**
+   * Runs all commands until the input ends or the "quit" command is read and
+   * flushes the output afterwards.
+   *
+   * @throws IOException If reading or writing fails.
+   */
+  void run() throws IOException {
+    try {
+      while (nextLine()) {
+        if (!execLine()) {
+          break;
+        }
+      }
+    } finally {
+      out.flush();
+    }
+  }
+
+  /**
+   * Executes the command on the current line.
+   *
+   * @return False if the command was "quit", otherwise true.
+   * @throws IOException If writing fails.
+   */
+  private boolean execLine() throws IOException {
+    if (tokenCount == 0 || tokenStarts[0] == tokenEnds[0]) {
+      printError(Shell.INVALID_COMMAND);
+      return true;
+    }
+
+    char commandChar = Character.toLowerCase(buffer[tokenStarts[0]]);
+    switch (commandChar) {
+      case 'n' -> trie = Shell.newTrie(metrics);
+      case 'a' -> execAddCmd();
+      case 'c' -> execChangeCmd();
+      case 'd' -> execDeleteCmd();
+      case 'p' -> execPointsCmd();
+      case 't' -> {
+        trie.writeTo(out);
+        out.write(LINE_SEPARATOR);
+      }
+      case 's' -> {
+        out.write(Shell.formatStats(trie));
+        out.write(LINE_SEPARATOR);
+      }
+      case 'h' -> {
+        out.write(Shell.HELP);
+        out.write(LINE_SEPARATOR);
+      }
+      case 'q' -> {
+        return false;
+      }
+      default -> printError(Shell.INVALID_COMMAND);
+    }
+    return true;
+  }
+
+  /**
+   * Executes the "add" command.
+   *
+   * @throws IOException If writing fails.
+   * @see Shell
+   */
+  private void execAddCmd() throws IOException {
+    int points = checkNameAndPoints();
+    if (points >= 0
+        && trie.putIfAbsentInt(name, points) != Trie.NO_POINTS) {
+      printError(Shell.NAME_EXISTS);
+    }
+  }
+
+  /**
+   * Executes the "change" command.
+   *
+   * @throws IOException If writing fails.
+   * @see Shell
+   */
+  private void execChangeCmd() throws IOException {
+    int points = checkNameAndPoints();
+    if (points >= 0 && !trie.changeInt(name, points)) {
+      printError(Shell.NAME_MISSING);
+    }
+  }
+
+  /**
+   * Executes the "delete" command.
+   *
+   * @throws IOException If writing fails.
+   * @see Shell
+   */
+  private void execDeleteCmd() throws IOException {
+    if (checkName() && !trie.remove(name)) {
+      printError(Shell.NAME_MISSING);
+    }
+  }
+
+  /**
+   * Executes the "points" command.
+   *
+   * @throws IOException If writing fails.
+   * @see Shell
+   */
+  private void execPointsCmd() throws IOException {
+    if (!checkName()) {
+      return;
+    }
+    int points = trie.getInt(buffer, name.offset, name.length);
+    if (points == Trie.NO_POINTS) {
+      printError(Shell.NAME_MISSING);
+      return;
+    }
+    writeInt(points);
+    out.write(LINE_SEPARATOR);
+  }
+
+  /**
+   * Checks a command with a name and points in the same order as the Shell
+   * does and prints the error if there is one. The name is set to the second
+   * token.
+   *
+   * @return The points or -1 if an error was printed.
+   * @throws IOException If writing fails.
+   */
+  private int checkNameAndPoints() throws IOException {
+    if (tokenCount != 3) {
+      printError(Shell.INVALID_COMMAND);
+      return -1;
+    }
+    if (!checkToken(1)) {
+      return -1;
+    }
+
+    long points = parsePoints(tokenStarts[2], tokenEnds[2]);
+    if (points == Long.MIN_VALUE) {
+      printError(Shell.POINTS_NOT_INTEGER);
+      return -1;
+    }
+    if (points < 0) {
+      printError(Shell.POINTS_NEGATIVE);
+      return -1;
+    }
+    return (int) points;
+  }
+
+  /**
+   * Checks a command with just a name and prints the error if there is one.
+   * The name is set to the second token.
+   *
+   * @return Weather the command is valid.
+   * @throws IOException If writing fails.
+   */
+  private boolean checkName() throws IOException {
+    if (tokenCount != 2) {
+      printError(Shell.INVALID_COMMAND);
+      return false;
+    }
+    return checkToken(1);
+  }
+
+  /**
+   * Checks if the given token qualifies the rules for names, prints the same
+   * error as the Shell if not and otherwise sets the name to the token.
+   *
+   * @param token The index of the token.
+   * @return Weather the token is a valid name.
+   * @throws IOException If writing fails.
+   */
+  private boolean checkToken(int token) throws IOException {
+    int start = tokenStarts[token];
+    int end = tokenEnds[token];
+    name.array = buffer;
+    name.offset = start;
+    name.length = end - start;
+    if (alphabet != Shell.Alphabet.LOWERCASE) {
+      String message = alphabet.check(name);
+      if (message != null) {
+        printError(message);
+        return false;
+      }
+      return true;
+    }
+
+    // The first check of the Shell is if lowercasing changes the name.
+    for (int i = start; i < end; i++) {
+      char ch = buffer[i];
+      boolean changesWhenLowercased;
+      if (ch < 128) {
+        changesWhenLowercased = ch >= 'A' && ch <= 'Z';
+      } else {
+        int codePoint = Character.codePointAt(buffer, i, end);
+        changesWhenLowercased = Character.toLowerCase(codePoint) != codePoint;
+      }
+      if (changesWhenLowercased) {
+        printError(Shell.NAME_NOT_LOWERCASE);
+        return false;
+      }
+    }
+
+    boolean onlyLetters = start < end;
+    for (int i = start; i < end && onlyLetters; i++) {
+      onlyLetters = buffer[i] >= 'a' && buffer[i] <= 'z';
+    }
+    if (!onlyLetters) {
+      printError(Shell.NAME_NOT_ALPHABET);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Parses points with the same rules as Integer#parseInt(String) without
+   * creating a string.
+   *
+   * @param start The start of the points in the buffer.
+   * @param end   The end of the points in the buffer.
+   * @return The points or Long.MIN_VALUE if they are no valid integer.
+   */
+  private long parsePoints(int start, int end) {
+    int i = start;
+    boolean negative = false;
+    if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+      negative = buffer[i] == '-';
+      i++;
+    }
+    if (i == end) {
+      return Long.MIN_VALUE;
+    }
+
+    long value = 0;
+    for (; i < end; i++) {
+      char ch = buffer[i];
+      int digit = ch < 128 ? ch - '0' : Character.digit(ch, 10);
+      if (digit < 0 || digit > 9) {
+        return Long.MIN_VALUE;
+      }
+      value = value * 10 + digit;
+      if (value > -(long) Integer.MIN_VALUE) {
+        return Long.MIN_VALUE;
+      }
+    }
+    if (negative) {
+      return -value;
+    }
+    return value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+  }
+
+  /**
+   * Prints the given error message with the same prefix as the Shell.
+   *
+   * @param message error message to print
+   * @throws IOException If writing fails.
+   */
+  private void printError(String message) throws IOException {
+    out.write(Shell.ERROR_PREFIX);
+    out.write(message);
+    out.write(LINE_SEPARATOR);
+  }
+
+  /**
+   * Writes an int in decimal without creating a string.
+   *
+   * @param value The value to write.
+   * @throws IOException If writing fails.
+   */
+  private void writeInt(int value) throws IOException {
+    if (value < 0) {
+      out.write('-');
+    }
+    long remaining = Math.abs((long) value);
+    int position = digits.length;
+    do {
+      digits[--position] = (char) ('0' + remaining % 10);
+      remaining /= 10;
+    } while (remaining > 0);
+    out.write(digits, position, digits.length - position);
+  }
+
+  /**
+   * Reads the next line and splits it into tokens at every single space like
+   * String#split(" ") does, so spaces at the end of the line are ignored.
+   * Lines end at "\n", "\r" or "\r\n" like in BufferedReader#readLine().
+   *
+   * @return False if the input ended, otherwise true.
+   * @throws IOException If reading fails.
+   */
+  private boolean nextLine() throws IOException {
+    int scan = position;
+    while (true) {
+      if (skipLineFeed && position < limit) {
+        if (buffer[position] == '\n') {
+          position++;
+        }
+        skipLineFeed = false;
+        scan = position;
+      }
+
+      for (; scan < limit; scan++) {
+        char ch = buffer[scan];
+        if (ch == '\n' || ch == '\r') {
+          tokenize(position, scan);
+          position = scan + 1;
+          skipLineFeed = ch == '\r';
+          return true;
+        }
+      }
+
+      if (endOfInput) {
+        if (position == limit) {
+          return false;
+        }
+        tokenize(position, limit);
+        position = limit;
+        return true;
+      }
+      scan = fill(scan);
+    }
+  }
+
+  /**
+   * Moves the unconsumed chars to the start of the buffer, grows it if a line
+   * does not fit and reads more input.
+   *
+   * @param scan The position up to which the buffer was already scanned.
+   * @return The scan position after moving the chars.
+   * @throws IOException If reading fails.
+   */
+  private int fill(int scan) throws IOException {
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, limit - position);
+      limit -= position;
+      scan -= position;
+      position = 0;
+    }
+    if (limit == buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+    int read = in.read(buffer, limit, buffer.length - limit);
+    if (read < 0) {
+      endOfInput = true;
+    } else {
+      limit += read;
+    }
+    return scan;
+  }
+
+  /**
+   * Splits the given line into tokens.
+   *
+   * @param start The start of the line in the buffer.
+   * @param end   The end of the line in the buffer.
+   */
+  private void tokenize(int start, int end) {
+    while (end > start && buffer[end - 1] == ' ') {
+      end--;
+    }
+    tokenCount = 0;
+    if (end == start) {
+      return;
+    }
+
+    int tokenStart = start;
+    for (int i = start; i <= end; i++) {
+      if (i == end || buffer[i] == ' ') {
+        if (tokenCount < MAX_TOKENS) {
+          tokenStarts[tokenCount] = tokenStart;
+          tokenEnds[tokenCount] = i;
+        }
+        tokenCount++;
+        tokenStart = i + 1;
+      }
+    }
+  }
+
+  /**
+   * CharSlice is a reusable view on a part of the input buffer, so names can be
+   * passed to the trie without copying them.
+   */
+  private static final class CharSlice implements CharSequence {
+
+    private char[] array;
+    private int offset;
+    private int length;
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return array[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return new String(array, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+      return new String(array, offset, length);
+    }
+  }
+
+}
@@ -1,16 +1,64 @@
 package trie;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.Stream;
+
 /**
  * Trie is the general representation of the whole data structure. It has one
- * root Node element which can not be deleted.
+ * root Node element which can not be deleted. Points are stored as primitive
+ * int values, the methods working with Integer are thin adapters around the
+ * primitive ones (suffixed with "Int") for callers which prefer null over the
+ * NO_POINTS sentinel.
+ * <p>
+ * Trie#snapshot() hands out immutable views in constant time. Nodes are only
+ * changed in place by the trie version which owns them, every change after a
+ * snapshot copies just the nodes on the path of the changed key and leaves
+ * the nodes of the snapshot untouched.
  */
 public class Trie {
 
   /**
-   * The trie always has final root element which never undergoes any changes
-   * but adding and removing children.
+   * Returned by the primitive methods if a key has no points, this value can
+   * therefore not be used as points itself.
+   */
+  public static final int NO_POINTS = Node.NO_POINTS;
+
+  /*
+   The token of the current trie version, only nodes owned by this token are
+   changed in place. Taking a snapshot replaces the token, so all existing
+   nodes are shared with the snapshot from then on.
+  */
+  private Object owner = new Object();
+  /**
+   * The trie always has a root element which never undergoes any changes but
+   * adding and removing children. It is only replaced by a copy of itself if
+   * it is shared with a snapshot.
    */
-  private final Node root = new Node();
+  private Node root = new Node(owner);
+  /*
+   The nodes visited by the last walk down the trie, path[i] is the node for
+   the first i characters of the key and path[0] is the root.
+  */
+  private Node[] path = new Node[16];
+  // The metrics which record the operations or null if they are disabled.
+  private TrieMetrics metrics;
+  // The cache of the points of hot keys or null if it is disabled.
+  private TrieCache cache;
+  /*
+   The amount of removed keys whose nodes are kept until the next compaction,
+   0 if removals unlink the nodes right away.
+  */
+  private int compactThreshold;
+  // The keys removed since the last compaction.
+  private String[] pendingRemovals;
+  private int pendingRemovalCount;
 
   /**
    * Constructs an empty Trie.
@@ -18,73 +66,439 @@ public class Trie {
   public Trie() {
   }
 
+  /**
+   * Constructs a Trie around an already built structure.
+   *
+   * @param owner The token which owns the nodes of the structure.
+   * @param root  The root node of the structure.
+   * @see TrieBuilder
+   */
+  Trie(Object owner, Node root) {
+    this.owner = owner;
+    this.root = root;
+  }
+
+  /**
+   * Builds a trie from entries sorted by key in one pass, which is much faster
+   * than adding them one by one.
+   *
+   * @param entries The entries sorted by key without duplicates.
+   * @return The trie with all entries.
+   * @throws IllegalArgumentException If the keys are not sorted or contain
+   *                                  duplicates or if points are null or
+   *                                  NO_POINTS.
+   * @see TrieBuilder
+   */
+  public static Trie bulkLoad(
+      Stream<? extends Map.Entry<? extends CharSequence, Integer>> entries) {
+    TrieBuilder builder = new TrieBuilder();
+    entries.forEachOrdered(entry -> {
+      Integer points = entry.getValue();
+      if (points == null) {
+        throw new IllegalArgumentException(
+            "points of key \"" + entry.getKey() + "\" can not be null");
+      }
+      builder.add(entry.getKey(), points);
+    });
+    return builder.build();
+  }
+
+  /**
+   * Builds a trie from entries sorted by key like Trie#bulkLoad(Stream), but
+   * builds partitions of the keys in parallel with the threads of the given
+   * pool.
+   *
+   * @param entries The entries sorted by key without duplicates, the list
+   *                should support fast random access.
+   * @param pool    The pool whose threads build the trie.
+   * @return The trie with all entries.
+   * @throws IllegalArgumentException If the keys are not sorted or contain
+   *                                  duplicates or if points are null or
+   *                                  NO_POINTS.
+   */
+  public static Trie bulkLoad(
+      List<? extends Map.Entry<? extends CharSequence, Integer>> entries,
+      ForkJoinPool pool) {
+    return ParallelTrieBuilder.build(entries, pool);
+  }
+
+  /**
+   * Makes sure the given points can be stored, which is every value except the
+   * NO_POINTS sentinel.
+   *
+   * @param points The points to check.
+   * @return The given points.
+   * @throws IllegalArgumentException If the points equal NO_POINTS.
+   */
+  private static int checkPoints(int points) {
+    if (points == NO_POINTS) {
+      throw new IllegalArgumentException("points can not be " + NO_POINTS);
+    }
+    return points;
+  }
+
+  /**
+   * Converts primitive points into the boxed representation.
+   *
+   * @param points The points or NO_POINTS.
+   * @return The boxed points or null for NO_POINTS.
+   */
+  private static Integer toBoxed(int points) {
+    if (points == NO_POINTS) {
+      return null;
+    }
+    return points;
+  }
+
   /**
    * @param key    The key for which to store the points value.
    * @param points The value of points to associate with the given key.
    * @return Returns false in the case that the key already exists as we do not
    * want to overwrite points, otherwise always returns true.
    */
-  public boolean add(String key, Integer points) {
+  public boolean add(CharSequence key, Integer points) {
     /*
-     We check if an entry with the given key already exists and return false
-     if it does. Using the points method as a key might exist just as a
-     node to point to another node without any value associated, and we
-     only disallow keys which have points set to them not keys which
-     have the nodes setup already but no value to it.
+     A key might exist just as a node to point to another node without any
+     value associated, and we only disallow keys which have points set to
+     them not keys which have the nodes setup already but no value to it.
     */
-    boolean alreadyExists = this.points(key) != null;
-    if (alreadyExists) {
-      return false;
+    return putIfAbsentInt(key, points) == NO_POINTS;
+  }
+
+  /**
+   * Associates the given points with the key if the key has no points yet.
+   * The lookup and the insertion happen in a single walk down the trie.
+   *
+   * @param key    The key for which to store the points value.
+   * @param points The value of points to associate with the given key.
+   * @return The points which are already associated with the key or null if
+   * the given points have been stored.
+   */
+  public Integer putIfAbsent(CharSequence key, Integer points) {
+    return toBoxed(putIfAbsentInt(key, points));
+  }
+
+  /**
+   * Associates the given points with the key if the key has no points yet.
+   * The lookup and the insertion happen in a single walk down the trie.
+   *
+   * @param key    The key for which to store the points value.
+   * @param points The value of points to associate with the given key.
+   * @return The points which are already associated with the key or NO_POINTS
+   * if the given points have been stored.
+   * @throws IllegalArgumentException If the points equal NO_POINTS.
+   */
+  public int putIfAbsentInt(CharSequence key, int points) {
+    checkPoints(points);
+    long start = startTimer();
+    // Only keys with points are cached, so adding points keeps the cache valid.
+    Node node = findOrCreatePath(key);
+    int previousPoints = node.getPoints();
+    if (previousPoints == NO_POINTS) {
+      setPoints(key.length(), points);
+    }
+    stopTimer(TrieMetrics.Operation.ADD, start);
+    return previousPoints;
+  }
+
+  /**
+   * Associates the given points with the key, overwriting the points it might
+   * already have.
+   *
+   * @param key    The key for which to store the points value.
+   * @param points The value of points to associate with the given key.
+   * @return The points which were associated with the key before or null if
+   * the key did not exist.
+   */
+  public Integer put(CharSequence key, Integer points) {
+    return toBoxed(replacePoints(key, points));
+  }
+
+  /**
+   * Associates the given points with the key, overwriting the points it might
+   * already have.
+   *
+   * @param key    The key for which to store the points value.
+   * @param points The value of points to associate with the given key.
+   * @return Returns true if the key did not exist before, false if its points
+   * got overwritten.
+   * @throws IllegalArgumentException If the points equal NO_POINTS.
+   */
+  public boolean putInt(CharSequence key, int points) {
+    return replacePoints(key, points) == NO_POINTS;
+  }
+
+  /**
+   * Stores the given points for the key in a single walk down the trie.
+   *
+   * @param key    The key for which to store the points value.
+   * @param points The value of points to associate with the given key.
+   * @return The points the key had before or NO_POINTS.
+   * @throws IllegalArgumentException If the points equal NO_POINTS.
+   */
+  private int replacePoints(CharSequence key, int points) {
+    checkPoints(points);
+    long start = startTimer();
+    invalidateCached(key);
+    Node node = findOrCreatePath(key);
+    int previousPoints = node.getPoints();
+    setPoints(key.length(), points);
+    stopTimer(TrieMetrics.Operation.PUT, start);
+    return previousPoints;
+  }
+
+  /**
+   * Computes new points for an existing key from its current points. If the
+   * function returns null the key is removed.
+   *
+   * @param key               The key for which to compute the points.
+   * @param remappingFunction The function which computes the new points from
+   *                          the key and its current points.
+   * @return The new points or null if the key does not exist or got removed.
+   */
+  public Integer computeIfPresent(CharSequence key,
+      BiFunction<? super CharSequence, ? super Integer, ? extends Integer>
+          remappingFunction) {
+    long start = startTimer();
+    invalidateCached(key);
+    Node node = findPath(key);
+    if (node == null || !node.hasPoints()) {
+      stopTimer(TrieMetrics.Operation.MERGE, start);
+      return null;
+    }
+
+    Integer points = remappingFunction.apply(key, node.getPoints());
+    makePathOwned(key.length());
+    if (points == null) {
+      removePoints(key);
+    } else {
+      setPoints(key.length(), checkPoints(points));
+    }
+    stopTimer(TrieMetrics.Operation.MERGE, start);
+    return points;
+  }
+
+  /**
+   * Merges the given points into the points of the key, which is mostly used
+   * to increment points, e.g. merge(key, 10, Integer::sum). A key which does
+   * not exist yet gets the given points, otherwise the function combines the
+   * current and the given points. If the function returns null the key is
+   * removed.
+   *
+   * @param key               The key for which to merge the points.
+   * @param points            The points to merge into the current points.
+   * @param remappingFunction The function which combines the current and the
+   *                          given points.
+   * @return The new points or null if the key got removed.
+   */
+  public Integer merge(CharSequence key, Integer points,
+      BiFunction<? super Integer, ? super Integer, ? extends Integer>
+          remappingFunction) {
+    checkPoints(points);
+    long start = startTimer();
+    invalidateCached(key);
+    Node node = findOrCreatePath(key);
+    if (!node.hasPoints()) {
+      setPoints(key.length(), points);
+      stopTimer(TrieMetrics.Operation.MERGE, start);
+      return points;
+    }
+
+    Integer mergedPoints = remappingFunction.apply(node.getPoints(), points);
+    if (mergedPoints == null) {
+      removePoints(key);
+    } else {
+      setPoints(key.length(), checkPoints(mergedPoints));
+    }
+    stopTimer(TrieMetrics.Operation.MERGE, start);
+    return mergedPoints;
+  }
+
+  /**
+   * Merges the given points into the points of the key without boxing, e.g.
+   * mergeInt(key, 10, Integer::sum) to increment points. A key which does not
+   * exist yet gets the given points, otherwise the operator combines the
+   * current and the given points. If the operator returns NO_POINTS the key is
+   * removed.
+   *
+   * @param key      The key for which to merge the points.
+   * @param points   The points to merge into the current points.
+   * @param operator The operator which combines the current and the given
+   *                 points.
+   * @return The new points or NO_POINTS if the key got removed.
+   * @throws IllegalArgumentException If the given points equal NO_POINTS.
+   */
+  public int mergeInt(CharSequence key, int points,
+      IntBinaryOperator operator) {
+    checkPoints(points);
+    long start = startTimer();
+    invalidateCached(key);
+    Node node = findOrCreatePath(key);
+    if (!node.hasPoints()) {
+      setPoints(key.length(), points);
+      stopTimer(TrieMetrics.Operation.MERGE, start);
+      return points;
+    }
+
+    int mergedPoints = operator.applyAsInt(node.getPoints(), points);
+    if (mergedPoints == NO_POINTS) {
+      removePoints(key);
+    } else {
+      setPoints(key.length(), mergedPoints);
+    }
+    stopTimer(TrieMetrics.Operation.MERGE, start);
+    return mergedPoints;
+  }
+
+  /**
+   * Merges all keys of the other trie into this trie by walking both tries at
+   * once. Subtrees which only exist in the other trie are linked into this
+   * trie as they are instead of being copied key by key, afterwards they are
+   * shared between both tries and copied on their next change like the nodes
+   * of a snapshot. Keys which exist in both tries get the points the operator
+   * calculates from the points in this and in the other trie, if it returns
+   * NO_POINTS the key is removed. The other trie stays unchanged.
+   *
+   * @param other    The trie whose keys to merge into this trie.
+   * @param operator The operator which combines the points of this and the
+   *                 other trie for keys which exist in both.
+   */
+  public void merge(Trie other, IntBinaryOperator operator) {
+    compact();
+    Node otherRoot = other.root;
+    // The other trie may not change the nodes it shares with this trie anymore.
+    other.owner = new Object();
+    if (!root.isOwnedBy(owner)) {
+      root = root.copy(owner);
     }
 
     /*
-     At start the lastNode is always the global root from which all nodes
-     start, it will store the currently last node which points to the name.
-     So for key "abc" lastNode is the root node at the beginning, then the
-     "a" node, then "b", then "c". The last node (here "c") will then
-     have the points assigned.
+     The pairs of nodes with the same key in both tries are walked depth first,
+     path[i] is the owned node of this trie, sources[i] the node of the other
+     trie and nextSources[i] the next child of sources[i] to merge.
     */
-    Node lastNode = root;
-    for (char c : key.toCharArray()) {
-      /*
-       If the lastNode has a child with the needed character, we set the
-       child as the lastNode and continue.
-      */
-      Node existingNode = lastNode.getChild(c);
-      if (existingNode != null) {
-        lastNode = existingNode;
+    Node[] sources = new Node[path.length];
+    Node[] nextSources = new Node[path.length];
+    int depth = 0;
+    path[0] = root;
+    sources[0] = otherRoot;
+    nextSources[0] = otherRoot.getFirstChild();
+    mergePoints(root, otherRoot, operator);
+
+    while (depth >= 0) {
+      Node source = nextSources[depth];
+      if (source == null) {
+        // All children are merged, so the node itself is complete.
+        Node node = path[depth];
+        node.updateAggregates();
+        if (depth > 0) {
+          if (!node.hasPoints() && !node.hasChildren()) {
+            path[depth - 1].removeChild(node.getCharacter());
+          }
+          path[depth] = null;
+        }
+        depth--;
+        continue;
+      }
+
+      char ch = source.getCharacter();
+      nextSources[depth] = sources[depth].getNextChild(ch);
+      Node parent = path[depth];
+      if (parent.getChild(ch) == null) {
+        parent.putChild(ch, source);
         continue;
       }
 
-      // If no child node with such character exists we create it here.
-      lastNode = new Node(c, lastNode);
+      depth++;
+      if (depth == path.length) {
+        path = Arrays.copyOf(path, depth * 2);
+        sources = Arrays.copyOf(sources, depth * 2);
+        nextSources = Arrays.copyOf(nextSources, depth * 2);
+      }
+      Node node = parent.getOwnedChild(ch, owner);
+      path[depth] = node;
+      sources[depth] = source;
+      nextSources[depth] = source.getFirstChild();
+      mergePoints(node, source, operator);
     }
+    /*
+     Grafted subtrees may still hold the branches of keys the other trie
+     removed lazily, they are unlinked here while the other trie keeps them.
+    */
+    compactPaths(other.pendingRemovals, other.pendingRemovalCount);
+    if (metrics != null) {
+      // Grafted subtrees are not walked, so the nodes are counted again.
+      metrics.setStatistics(TrieStatistics.of(root));
+    }
+    if (cache != null) {
+      cache.clear();
+    }
+  }
 
-    // Set the points to the lastNode created/received.
-    lastNode.setPoints(points);
-    return true;
+  /**
+   * Merges the points of a node of the other trie into the owned node with the
+   * same key.
+   *
+   * @param node     The owned node of this trie.
+   * @param source   The node of the other trie.
+   * @param operator The operator which combines the points if both nodes have
+   *                 points.
+   */
+  private static void mergePoints(Node node, Node source,
+      IntBinaryOperator operator) {
+    if (!source.hasPoints()) {
+      return;
+    }
+    if (node.hasPoints()) {
+      node.setPoints(operator.applyAsInt(node.getPoints(), source.getPoints()));
+    } else {
+      node.setPoints(source.getPoints());
+    }
   }
 
   /**
    * Removes the key nodes from the trie as long as no other nodes are affected.
-   * For a detailed documentation on how the removal works, see the
-   * Node#remove() method.
+   * Nodes which are only there to link to the removed key are removed as
+   * well, see Trie#removePoints(int).
    *
    * @param key The key (name) to remove from the trie.
    * @return Returns false if the key does not exist, otherwise always
    * returns true.
-   * @see Node#remove()
    */
-  public boolean remove(String key) {
-    Node node = root.find(key);
-    if (node == null) {
-      return false;
-    }
-    if (node.getPoints() == null) {
-      return false;
+  public boolean remove(CharSequence key) {
+    return removeAndGetInt(key) != NO_POINTS;
+  }
+
+  /**
+   * Removes the key from the trie like Trie#remove(CharSequence) and returns
+   * the points it had.
+   *
+   * @param key The key (name) to remove from the trie.
+   * @return The points the key had before or null if the key does not exist.
+   */
+  public Integer removeAndGet(CharSequence key) {
+    return toBoxed(removeAndGetInt(key));
+  }
+
+  /**
+   * Removes the key from the trie like Trie#remove(CharSequence) and returns
+   * the points it had.
+   *
+   * @param key The key (name) to remove from the trie.
+   * @return The points the key had before or NO_POINTS if the key does not
+   * exist.
+   */
+  public int removeAndGetInt(CharSequence key) {
+    long start = startTimer();
+    invalidateCached(key);
+    Node node = findPath(key);
+    int previousPoints = node == null ? NO_POINTS : node.getPoints();
+    if (previousPoints != NO_POINTS) {
+      makePathOwned(key.length());
+      removePoints(key);
     }
-    node.remove();
-    return true;
+    stopTimer(TrieMetrics.Operation.REMOVE, start);
+    return previousPoints;
   }
 
   /**
@@ -95,18 +509,505 @@ public class Trie {
    * @return Returns false if the key does not exist, otherwise always
    * returns true.
    */
-  public boolean change(String key, Integer points) {
-    Node node = root.find(key);
-    if (node == null) {
-      return false;
+  public boolean change(CharSequence key, Integer points) {
+    return changeInt(key, points);
+  }
+
+  /**
+   * Changes the points value of a specific key to the given points.
+   *
+   * @param key    The key for which to change the points for.
+   * @param points The new points to assign.
+   * @return Returns false if the key does not exist, otherwise always
+   * returns true.
+   * @throws IllegalArgumentException If the points equal NO_POINTS.
+   */
+  public boolean changeInt(CharSequence key, int points) {
+    checkPoints(points);
+    long start = startTimer();
+    invalidateCached(key);
+    Node node = findPath(key);
+    boolean exists = node != null && node.hasPoints();
+    if (exists) {
+      makePathOwned(key.length());
+      setPoints(key.length(), points);
     }
+    stopTimer(TrieMetrics.Operation.CHANGE, start);
+    return exists;
+  }
 
-    if (node.getPoints() == null) {
-      return false;
+  /**
+   * Starts recording metrics about the operations on this trie, which costs a
+   * few nanoseconds per operation. Counting the nodes of the trie walks it
+   * once, so enabling the metrics takes linear time.
+   *
+   * @return The metrics of this trie, the same as before if they are enabled
+   * already.
+   */
+  public TrieMetrics enableMetrics() {
+    if (metrics == null) {
+      metrics = new TrieMetrics(TrieStatistics.of(root));
     }
+    return metrics;
+  }
+
+  /**
+   * Stops recording metrics. The metrics recorded so far stay readable through
+   * the TrieMetrics object, but are not updated anymore.
+   */
+  public void disableMetrics() {
+    metrics = null;
+  }
 
-    node.setPoints(points);
-    return true;
+  /**
+   * Gets the metrics of this trie.
+   *
+   * @return The metrics or null if they are not enabled.
+   */
+  public TrieMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Starts caching the points of frequently read keys, so reading them again
+   * does not walk the trie. This pays off if a few keys make up most reads and
+   * the capacity holds them, every miss costs a few extra memory accesses.
+   * Keys given as CharSequence or char array are cached, ASCII byte keys are
+   * always looked up in the trie. Every change of a key removes it from the
+   * cache, merging another trie clears the whole cache.
+   *
+   * @param capacity The maximum amount of cached keys.
+   * @return The new, empty cache which also counts its hits and misses.
+   * @throws IllegalArgumentException If the capacity is not positive or
+   *                                  larger than 2^29.
+   * @see TrieCache
+   */
+  public TrieCache enableCache(int capacity) {
+    cache = new TrieCache(capacity);
+    return cache;
+  }
+
+  /**
+   * Stops caching points and drops the cache.
+   */
+  public void disableCache() {
+    cache = null;
+  }
+
+  /**
+   * Gets the cache of this trie.
+   *
+   * @return The cache or null if it is not enabled.
+   */
+  public TrieCache getCache() {
+    return cache;
+  }
+
+  /**
+   * Makes removals lazy: a removed key only loses its points and the nodes
+   * which only led to it stay in the trie until the next compaction, so the
+   * children arrays of their parents are not shrunk on every removal and keys
+   * which are added again reuse their nodes. Once the given amount of keys
+   * were removed, their branches are unlinked in one batch, see
+   * Trie#compact(). The kept nodes are invisible to all queries but take
+   * memory until then.
+   *
+   * @param threshold The amount of removed keys which triggers a compaction.
+   * @throws IllegalArgumentException If the threshold is not positive.
+   */
+  public void enableLazyRemoval(int threshold) {
+    if (threshold <= 0) {
+      throw new IllegalArgumentException("threshold has to be positive");
+    }
+    if (pendingRemovalCount >= threshold) {
+      compact();
+    }
+    if (pendingRemovals == null) {
+      pendingRemovals = new String[0];
+    }
+    compactThreshold = threshold;
+  }
+
+  /**
+   * Compacts the nodes of all lazily removed keys and removes keys right away
+   * again from now on.
+   */
+  public void disableLazyRemoval() {
+    compact();
+    compactThreshold = 0;
+    pendingRemovals = null;
+  }
+
+  /**
+   * Unlinks the branches which are left over by lazy removals, e.g. to free
+   * their memory while the trie is idle instead of waiting for the threshold.
+   * Only the paths of the keys removed since the last compaction are walked:
+   * the highest node on each path without any keys below it is removed from
+   * its parent together with its whole subtree. Keys which were added again
+   * in the meantime keep their nodes.
+   */
+  public void compact() {
+    compactPaths(pendingRemovals, pendingRemovalCount);
+    for (int i = 0; i < pendingRemovalCount; i++) {
+      pendingRemovals[i] = null;
+    }
+    pendingRemovalCount = 0;
+  }
+
+  /**
+   * Unlinks the highest node without any keys below it on the path of each
+   * given key, see Trie#compact().
+   *
+   * @param keys  The lazily removed keys, might be null if there are none.
+   * @param count The amount of keys.
+   */
+  private void compactPaths(String[] keys, int count) {
+    for (int i = 0; i < count; i++) {
+      String key = keys[i];
+      ensurePathCapacity(key.length());
+      Node node = root;
+      path[0] = node;
+      for (int depth = 1; depth <= key.length(); depth++) {
+        node = node.getChild(key.charAt(depth - 1));
+        if (node == null) {
+          // An earlier key in the batch removed the branch already.
+          break;
+        }
+        path[depth] = node;
+        if (node.getCount() == 0) {
+          if (metrics != null) {
+            metrics.nodesRemoved(
+                (int) TrieStatistics.of(node).getNodeCount());
+          }
+          // The branch has no aggregates, so the ones above stay the same.
+          makePathOwned(depth - 1);
+          path[depth - 1].removeChild(node.getCharacter());
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the amount of lazily removed keys whose nodes are not compacted yet.
+   *
+   * @return The amount of pending removals, always 0 if removals are not
+   * lazy.
+   */
+  public int getPendingRemovals() {
+    return pendingRemovalCount;
+  }
+
+  /**
+   * Walks the whole trie to describe its structure. If metrics are enabled,
+   * they keep the statistics as the latest ones, e.g. for JMX. The trie must
+   * not be changed while walking it.
+   *
+   * @return The statistics of the current structure.
+   */
+  public TrieStatistics statistics() {
+    TrieStatistics statistics = TrieStatistics.of(root);
+    if (metrics != null) {
+      metrics.setStatistics(statistics);
+    }
+    return statistics;
+  }
+
+  /**
+   * Reads the clock if metrics are enabled.
+   *
+   * @return The current time in nanoseconds or 0 if metrics are disabled.
+   */
+  private long startTimer() {
+    return metrics == null ? 0 : System.nanoTime();
+  }
+
+  /**
+   * Records the time an operation took if metrics are enabled.
+   *
+   * @param operation The operation.
+   * @param start     The time returned by Trie#startTimer().
+   */
+  private void stopTimer(TrieMetrics.Operation operation, long start) {
+    if (metrics != null) {
+      metrics.record(operation, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Creates an immutable view of the current state of the trie in constant
+   * time. Later changes to this trie are not visible in the snapshot, they
+   * copy the nodes on their path instead of changing the shared ones. Nodes
+   * which are only referenced by snapshots become garbage together with the
+   * last of those snapshots.
+   *
+   * @return The snapshot of the current state.
+   */
+  public TrieSnapshot snapshot() {
+    /*
+     With a new token no existing node is owned by this trie anymore, so the
+     next change of each of them creates a copy.
+    */
+    owner = new Object();
+    return new TrieSnapshot(root);
+  }
+
+  /**
+   * Copies the trie into an immutable succinct layout which takes a fraction
+   * of the memory, for tries which are only read from now on. The copy takes
+   * time linear to the amount of nodes, later changes to this trie are not
+   * visible in it.
+   *
+   * @return The frozen copy of the current state.
+   * @see FrozenTrie
+   */
+  public FrozenTrie freeze() {
+    compact();
+    return FrozenTrie.of(root);
+  }
+
+  /**
+   * Copies the trie into a minimal acyclic automaton which shares equal
+   * suffixes of the keys, for large key sets with common endings which are
+   * only read from now on. Its string representation reports how much it
+   * compressed the trie.
+   *
+   * @return The Dawg of the current state.
+   * @see Dawg
+   */
+  public Dawg toDawg() {
+    compact();
+    return Dawg.of(root);
+  }
+
+  /**
+   * Copies the trie into a CompactTrie, which keeps the nodes in flat
+   * primitive columns instead of Node objects and takes a fraction of the
+   * memory. It supports the changes and lookups of single keys but none of
+   * the other features of this trie. Later changes to this trie are not
+   * visible in it.
+   *
+   * @return The compact copy of the current state.
+   * @see CompactTrie
+   */
+  public CompactTrie toCompact() {
+    compact();
+    return CompactTrie.of(root);
+  }
+
+  /**
+   * Gets the current root node of the trie for read-only access within the
+   * package. Nodes must not be changed through it.
+   *
+   * @return The current root node.
+   */
+  Node getRoot() {
+    return root;
+  }
+
+  /**
+   * Walks down the trie along the given key and records the visited nodes in
+   * the path without changing anything.
+   *
+   * @param key The key for which to look for.
+   * @return The node for the last letter in the key or null if it does not
+   * exist.
+   */
+  private Node findPath(CharSequence key) {
+    ensurePathCapacity(key.length());
+    Node node = root;
+    path[0] = node;
+    for (int i = 0; i < key.length(); i++) {
+      node = node.getChild(key.charAt(i));
+      if (node == null) {
+        return null;
+      }
+      path[i + 1] = node;
+    }
+    return node;
+  }
+
+  /**
+   * Walks down the trie along the given key and records the visited nodes in
+   * the path. Missing nodes are created and nodes which are shared with a
+   * snapshot are copied on the way, so the whole path can be changed in place
+   * afterwards.
+   *
+   * @param key The key for which to look for.
+   * @return The owned node for the last letter in the key.
+   */
+  private Node findOrCreatePath(CharSequence key) {
+    ensurePathCapacity(key.length());
+    Node node = makePathOwned(0);
+    // Lazily removed keys leave nodes behind which look like new ones.
+    boolean countMissing = metrics != null && pendingRemovalCount > 0;
+    int missing = 0;
+    for (int i = 0; i < key.length(); i++) {
+      char ch = key.charAt(i);
+      if (countMissing && node.getChild(ch) == null) {
+        missing++;
+      }
+      node = node.getOwnedChild(ch, owner);
+      path[i + 1] = node;
+    }
+    if (metrics != null) {
+      metrics.nodesAdded(countMissing ? missing
+          : countCreatedNodes(key.length()));
+    }
+    return node;
+  }
+
+  /**
+   * Counts the nodes findOrCreatePath(CharSequence) just created at the end of
+   * the recorded path. Without pending lazy removals every existing node but
+   * the root has points or children, so the last node is new if it has
+   * neither. A node above a new
+   * node is new itself if the new node is its only child and it has no
+   * points, an existing node would have had another child or points already.
+   *
+   * @param depth The depth of the last node of the path.
+   * @return The amount of created nodes.
+   */
+  private int countCreatedNodes(int depth) {
+    Node last = path[depth];
+    if (depth == 0 || last.hasPoints() || last.hasChildren()) {
+      return 0;
+    }
+    int created = 1;
+    for (int i = depth - 1; i > 0; i--) {
+      Node node = path[i];
+      if (node.hasPoints() || node.getChildrenCount() != 1) {
+        break;
+      }
+      created++;
+    }
+    return created;
+  }
+
+  /**
+   * Makes sure the nodes of the recorded path up to the given depth can be
+   * changed in place by copying every node which is shared with a snapshot,
+   * starting from the root.
+   *
+   * @param depth The depth of the last node of the path.
+   * @return The owned node at the given depth.
+   */
+  private Node makePathOwned(int depth) {
+    if (!root.isOwnedBy(owner)) {
+      root = root.copy(owner);
+    }
+    path[0] = root;
+    for (int i = 1; i <= depth; i++) {
+      Node node = path[i];
+      if (!node.isOwnedBy(owner)) {
+        node = node.copy(owner);
+        path[i - 1].putChild(node.getCharacter(), node);
+        path[i] = node;
+      }
+    }
+    return path[depth];
+  }
+
+  /**
+   * Removes the points of the key whose path is recorded and owned already.
+   * Afterwards the path is walked back up and every node which neither has
+   * points nor links to other nodes anymore is removed from its parent. The
+   * global root is never removed. With lazy removals the nodes are kept until
+   * the next compaction instead, see Trie#enableLazyRemoval(int).
+   *
+   * @param key The key to remove the points of.
+   */
+  private void removePoints(CharSequence key) {
+    int depth = key.length();
+    int oldPoints = path[depth].getPoints();
+    path[depth].setPoints(NO_POINTS);
+    if (compactThreshold > 0) {
+      updateAggregates(depth, oldPoints, NO_POINTS);
+      addPendingRemoval(key);
+      return;
+    }
+    int lowestRemaining = depth;
+    while (lowestRemaining > 0) {
+      Node node = path[lowestRemaining];
+      if (node.hasPoints() || node.hasChildren()) {
+        break;
+      }
+      path[lowestRemaining - 1].removeChild(node.getCharacter());
+      lowestRemaining--;
+    }
+    if (metrics != null) {
+      metrics.nodesRemoved(depth - lowestRemaining);
+    }
+    updateAggregates(lowestRemaining, oldPoints, NO_POINTS);
+  }
+
+  /**
+   * Remembers a lazily removed key for the next compaction and compacts the
+   * trie once the threshold is reached.
+   *
+   * @param key The removed key.
+   */
+  private void addPendingRemoval(CharSequence key) {
+    if (pendingRemovalCount == pendingRemovals.length) {
+      pendingRemovals = Arrays.copyOf(pendingRemovals,
+          Math.min(Math.max(pendingRemovalCount * 2, 16), compactThreshold));
+    }
+    pendingRemovals[pendingRemovalCount++] = key.toString();
+    if (pendingRemovalCount == compactThreshold) {
+      compact();
+    }
+  }
+
+  /**
+   * Sets the points of the node at the given depth of the recorded path,
+   * which has to be owned already.
+   *
+   * @param depth  The depth of the node within the recorded path.
+   * @param points The points to assign.
+   */
+  private void setPoints(int depth, int points) {
+    int oldPoints = path[depth].getPoints();
+    path[depth].setPoints(points);
+    updateAggregates(depth, oldPoints, points);
+  }
+
+  /**
+   * Updates the aggregates of the subtrees along the recorded path after the
+   * points of a key changed, walking back up to the root. Every node only
+   * applies the difference, so a change costs time linear to the depth.
+   *
+   * @param depth     The depth of the deepest remaining node of the owned
+   *                  path.
+   * @param oldPoints The points the key had before, NO_POINTS if it was
+   *                  added.
+   * @param newPoints The points the key has now, NO_POINTS if it was removed.
+   */
+  private void updateAggregates(int depth, int oldPoints, int newPoints) {
+    if (oldPoints == newPoints) {
+      return;
+    }
+    for (int i = depth; i >= 0; i--) {
+      path[i].updateAggregates(oldPoints, newPoints);
+    }
+    if (metrics != null) {
+      if (oldPoints == NO_POINTS) {
+        metrics.keyAdded();
+      } else if (newPoints == NO_POINTS) {
+        metrics.keyRemoved();
+      }
+    }
+  }
+
+  /**
+   * Grows the recorded path so it can hold the nodes of a key with the given
+   * length.
+   *
+   * @param length The length of the key.
+   */
+  private void ensurePathCapacity(int length) {
+    if (path.length <= length) {
+      path = Arrays.copyOf(path, Math.max(length + 1, path.length * 2));
+    }
   }
 
   /**
@@ -116,12 +1017,293 @@ public class Trie {
    * @return Returns the points if there are any assigned, otherwise returns
    * null.
    */
-  public Integer points(String key) {
-    Node node = root.find(key);
-    if (node == null) {
-      return null;
+  public Integer points(CharSequence key) {
+    return toBoxed(getInt(key));
+  }
+
+  /**
+   * Gets the points associated with a key which is given as a range of a char
+   * array, so callers can look up keys straight from their buffers.
+   *
+   * @param key    The buffer which holds the key.
+   * @param offset The index of the first character of the key.
+   * @param length The amount of characters of the key.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * null.
+   */
+  public Integer points(char[] key, int offset, int length) {
+    return toBoxed(getInt(key, offset, length));
+  }
+
+  /**
+   * Gets the points associated with a key which is given as a range of ASCII
+   * encoded bytes, so callers can look up keys straight from their buffers.
+   *
+   * @param key    The buffer which holds the ASCII encoded key.
+   * @param offset The index of the first byte of the key.
+   * @param length The amount of bytes of the key.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * null.
+   */
+  public Integer points(byte[] key, int offset, int length) {
+    return toBoxed(getInt(key, offset, length));
+  }
+
+  /**
+   * Gets the points associated with a key without boxing them.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * NO_POINTS.
+   */
+  public int getInt(CharSequence key) {
+    long start = startTimer();
+    int points;
+    if (cache == null) {
+      Node node = root.find(key);
+      points = node == null ? NO_POINTS : node.getPoints();
+    } else {
+      points = getCachedInt(key);
+    }
+    stopTimer(TrieMetrics.Operation.GET, start);
+    return points;
+  }
+
+  /**
+   * Gets the points associated with a key which is given as a range of a char
+   * array without boxing them.
+   *
+   * @param key    The buffer which holds the key.
+   * @param offset The index of the first character of the key.
+   * @param length The amount of characters of the key.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * NO_POINTS.
+   */
+  public int getInt(char[] key, int offset, int length) {
+    long start = startTimer();
+    int points;
+    if (cache == null) {
+      Node node = root.find(key, offset, length);
+      points = node == null ? NO_POINTS : node.getPoints();
+    } else {
+      points = getCachedInt(key, offset, length);
+    }
+    stopTimer(TrieMetrics.Operation.GET, start);
+    return points;
+  }
+
+  /**
+   * Gets the points associated with a key which is given as a range of ASCII
+   * encoded bytes without boxing them.
+   *
+   * @param key    The buffer which holds the ASCII encoded key.
+   * @param offset The index of the first byte of the key.
+   * @param length The amount of bytes of the key.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * NO_POINTS.
+   */
+  public int getInt(byte[] key, int offset, int length) {
+    long start = startTimer();
+    Node node = root.find(key, offset, length);
+    int points = node == null ? NO_POINTS : node.getPoints();
+    stopTimer(TrieMetrics.Operation.GET, start);
+    return points;
+  }
+
+  /**
+   * Gets the points of a key from the cache, on a miss the points found in the
+   * trie are cached.
+   *
+   * @param key The key for which to get the points from.
+   * @return The points or NO_POINTS.
+   */
+  private int getCachedInt(CharSequence key) {
+    int hash = TrieCache.hash(key);
+    int points = cache.get(key, hash);
+    if (points == NO_POINTS) {
+      Node node = root.find(key);
+      if (node != null && node.hasPoints()) {
+        points = node.getPoints();
+        cache.put(key, hash, points);
+      }
+    }
+    return points;
+  }
+
+  /**
+   * Gets the points of a key which is given as a range of a char array from
+   * the cache without allocating, on a miss the points found in the trie are
+   * cached.
+   *
+   * @param key    The buffer which holds the key.
+   * @param offset The index of the first character of the key.
+   * @param length The amount of characters of the key.
+   * @return The points or NO_POINTS.
+   */
+  private int getCachedInt(char[] key, int offset, int length) {
+    int hash = TrieCache.hash(key, offset, length);
+    int points = cache.get(key, offset, length, hash);
+    if (points == NO_POINTS) {
+      Node node = root.find(key, offset, length);
+      if (node != null && node.hasPoints()) {
+        points = node.getPoints();
+        cache.put(key, offset, length, hash, points);
+      }
     }
-    return node.getPoints();
+    return points;
+  }
+
+  /**
+   * Removes a key from the cache before its points change.
+   *
+   * @param key The key which is about to change.
+   */
+  private void invalidateCached(CharSequence key) {
+    if (cache != null) {
+      cache.invalidate(key);
+    }
+  }
+
+  /**
+   * Lazily streams all keys which start with the given prefix together with
+   * their points in lexicographic order. The trie must not be changed while
+   * the stream is consumed, use Trie#snapshot() to iterate while the trie
+   * keeps changing.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The stream of key to points entries.
+   */
+  public Stream<Map.Entry<String, Integer>> prefixScan(CharSequence prefix) {
+    return TrieQueries.prefixScan(root, prefix);
+  }
+
+  /**
+   * Lazily streams all keys which are at least from and less than to together
+   * with their points in lexicographic order. The path to the first key is
+   * followed directly and the stream ends at the first key which is not less
+   * than to, so with skip() and limit() a range can be paged through without
+   * visiting the keys before or after the page. The trie must not be
+   * changed while the stream is consumed.
+   *
+   * @param from The inclusive lower bound, empty to start at the first key.
+   * @param to   The exclusive upper bound, null to end at the last key.
+   * @return The stream of key to points entries.
+   */
+  public Stream<Map.Entry<String, Integer>> range(CharSequence from,
+      CharSequence to) {
+    return TrieQueries.range(root, from, to);
+  }
+
+  /**
+   * Lazily streams all keys which match a wildcard pattern together with their
+   * points in lexicographic order. A '?' matches any single char, a '*' any
+   * amount of chars including none and a '\' makes the next char match only
+   * itself, e.g. "h?llo*" matches "hello" and "hallo world". Subtrees are
+   * skipped at their first char which can not match. The trie must not
+   * be changed while the stream is consumed.
+   *
+   * @param pattern The pattern the keys have to match.
+   * @return The stream of key to points entries.
+   * @throws IllegalArgumentException If the pattern ends with a single '\'.
+   */
+  public Stream<Map.Entry<String, Integer>> match(CharSequence pattern) {
+    return TrieQueries.match(root, pattern);
+  }
+
+  /**
+   * Finds the k keys with the highest points which start with the given
+   * prefix, e.g. to autocomplete the prefix. Every node knows the highest
+   * points below it, so only the subtrees which can still contribute to the
+   * result are visited.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @param k      The maximum amount of keys to return.
+   * @return The entries sorted by their points from high to low, keys with
+   * equal points are sorted lexicographically.
+   * @throws IllegalArgumentException If k is negative.
+   */
+  public List<Map.Entry<String, Integer>> topK(CharSequence prefix, int k) {
+    return TrieQueries.topK(root, prefix, k);
+  }
+
+  /**
+   * Finds all keys which are at most maxEdits inserted, removed or replaced
+   * characters away from the given key, e.g. to look up a mistyped name.
+   * Subtrees which can not contain a match anymore are skipped, so the search
+   * only visits a small part of the trie for small maxEdits. The part grows
+   * with the fan-out of the first levels: on a million keys of random letters
+   * two edits still visit thousands of nodes and take milliseconds, while keys
+   * which share stems take a fraction of that.
+   *
+   * @param key      The key to search for.
+   * @param maxEdits The maximum edit distance of a match.
+   * @return The matches with their points and distance, sorted by distance
+   * and then lexicographically.
+   * @throws IllegalArgumentException If maxEdits is negative.
+   */
+  public List<FuzzyMatch> fuzzySearch(CharSequence key, int maxEdits) {
+    return TrieQueries.fuzzySearch(root, key, maxEdits);
+  }
+
+  /**
+   * Gets the amount of keys which start with the given prefix in the time it
+   * takes to find the prefix, as every node knows the amount of keys below it.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The amount of keys.
+   */
+  public int count(CharSequence prefix) {
+    return TrieQueries.count(root, prefix);
+  }
+
+  /**
+   * Gets the sum of the points of all keys which start with the given prefix
+   * in the time it takes to find the prefix.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The sum of the points, 0 if there are no such keys.
+   */
+  public long sum(CharSequence prefix) {
+    return TrieQueries.sum(root, prefix);
+  }
+
+  /**
+   * Gets the lowest points of all keys which start with the given prefix in
+   * the time it takes to find the prefix.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The lowest points or null if there are no such keys.
+   */
+  public Integer min(CharSequence prefix) {
+    return TrieQueries.min(root, prefix);
+  }
+
+  /**
+   * Gets the highest points of all keys which start with the given prefix in
+   * the time it takes to find the prefix.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The highest points or null if there are no such keys.
+   */
+  public Integer max(CharSequence prefix) {
+    return TrieQueries.max(root, prefix);
+  }
+
+  /**
+   * Counts the keys which start with the given prefix and match the given
+   * predicate, visiting large subtrees in parallel in the common
+   * ForkJoinPool. The trie must not be changed while
+   * counting.
+   *
+   * @param prefix    The prefix all keys have to start with, empty for all
+   *                  keys.
+   * @param predicate The predicate for the key and its points, it is called
+   *                  from several threads.
+   * @return The amount of matching keys.
+   */
+  public long count(CharSequence prefix,
+      BiPredicate<? super String, ? super Integer> predicate) {
+    return TrieQueries.count(root, prefix, predicate);
   }
 
   /**
@@ -134,4 +1316,16 @@ public class Trie {
   public String toString() {
     return root.toString();
   }
+
+  /**
+   * Writes the string representation of the trie incrementally to the given
+   * output without building it in memory first.
+   *
+   * @param out The output to write the representation to.
+   * @throws IOException If writing to the output fails.
+   * @see Node#writeTo(Appendable)
+   */
+  public void writeTo(Appendable out) throws IOException {
+    root.writeTo(out);
+  }
 }
@@ -0,0 +1,212 @@
+package trie;
+
+import java.util.Arrays;
+
+/**
+ * TrieBuilder builds a Trie from keys which are added in sorted order. The
+ * builder only keeps the nodes on the path of the previous key open, a new key
+ * reuses the shared prefix with the previous one and completes all nodes below
+ * it, as no later key can add children to them anymore. Completed nodes get
+ * their children in one go with exactly sized arrays, so the built trie is as
+ * compact as the nodes allow.
+ * <p>
+ * A builder can only build a single trie.
+ */
+public final class TrieBuilder {
+
+  private final Object owner;
+  private final Node root;
+
+  // The previous key, the first previousLength chars are in use.
+  private char[] previousKey = new char[16];
+  private int previousLength;
+  private boolean hasPrevious;
+  private boolean built;
+
+  /*
+   The open nodes on the path of the previous key, path[i] is the node for the
+   first i characters and path[0] is the root. The completed children of
+   path[i] are collected in children[i] until path[i] gets completed itself.
+  */
+  private Node[] path = new Node[16];
+  private Node[][] children = new Node[16][];
+  private int[] childrenCounts = new int[16];
+
+  /**
+   * Creates a builder for an empty trie.
+   */
+  public TrieBuilder() {
+    this(new Object(), null);
+  }
+
+  /**
+   * Creates a builder for the subtree below the given node, keys are added
+   * with the offset of the node's depth.
+   *
+   * @param owner The token which owns the built nodes.
+   * @param root  The node to build the subtree of or null for a new root.
+   */
+  TrieBuilder(Object owner, Node root) {
+    this.owner = owner;
+    this.root = root == null ? new Node(owner) : root;
+    path[0] = this.root;
+  }
+
+  /**
+   * Adds the next key with its points. Keys have to be added in ascending
+   * order as defined by String#compareTo(String), that is the order of their
+   * characters.
+   *
+   * @param key    The key to add.
+   * @param points The points of the key.
+   * @return This builder.
+   * @throws IllegalArgumentException If the key is not greater than the
+   *                                  previous key or the points equal
+   *                                  NO_POINTS.
+   * @throws IllegalStateException    If the trie was built already.
+   */
+  public TrieBuilder add(CharSequence key, int points) {
+    return add(key, 0, points);
+  }
+
+  /**
+   * Adds the next key with its points, ignoring the first chars of the key
+   * which lead to the root of the builder.
+   *
+   * @param key    The key to add.
+   * @param offset The amount of chars to ignore.
+   * @param points The points of the key.
+   * @return This builder.
+   * @throws IllegalArgumentException If the key is not greater than the
+   *                                  previous key or the points equal
+   *                                  NO_POINTS.
+   * @throws IllegalStateException    If the trie was built already.
+   * @see TrieBuilder#add(CharSequence, int)
+   */
+  TrieBuilder add(CharSequence key, int offset, int points) {
+    checkNotBuilt();
+    if (points == Trie.NO_POINTS) {
+      throw new IllegalArgumentException("points can not be " + Trie.NO_POINTS);
+    }
+    int length = key.length() - offset;
+
+    int common = 0;
+    int maxCommon = Math.min(length, previousLength);
+    while (common < maxCommon
+        && key.charAt(offset + common) == previousKey[common]) {
+      common++;
+    }
+    if (hasPrevious) {
+      if (common == length && common == previousLength) {
+        throw new IllegalArgumentException("duplicate key \"" + key + "\"");
+      }
+      if (common == length || (common < previousLength
+          && key.charAt(offset + common) < previousKey[common])) {
+        throw new IllegalArgumentException("keys are not sorted, \"" + key
+            + "\" comes after \"" + key.subSequence(0, offset)
+            + new String(previousKey, 0, previousLength) + "\"");
+      }
+    }
+
+    // Nodes below the shared prefix can not get any further children.
+    completeLevelsAbove(common);
+    ensureCapacity(length + 1);
+    for (int i = common; i < length; i++) {
+      char ch = key.charAt(offset + i);
+      path[i + 1] = new Node(ch, owner);
+      childrenCounts[i + 1] = 0;
+      previousKey[i] = ch;
+    }
+    path[length].setPoints(points);
+    previousLength = length;
+    hasPrevious = true;
+    return this;
+  }
+
+  /**
+   * Completes all open nodes and creates the trie.
+   *
+   * @return The trie with all added keys.
+   * @throws IllegalStateException If the trie was built already.
+   */
+  public Trie build() {
+    return new Trie(owner, buildRoot());
+  }
+
+  /**
+   * Completes all open nodes including the root.
+   *
+   * @return The completed root node.
+   * @throws IllegalStateException If the trie was built already.
+   */
+  Node buildRoot() {
+    checkNotBuilt();
+    completeLevelsAbove(0);
+    root.setChildren(children[0], childrenCounts[0]);
+    root.updateAggregates();
+    built = true;
+    return root;
+  }
+
+  /**
+   * Completes the open nodes on the path of the previous key which are deeper
+   * than the given depth and adds each of them to the children of its parent.
+   *
+   * @param depth The depth of the deepest node which stays open.
+   */
+  private void completeLevelsAbove(int depth) {
+    for (int level = previousLength; level > depth; level--) {
+      Node node = path[level];
+      node.setChildren(children[level], childrenCounts[level]);
+      node.updateAggregates();
+      addChild(level - 1, node);
+      path[level] = null;
+    }
+    previousLength = Math.min(previousLength, depth);
+  }
+
+  /**
+   * Adds a completed child to the open node at the given depth.
+   *
+   * @param depth The depth of the parent.
+   * @param child The completed child.
+   */
+  private void addChild(int depth, Node child) {
+    Node[] levelChildren = children[depth];
+    if (levelChildren == null) {
+      levelChildren = new Node[4];
+      children[depth] = levelChildren;
+    } else if (childrenCounts[depth] == levelChildren.length) {
+      levelChildren = Arrays.copyOf(levelChildren, levelChildren.length * 2);
+      children[depth] = levelChildren;
+    }
+    levelChildren[childrenCounts[depth]++] = child;
+  }
+
+  /**
+   * Makes sure keys of the given length fit into the buffers.
+   *
+   * @param length The length of the key plus one for the root.
+   */
+  private void ensureCapacity(int length) {
+    if (path.length < length) {
+      int capacity = Math.max(length, path.length * 2);
+      path = Arrays.copyOf(path, capacity);
+      children = Arrays.copyOf(children, capacity);
+      childrenCounts = Arrays.copyOf(childrenCounts, capacity);
+      previousKey = Arrays.copyOf(previousKey, capacity);
+    }
+  }
+
+  /**
+   * Makes sure the builder was not used to build a trie already.
+   *
+   * @throws IllegalStateException If the trie was built already.
+   */
+  private void checkNotBuilt() {
+    if (built) {
+      throw new IllegalStateException("the trie was built already");
+    }
+  }
+
+}
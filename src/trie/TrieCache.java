@@ -0,0 +1,509 @@
+package trie;
+
+import java.util.Arrays;
+
+/**
+ * TrieCache keeps the points of the most frequently read keys of a trie, so
+ * looking them up again takes a single hash probe instead of a walk down the
+ * trie, see Trie#enableCache(int). Only keys which have points are cached and
+ * every change of a key removes it from the cache, so a cached value is never
+ * stale.
+ * <p>
+ * Once the cache is full, the victim is chosen with the CLOCK policy: every
+ * hit marks an entry as referenced, and the clock hand moving over the entries
+ * stops at the first one which was not referenced since the hand passed it
+ * the last time, clearing the marks of the referenced ones on its way. In
+ * front of it sits a doorkeeper like the one of TinyLFU, a bit set which
+ * remembers the keys which missed recently: a key is only cached on its
+ * second miss, so keys which are read just once never push hot keys out of
+ * the cache. A miss costs a single extra memory access for that, which
+ * matters as much as the trie walk on large tries.
+ */
+public final class TrieCache {
+
+  // The largest capacity, the hash table has twice as many slots.
+  private static final int MAX_CAPACITY = 1 << 29;
+  // The multiplier of the Fibonacci hashing which spreads the hash codes.
+  private static final int HASH_MULTIPLIER = 0x9E3779B9;
+  // Another multiplier, so the doorkeeper does not collide like the table.
+  private static final int DOORKEEPER_MULTIPLIER = 0x85EBCA6B;
+
+  private final int capacity;
+  /*
+   The entries are stored in parallel arrays indexed by their slot. A slot
+   with a null key is free and listed in freeSlots.
+  */
+  private final String[] keys;
+  private final int[] values;
+  private final boolean[] referenced;
+  private final int[] freeSlots;
+  private int freeCount;
+  // The amount of slots which were used at least once, slots are used in order.
+  private int usedSlots;
+  // The slot the clock hand points to.
+  private int hand;
+
+  /*
+   The hash table with linear probing which maps keys to their slot. An entry
+   holds the hash code of the key in the upper and the slot + 1 in the lower
+   half, so a probe only reads the key if the hash codes match. 0 marks an
+   empty entry.
+  */
+  private final long[] table;
+  private final int hashShift;
+
+  /*
+   The doorkeeper has one bit per hash of the keys which missed since it was
+   cleared the last time, it is cleared after as many misses as it has bits
+   per table entry times the capacity.
+  */
+  private final long[] doorkeeper;
+  private final int doorkeeperShift;
+  private final int doorkeeperLimit;
+  private int doorkeeperMisses;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * Creates an empty cache.
+   *
+   * @param capacity The maximum amount of cached keys.
+   * @throws IllegalArgumentException If the capacity is not positive or
+   *                                  larger than 2^29.
+   */
+  TrieCache(int capacity) {
+    if (capacity < 1 || capacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException(
+          "capacity has to be between 1 and " + MAX_CAPACITY);
+    }
+    this.capacity = capacity;
+    keys = new String[capacity];
+    values = new int[capacity];
+    referenced = new boolean[capacity];
+    freeSlots = new int[capacity];
+    // At least twice the capacity, so at most half of the table is used.
+    int tableBits = 33 - Integer.numberOfLeadingZeros(capacity - 1);
+    table = new long[1 << tableBits];
+    hashShift = 32 - tableBits;
+    // Four bits per table entry, so at least eight bits per cached key.
+    int doorkeeperBits = tableBits + 2;
+    doorkeeper = new long[doorkeeperBits > 6 ? 1 << (doorkeeperBits - 6) : 1];
+    doorkeeperShift = 32 - doorkeeperBits;
+    doorkeeperLimit = (int) Math.min(Integer.MAX_VALUE, 4L * capacity);
+  }
+
+  /**
+   * Calculates the hash code of a key, which equals String#hashCode() for the
+   * same characters.
+   *
+   * @param key The key.
+   * @return The hash code.
+   */
+  static int hash(CharSequence key) {
+    if (key instanceof String) {
+      // Strings cache their hash code.
+      return key.hashCode();
+    }
+    int hash = 0;
+    for (int i = 0; i < key.length(); i++) {
+      hash = 31 * hash + key.charAt(i);
+    }
+    return hash;
+  }
+
+  /**
+   * Calculates the hash code of a key which is given as a range of a char
+   * array, which equals String#hashCode() for the same characters.
+   *
+   * @param key    The buffer which holds the key.
+   * @param offset The index of the first character of the key.
+   * @param length The amount of characters of the key.
+   * @return The hash code.
+   */
+  static int hash(char[] key, int offset, int length) {
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + key[i];
+    }
+    return hash;
+  }
+
+  /**
+   * Gets the cached points of a key and marks the key as referenced.
+   *
+   * @param key  The key.
+   * @param hash The hash code of the key, see TrieCache#hash(CharSequence).
+   * @return The points or NO_POINTS if the key is not cached.
+   */
+  int get(CharSequence key, int hash) {
+    return pointsAt(find(key, hash));
+  }
+
+  /**
+   * Gets the cached points of a key which is given as a range of a char array
+   * and marks the key as referenced, without allocating.
+   *
+   * @param key    The buffer which holds the key.
+   * @param offset The index of the first character of the key.
+   * @param length The amount of characters of the key.
+   * @param hash   The hash code of the key, see
+   *               TrieCache#hash(char[], int, int).
+   * @return The points or NO_POINTS if the key is not cached.
+   */
+  int get(char[] key, int offset, int length, int hash) {
+    return pointsAt(find(key, offset, length, hash));
+  }
+
+  /**
+   * Counts a lookup and gets the points of the entry it found.
+   *
+   * @param index The index of the entry or -1 if the key is not cached.
+   * @return The points or NO_POINTS if the key is not cached.
+   */
+  private int pointsAt(int index) {
+    if (index < 0) {
+      misses++;
+      return Node.NO_POINTS;
+    }
+    hits++;
+    int slot = slotOf(table[index]);
+    referenced[slot] = true;
+    return values[slot];
+  }
+
+  /**
+   * Offers the points of a key which is not cached yet after it missed. The
+   * key is only cached if it missed before since the doorkeeper was cleared
+   * the last time, if the cache is full it replaces the victim of the clock
+   * hand.
+   *
+   * @param key    The key.
+   * @param hash   The hash code of the key, see TrieCache#hash(CharSequence).
+   * @param points The points of the key.
+   */
+  void put(CharSequence key, int hash, int points) {
+    if (passDoorkeeper(hash)) {
+      store(key.toString(), hash, points);
+    }
+  }
+
+  /**
+   * Offers the points of a key which is given as a range of a char array like
+   * TrieCache#put(CharSequence, int, int), the key is only copied if it gets
+   * cached.
+   *
+   * @param key    The buffer which holds the key.
+   * @param offset The index of the first character of the key.
+   * @param length The amount of characters of the key.
+   * @param hash   The hash code of the key, see
+   *               TrieCache#hash(char[], int, int).
+   * @param points The points of the key.
+   */
+  void put(char[] key, int offset, int length, int hash, int points) {
+    if (passDoorkeeper(hash)) {
+      store(new String(key, offset, length), hash, points);
+    }
+  }
+
+  /**
+   * Caches the points of a key which passed the doorkeeper, if the cache is
+   * full it replaces the victim of the clock hand.
+   *
+   * @param key    The key.
+   * @param hash   The hash code of the key.
+   * @param points The points of the key.
+   */
+  private void store(String key, int hash, int points) {
+    int slot;
+    if (freeCount > 0) {
+      slot = freeSlots[--freeCount];
+    } else if (usedSlots < capacity) {
+      slot = usedSlots++;
+    } else {
+      slot = evict();
+    }
+    keys[slot] = key;
+    values[slot] = points;
+    // A new key has to be read again before it survives the clock hand.
+    referenced[slot] = false;
+
+    int index = homeOf(hash);
+    while (table[index] != 0) {
+      index = (index + 1) & (table.length - 1);
+    }
+    table[index] = (long) hash << Integer.SIZE | (slot + 1);
+  }
+
+  /**
+   * Removes a key from the cache if it is cached.
+   *
+   * @param key The key.
+   */
+  void invalidate(CharSequence key) {
+    int index = find(key, hash(key));
+    if (index >= 0) {
+      int slot = slotOf(table[index]);
+      removeFromTable(index);
+      keys[slot] = null;
+      freeSlots[freeCount++] = slot;
+    }
+  }
+
+  /**
+   * Removes all keys from the cache, the counters of hits and misses are kept.
+   */
+  void clear() {
+    Arrays.fill(table, 0);
+    Arrays.fill(keys, null);
+    Arrays.fill(doorkeeper, 0);
+    doorkeeperMisses = 0;
+    freeCount = 0;
+    usedSlots = 0;
+    hand = 0;
+  }
+
+  /**
+   * Finds the entry of a key in the hash table.
+   *
+   * @param key  The key.
+   * @param hash The hash code of the key.
+   * @return The index of the entry or -1 if the key is not cached.
+   */
+  private int find(CharSequence key, int hash) {
+    int index = homeOf(hash);
+    long entry;
+    while ((entry = table[index]) != 0) {
+      if (hashOf(entry) == hash && keys[slotOf(entry)].contentEquals(key)) {
+        return index;
+      }
+      index = (index + 1) & (table.length - 1);
+    }
+    return -1;
+  }
+
+  /**
+   * Finds the entry of a key which is given as a range of a char array in
+   * the hash table.
+   *
+   * @param key    The buffer which holds the key.
+   * @param offset The index of the first character of the key.
+   * @param length The amount of characters of the key.
+   * @param hash   The hash code of the key.
+   * @return The index of the entry or -1 if the key is not cached.
+   */
+  private int find(char[] key, int offset, int length, int hash) {
+    int index = homeOf(hash);
+    long entry;
+    while ((entry = table[index]) != 0) {
+      if (hashOf(entry) == hash
+          && equals(keys[slotOf(entry)], key, offset, length)) {
+        return index;
+      }
+      index = (index + 1) & (table.length - 1);
+    }
+    return -1;
+  }
+
+  /**
+   * Compares a cached key with a range of a char array.
+   *
+   * @param cached The cached key.
+   * @param key    The buffer which holds the other key.
+   * @param offset The index of the first character of the other key.
+   * @param length The amount of characters of the other key.
+   * @return Weather both keys have the same characters.
+   */
+  private static boolean equals(String cached, char[] key, int offset,
+      int length) {
+    if (cached.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (cached.charAt(i) != key[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Moves the clock hand to the first entry which was not referenced since
+   * the hand passed it the last time and evicts it. Every slot is used as the
+   * cache is full.
+   *
+   * @return The slot of the evicted entry, which can be reused.
+   */
+  private int evict() {
+    while (referenced[hand]) {
+      referenced[hand] = false;
+      hand = hand + 1 == capacity ? 0 : hand + 1;
+    }
+    int slot = hand;
+    hand = hand + 1 == capacity ? 0 : hand + 1;
+    String key = keys[slot];
+    removeFromTable(find(key, key.hashCode()));
+    evictions++;
+    return slot;
+  }
+
+  /**
+   * Checks if a key missed before and otherwise remembers its miss. The
+   * doorkeeper is cleared regularly, so it only remembers recent misses.
+   *
+   * @param hash The hash code of the key.
+   * @return Weather the key missed before.
+   */
+  private boolean passDoorkeeper(int hash) {
+    int bit = hash * DOORKEEPER_MULTIPLIER >>> doorkeeperShift;
+    long mask = 1L << bit;
+    int word = bit >>> 6;
+    if ((doorkeeper[word] & mask) != 0) {
+      return true;
+    }
+    doorkeeper[word] |= mask;
+    if (++doorkeeperMisses == doorkeeperLimit) {
+      Arrays.fill(doorkeeper, 0);
+      doorkeeperMisses = 0;
+    }
+    return false;
+  }
+
+  /**
+   * Calculates the index in the hash table at which the probing for a key
+   * starts.
+   *
+   * @param hash The hash code of the key.
+   * @return The home index of the key.
+   */
+  private int homeOf(int hash) {
+    return hash * HASH_MULTIPLIER >>> hashShift;
+  }
+
+  /**
+   * Gets the hash code of the key of a table entry.
+   *
+   * @param entry The entry.
+   * @return The hash code.
+   */
+  private static int hashOf(long entry) {
+    return (int) (entry >>> Integer.SIZE);
+  }
+
+  /**
+   * Gets the slot of a table entry.
+   *
+   * @param entry The entry.
+   * @return The slot.
+   */
+  private static int slotOf(long entry) {
+    return (int) entry - 1;
+  }
+
+  /**
+   * Removes an entry from the hash table. The entries after it in the same
+   * run are shifted back, so every entry stays reachable from its home index
+   * without leaving markers of removed entries behind.
+   *
+   * @param index The index of the entry.
+   */
+  private void removeFromTable(int index) {
+    int mask = table.length - 1;
+    int gap = index;
+    int next = index;
+    while (true) {
+      next = (next + 1) & mask;
+      long entry = table[next];
+      if (entry == 0) {
+        break;
+      }
+      int home = homeOf(hashOf(entry));
+      // The entry can fill the gap unless its home lies after the gap.
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        table[gap] = entry;
+        gap = next;
+      }
+    }
+    table[gap] = 0;
+  }
+
+  /**
+   * Gets the maximum amount of cached keys.
+   *
+   * @return The capacity.
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Gets the amount of keys which are cached right now.
+   *
+   * @return The amount of cached keys.
+   */
+  public int size() {
+    return usedSlots - freeCount;
+  }
+
+  /**
+   * Gets the amount of lookups which found their key in the cache.
+   *
+   * @return The amount of hits.
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * Gets the amount of lookups which had to walk the trie.
+   *
+   * @return The amount of misses.
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Gets the amount of keys which were evicted to make room for others.
+   *
+   * @return The amount of evictions.
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Gets the share of lookups which found their key in the cache.
+   *
+   * @return The hit ratio between 0 and 1, 0 if there were no lookups.
+   */
+  public double getHitRatio() {
+    long lookups = hits + misses;
+    if (lookups == 0) {
+      return 0;
+    }
+    return (double) hits / lookups;
+  }
+
+  /**
+   * Resets the counters of hits, misses and evictions.
+   */
+  public void resetStats() {
+    hits = 0;
+    misses = 0;
+    evictions = 0;
+  }
+
+  /**
+   * Shows the size and hit ratio of the cache, e.g. for logging.
+   *
+   * @return The string representation of the cache.
+   */
+  @Override
+  public String toString() {
+    return "TrieCache{size=" + size() + ", capacity=" + capacity + ", hits="
+        + hits + ", misses=" + misses + ", evictions=" + evictions + "}";
+  }
+
+}
@@ -0,0 +1,207 @@
+package trie;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * TrieEntryIterator lazily walks over all keys with points below a start node
+ * in lexicographic order, optionally only over the keys of a range. It keeps
+ * the nodes of the current path on an explicit stack and builds the current
+ * key in a single StringBuilder, so every step only touches the nodes around
+ * the current one.
+ */
+class TrieEntryIterator implements Iterator<Map.Entry<String, Integer>> {
+
+  // The current key, the prefix of the start node plus one char per level.
+  private final StringBuilder key;
+  /*
+   The nodes of the current path, stack[0] is the start node and stack[depth]
+   the node for the current key.
+  */
+  private Node[] stack = new Node[16];
+  // The depth of the current node, -1 once the iteration is exhausted.
+  private int depth;
+  // The entry which is returned by the next call of next(), if any.
+  private Map.Entry<String, Integer> nextEntry;
+  // The exclusive upper bound of the keys, null if there is none.
+  private final CharSequence to;
+
+  /**
+   * Creates an iterator over the start node and all nodes below it.
+   *
+   * @param start  The node to start at, might be null for an empty iteration.
+   * @param prefix The key of the start node.
+   */
+  TrieEntryIterator(Node start, CharSequence prefix) {
+    key = new StringBuilder(prefix);
+    to = null;
+    if (start == null) {
+      depth = -1;
+      return;
+    }
+    stack[0] = start;
+    depth = 0;
+    if (start.hasPoints()) {
+      nextEntry = Map.entry(key.toString(), start.getPoints());
+    } else {
+      nextEntry = findNextEntry();
+    }
+  }
+
+  /**
+   * Creates an iterator over all keys which are at least from and less than
+   * to. The path to the first of these keys is followed directly instead of
+   * walking over the smaller keys, and the iteration stops at the first key
+   * which is not less than to.
+   *
+   * @param root The root node of the trie.
+   * @param from The inclusive lower bound, empty to start at the first key.
+   * @param to   The exclusive upper bound, null to end at the last key.
+   */
+  TrieEntryIterator(Node root, CharSequence from, CharSequence to) {
+    key = new StringBuilder(from.length());
+    this.to = to;
+    stack[0] = root;
+    depth = 0;
+    if (seek(from)) {
+      nextEntry = stack[depth].hasPoints()
+          ? bound(Map.entry(key.toString(), stack[depth].getPoints()))
+          : findNextEntry();
+    }
+  }
+
+  /**
+   * Moves from the root to the first node in pre-order whose key is at least
+   * the given one. Every node before it on the way only has its child for the
+   * next char looked up, the subtrees of smaller keys are skipped.
+   *
+   * @param from The key to seek to.
+   * @return Weather there is such a node, false if all keys are smaller.
+   */
+  private boolean seek(CharSequence from) {
+    for (int i = 0; i < from.length(); i++) {
+      Node node = stack[depth];
+      char ch = from.charAt(i);
+      Node child = node.getChild(ch);
+      if (child != null) {
+        push(child);
+        continue;
+      }
+
+      // The first greater child starts with the first key after from.
+      child = node.getNextChild(ch);
+      if (child != null) {
+        push(child);
+        return true;
+      }
+
+      // All keys below the node are smaller, continue after its subtree.
+      while (depth > 0) {
+        Node sibling = stack[depth - 1].getNextChild(
+            stack[depth].getCharacter());
+        key.setLength(key.length() - 1);
+        depth--;
+        if (sibling != null) {
+          push(sibling);
+          return true;
+        }
+      }
+      depth = -1;
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return nextEntry != null;
+  }
+
+  @Override
+  public Map.Entry<String, Integer> next() {
+    if (nextEntry == null) {
+      throw new NoSuchElementException();
+    }
+    Map.Entry<String, Integer> entry = nextEntry;
+    nextEntry = findNextEntry();
+    return entry;
+  }
+
+  /**
+   * Moves on until the next node with points is reached.
+   *
+   * @return The entry of the next node with points or null if there is none.
+   */
+  private Map.Entry<String, Integer> findNextEntry() {
+    while (moveToNextNode()) {
+      Node node = stack[depth];
+      if (node.hasPoints()) {
+        return bound(Map.entry(key.toString(), node.getPoints()));
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Ends the iteration if the given entry is beyond the upper bound. As the
+   * keys come in lexicographic order, all following keys would be as well.
+   *
+   * @param entry The entry to check.
+   * @return The entry or null if it is not less than the upper bound.
+   */
+  private Map.Entry<String, Integer> bound(Map.Entry<String, Integer> entry) {
+    if (to != null && CharSequence.compare(entry.getKey(), to) >= 0) {
+      depth = -1;
+      return null;
+    }
+    return entry;
+  }
+
+  /**
+   * Moves to the next node in pre-order, which is the first child of the
+   * current node or otherwise the next sibling of the closest node on the
+   * path which has one.
+   *
+   * @return Weather there is a next node, false once the iteration is done.
+   */
+  private boolean moveToNextNode() {
+    if (depth < 0) {
+      return false;
+    }
+
+    Node child = stack[depth].getFirstChild();
+    if (child != null) {
+      push(child);
+      return true;
+    }
+
+    while (depth > 0) {
+      Node sibling = stack[depth - 1].getNextChild(stack[depth].getCharacter());
+      key.setLength(key.length() - 1);
+      depth--;
+      if (sibling != null) {
+        push(sibling);
+        return true;
+      }
+    }
+    depth = -1;
+    return false;
+  }
+
+  /**
+   * Makes the given child of the current node the current node.
+   *
+   * @param child The child to descend to.
+   */
+  private void push(Node child) {
+    depth++;
+    if (depth == stack.length) {
+      stack = Arrays.copyOf(stack, stack.length * 2);
+    }
+    stack[depth] = child;
+    key.append(child.getCharacter());
+  }
+
+}
@@ -0,0 +1,274 @@
+package trie;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * TrieFile reads and writes the binary on-disk format of a trie. All nodes are
+ * stored in level order, so the children of every node are stored next to
+ * each other and sorted by their character. The file consists of a header
+ * followed by three columns:
+ * <pre>
+ * header (32 bytes): magic "TRIE", version, node count, CRC32 of the
+ *                    columns, sequence number, 8 reserved bytes
+ * first children:    (node count + 1) ints, the children of node i are the
+ *                    nodes firstChildren[i] until firstChildren[i + 1] - 1
+ * points:            node count ints, Trie.NO_POINTS for nodes without points
+ * labels:            node count chars, the character of every node
+ * </pre>
+ * Node 0 is the global root. All values are stored big-endian. The sequence
+ * number is not interpreted by the trie itself, callers can use it to record
+ * up to which change a file is up to date.
+ *
+ * @see MappedTrie
+ */
+public final class TrieFile {
+
+  /**
+   * The magic number every trie file starts with, "TRIE" in ASCII.
+   */
+  static final int MAGIC = 0x54524945;
+  /**
+   * The version of the format which is written by this class.
+   */
+  static final int VERSION = 1;
+  /**
+   * The size of the header in bytes.
+   */
+  static final int HEADER_BYTES = 32;
+  // The positions of the header fields.
+  static final int NODE_COUNT_POSITION = 8;
+  static final int CHECKSUM_POSITION = 12;
+  static final int SEQUENCE_POSITION = 16;
+
+  private static final int BUFFER_BYTES = 1 << 16;
+
+  /**
+   * The class should never be initialised as it is just a utility class.
+   */
+  private TrieFile() {
+  }
+
+  /**
+   * Writes the given trie to the given file, replacing the file if it exists.
+   * The trie must not be changed while it is written.
+   *
+   * @param trie The trie to write.
+   * @param file The file to write to.
+   * @throws IOException If writing the file fails.
+   */
+  public static void write(Trie trie, Path file) throws IOException {
+    write(trie.getRoot(), file, 0);
+  }
+
+  /**
+   * Writes the given snapshot to the given file, replacing the file if it
+   * exists.
+   *
+   * @param snapshot The snapshot to write.
+   * @param file     The file to write to.
+   * @param sequence The sequence number to store in the header.
+   * @throws IOException If writing the file fails.
+   */
+  public static void write(TrieSnapshot snapshot, Path file, long sequence)
+      throws IOException {
+    write(snapshot.getRoot(), file, sequence);
+  }
+
+  /**
+   * Reads the trie in the given file into a new mutable Trie.
+   *
+   * @param file The file to read.
+   * @return The trie with all keys and points of the file.
+   * @throws IOException If reading the file fails or it is no valid trie file.
+   */
+  public static Trie read(Path file) throws IOException {
+    MappedTrie mappedTrie = MappedTrie.open(file);
+    mappedTrie.verify();
+    return read(mappedTrie);
+  }
+
+  /**
+   * Copies all keys and points of the given mapped trie into a new mutable
+   * Trie.
+   *
+   * @param mappedTrie The mapped trie to copy.
+   * @return The trie with all keys and points of the mapped trie.
+   */
+  static Trie read(MappedTrie mappedTrie) {
+    Trie trie = new Trie();
+    Iterator<Map.Entry<String, Integer>> entries =
+        mappedTrie.prefixScan("").iterator();
+    while (entries.hasNext()) {
+      Map.Entry<String, Integer> entry = entries.next();
+      trie.putInt(entry.getKey(), entry.getValue());
+    }
+    return trie;
+  }
+
+  /**
+   * Writes all nodes below the given root to the given file.
+   *
+   * @param root     The root node to write.
+   * @param file     The file to write to.
+   * @param sequence The sequence number to store in the header.
+   * @throws IOException If writing the file fails.
+   */
+  private static void write(Node root, Path file, long sequence)
+      throws IOException {
+    Node[] nodes = collectInLevelOrder(root);
+
+    try (FileChannel channel = FileChannel.open(file,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ColumnWriter writer = new ColumnWriter(channel);
+
+      // The children of every node follow the children of the previous node.
+      int nextChild = 1;
+      for (Node node : nodes) {
+        writer.putInt(nextChild);
+        nextChild += countNonEmptyChildren(node);
+      }
+      writer.putInt(nextChild);
+      for (Node node : nodes) {
+        writer.putInt(node.getPoints());
+      }
+      for (Node node : nodes) {
+        writer.putChar(node.getCharacter());
+      }
+      writer.flush();
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      header.putInt(MAGIC).putInt(VERSION).putInt(nodes.length)
+          .putInt((int) writer.checksum.getValue()).putLong(sequence);
+      header.clear();
+      channel.write(header, 0);
+    }
+  }
+
+  /**
+   * Collects all nodes below the given root in level order, children are
+   * sorted by their character. Branches without any keys, which lazy
+   * removals leave until the trie is compacted, are not collected.
+   *
+   * @param root The root node to start with.
+   * @return All nodes in level order, starting with the root.
+   */
+  private static Node[] collectInLevelOrder(Node root) {
+    Node[] nodes = new Node[16];
+    nodes[0] = root;
+    int count = 1;
+    for (int i = 0; i < count; i++) {
+      Node node = nodes[i];
+      for (Node child = node.getFirstChild(); child != null;
+          child = node.getNextChild(child.getCharacter())) {
+        if (child.getCount() == 0) {
+          continue;
+        }
+        if (count == nodes.length) {
+          nodes = Arrays.copyOf(nodes, nodes.length * 2);
+        }
+        nodes[count++] = child;
+      }
+    }
+    return Arrays.copyOf(nodes, count);
+  }
+
+  /**
+   * Counts the children of a node which have any keys below them.
+   *
+   * @param node The node.
+   * @return The amount of collected children.
+   */
+  private static int countNonEmptyChildren(Node node) {
+    int count = 0;
+    for (Node child = node.getFirstChild(); child != null;
+        child = node.getNextChild(child.getCharacter())) {
+      if (child.getCount() != 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Calculates the size of the file for the given amount of nodes.
+   *
+   * @param nodeCount The amount of nodes in the file.
+   * @return The size of the file in bytes.
+   */
+  static long fileBytes(long nodeCount) {
+    return HEADER_BYTES + (nodeCount + 1) * Integer.BYTES
+        + nodeCount * Integer.BYTES + nodeCount * Character.BYTES;
+  }
+
+  /**
+   * ColumnWriter buffers the columns and writes them behind the header while
+   * calculating their checksum.
+   */
+  private static final class ColumnWriter {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final CRC32 checksum = new CRC32();
+
+    /**
+     * Creates a writer which starts writing right behind the header.
+     *
+     * @param channel The channel of the file.
+     * @throws IOException If positioning the channel fails.
+     */
+    private ColumnWriter(FileChannel channel) throws IOException {
+      this.channel = channel;
+      channel.position(HEADER_BYTES);
+    }
+
+    /**
+     * Writes a single int.
+     *
+     * @param value The value to write.
+     * @throws IOException If writing the file fails.
+     */
+    private void putInt(int value) throws IOException {
+      if (buffer.remaining() < Integer.BYTES) {
+        flush();
+      }
+      buffer.putInt(value);
+    }
+
+    /**
+     * Writes a single char.
+     *
+     * @param value The value to write.
+     * @throws IOException If writing the file fails.
+     */
+    private void putChar(char value) throws IOException {
+      if (buffer.remaining() < Character.BYTES) {
+        flush();
+      }
+      buffer.putChar(value);
+    }
+
+    /**
+     * Writes the buffered bytes to the file.
+     *
+     * @throws IOException If writing the file fails.
+     */
+    private void flush() throws IOException {
+      buffer.flip();
+      checksum.update(buffer.duplicate());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+  }
+
+}
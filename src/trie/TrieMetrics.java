@@ -0,0 +1,328 @@
+package trie;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * TrieMetrics records what a trie does while metrics are enabled, see
+ * Trie#enableMetrics(): how often each operation is called and how long it
+ * takes, how many nodes the trie has and how many nodes removals cascade up
+ * the trie. The structure of the trie in detail is described by the latest
+ * TrieStatistics taken by Trie#statistics().
+ * <p>
+ * The metrics are only written by the thread which uses the trie, but can be
+ * read from any thread, e.g. through JMX after TrieMetrics#register(String).
+ */
+public final class TrieMetrics implements TrieMetricsMXBean {
+
+  /**
+   * The operations whose calls and latencies are recorded.
+   */
+  public enum Operation {
+    // Adding points to a key which has none, add and putIfAbsent.
+    ADD,
+    // Setting the points of a key whether it has points or not.
+    PUT,
+    // Changing the points of an existing key.
+    CHANGE,
+    // Computing new points from the current ones, merge and computeIfPresent.
+    MERGE,
+    // Removing the points of a key.
+    REMOVE,
+    // Looking up the points of a key.
+    GET
+  }
+
+  private static final Operation[] OPERATIONS = Operation.values();
+  private static final double NANOS_PER_MICRO = 1000.0;
+
+  private final LatencyHistogram[] latencies =
+      new LatencyHistogram[OPERATIONS.length];
+  /*
+   Only the thread which uses the trie writes these fields, so the updates do
+   not have to be atomic, they just have to be visible to other threads.
+  */
+  private volatile long keyCount;
+  private volatile long nodeCount;
+  private volatile long removeCascades;
+  private volatile long removedNodes;
+  private volatile TrieStatistics statistics;
+  // The name under which the metrics are registered or null.
+  private ObjectName objectName;
+
+  /**
+   * Creates the metrics of a trie.
+   *
+   * @param statistics The statistics of the trie right now.
+   */
+  TrieMetrics(TrieStatistics statistics) {
+    this.statistics = statistics;
+    keyCount = statistics.getKeyCount();
+    nodeCount = statistics.getNodeCount();
+    for (int i = 0; i < latencies.length; i++) {
+      latencies[i] = new LatencyHistogram();
+    }
+  }
+
+  /**
+   * Records a call of an operation.
+   *
+   * @param operation The operation.
+   * @param nanos     The time the operation took in nanoseconds.
+   */
+  void record(Operation operation, long nanos) {
+    latencies[operation.ordinal()].record(nanos);
+  }
+
+  /**
+   * Records a key which got points.
+   */
+  void keyAdded() {
+    keyCount++;
+  }
+
+  /**
+   * Records a key which lost its points.
+   */
+  void keyRemoved() {
+    keyCount--;
+  }
+
+  /**
+   * Records nodes which were added to the trie.
+   *
+   * @param count The amount of added nodes.
+   */
+  void nodesAdded(int count) {
+    if (count > 0) {
+      nodeCount += count;
+    }
+  }
+
+  /**
+   * Records nodes which a removal removed from the trie.
+   *
+   * @param count The amount of removed nodes.
+   */
+  void nodesRemoved(int count) {
+    if (count > 0) {
+      nodeCount -= count;
+      removeCascades++;
+      removedNodes += count;
+    }
+  }
+
+  /**
+   * Keeps the latest statistics of the trie.
+   *
+   * @param statistics The statistics.
+   */
+  void setStatistics(TrieStatistics statistics) {
+    this.statistics = statistics;
+    keyCount = statistics.getKeyCount();
+    nodeCount = statistics.getNodeCount();
+  }
+
+  /**
+   * Gets the latest statistics of the trie, which were taken when the metrics
+   * got enabled or by a later call of Trie#statistics().
+   *
+   * @return The latest statistics.
+   */
+  public TrieStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Gets how often an operation was called.
+   *
+   * @param operation The operation.
+   * @return The amount of calls.
+   */
+  public long getCount(Operation operation) {
+    return latencies[operation.ordinal()].count();
+  }
+
+  /**
+   * Gets the latency of an operation at the given percentile, with a relative
+   * error below 6.25%.
+   *
+   * @param operation  The operation.
+   * @param percentile The percentile between 0 and 100.
+   * @return The latency in nanoseconds or 0 if the operation was not called.
+   * @throws IllegalArgumentException If the percentile is not between 0 and
+   *                                  100.
+   */
+  public long getLatencyNanos(Operation operation, double percentile) {
+    if (!(percentile >= 0 && percentile <= 100)) {
+      throw new IllegalArgumentException(
+          "percentile has to be between 0 and 100");
+    }
+    return latencies[operation.ordinal()].percentile(percentile);
+  }
+
+  @Override
+  public long getKeyCount() {
+    return keyCount;
+  }
+
+  @Override
+  public long getNodeCount() {
+    return nodeCount;
+  }
+
+  @Override
+  public long getRemoveCascades() {
+    return removeCascades;
+  }
+
+  @Override
+  public long getRemovedNodes() {
+    return removedNodes;
+  }
+
+  @Override
+  public Map<String, Long> getOperationCounts() {
+    Map<String, Long> counts = new LinkedHashMap<>();
+    for (Operation operation : OPERATIONS) {
+      counts.put(nameOf(operation), getCount(operation));
+    }
+    return counts;
+  }
+
+  @Override
+  public Map<String, Double> getMedianLatencyMicros() {
+    return latenciesMicros(operation -> latencyMicros(operation, 50));
+  }
+
+  @Override
+  public Map<String, Double> getP99LatencyMicros() {
+    return latenciesMicros(operation -> latencyMicros(operation, 99));
+  }
+
+  @Override
+  public Map<String, Double> getMaxLatencyMicros() {
+    return latenciesMicros(operation -> latencyMicros(operation, 100));
+  }
+
+  @Override
+  public double getAverageDepth() {
+    return statistics.getAverageDepth();
+  }
+
+  @Override
+  public long getEstimatedBytes() {
+    return statistics.getEstimatedBytes();
+  }
+
+  @Override
+  public long[] getFanoutDistribution() {
+    return statistics.getFanoutDistribution();
+  }
+
+  @Override
+  public double latencyMicros(String operation, double percentile) {
+    return latencyMicros(operationOf(operation), percentile);
+  }
+
+  @Override
+  public void reset() {
+    for (LatencyHistogram latency : latencies) {
+      latency.reset();
+    }
+    removeCascades = 0;
+    removedNodes = 0;
+  }
+
+  /**
+   * Registers the metrics with the platform MBean server under the name
+   * "trie:type=Trie,name=" followed by the quoted given name.
+   *
+   * @param name The name which identifies the trie.
+   * @return The name under which the metrics are registered.
+   * @throws JMException           If the name is taken already.
+   * @throws IllegalStateException If the metrics are registered already.
+   */
+  public synchronized ObjectName register(String name) throws JMException {
+    if (objectName != null) {
+      throw new IllegalStateException(
+          "the metrics are registered as " + objectName + " already");
+    }
+    ObjectName newName =
+        new ObjectName("trie:type=Trie,name=" + ObjectName.quote(name));
+    ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+    objectName = newName;
+    return newName;
+  }
+
+  /**
+   * Removes the metrics from the platform MBean server again, which does
+   * nothing if they are not registered.
+   *
+   * @throws JMException If the MBean server fails to remove them.
+   */
+  public synchronized void unregister() throws JMException {
+    if (objectName != null) {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+      objectName = null;
+    }
+  }
+
+  /**
+   * Gets the latency of an operation in microseconds.
+   *
+   * @param operation  The operation.
+   * @param percentile The percentile between 0 and 100.
+   * @return The latency in microseconds.
+   */
+  private double latencyMicros(Operation operation, double percentile) {
+    return getLatencyNanos(operation, percentile) / NANOS_PER_MICRO;
+  }
+
+  /**
+   * Collects a latency of every operation.
+   *
+   * @param latency The function which gets the latency of an operation.
+   * @return The latencies by the name of the operation.
+   */
+  private static Map<String, Double> latenciesMicros(
+      ToDoubleFunction<Operation> latency) {
+    Map<String, Double> latencies = new LinkedHashMap<>();
+    for (Operation operation : OPERATIONS) {
+      latencies.put(nameOf(operation), latency.applyAsDouble(operation));
+    }
+    return latencies;
+  }
+
+  /**
+   * Gets the name of an operation as it is shown through JMX.
+   *
+   * @param operation The operation.
+   * @return The lowercase name.
+   */
+  static String nameOf(Operation operation) {
+    return operation.name().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Finds an operation by the name it is shown with through JMX.
+   *
+   * @param name The lowercase name of the operation.
+   * @return The operation.
+   * @throws IllegalArgumentException If there is no such operation.
+   */
+  private static Operation operationOf(String name) {
+    for (Operation operation : OPERATIONS) {
+      if (nameOf(operation).equals(name)) {
+        return operation;
+      }
+    }
+    throw new IllegalArgumentException("unknown operation \"" + name + "\"");
+  }
+
+}
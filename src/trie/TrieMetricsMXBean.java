@@ -0,0 +1,107 @@
+package trie;
+
+import java.util.Map;
+
+/**
+ * TrieMetricsMXBean is the management interface under which the metrics of a
+ * trie are exposed through JMX, see TrieMetrics#register(String). Latencies
+ * are given in microseconds and keyed by the lowercase name of the operation.
+ */
+public interface TrieMetricsMXBean {
+
+  /**
+   * Gets the amount of keys in the trie right now.
+   *
+   * @return The amount of keys.
+   */
+  long getKeyCount();
+
+  /**
+   * Gets the amount of nodes in the trie right now, including the root.
+   *
+   * @return The amount of nodes.
+   */
+  long getNodeCount();
+
+  /**
+   * Gets the amount of removals which removed nodes besides the points.
+   *
+   * @return The amount of removals which cascaded up the trie.
+   */
+  long getRemoveCascades();
+
+  /**
+   * Gets the amount of nodes all removals removed together.
+   *
+   * @return The amount of removed nodes.
+   */
+  long getRemovedNodes();
+
+  /**
+   * Gets how often each operation was called.
+   *
+   * @return The amount of calls by operation.
+   */
+  Map<String, Long> getOperationCounts();
+
+  /**
+   * Gets the median latency of each operation.
+   *
+   * @return The latency in microseconds by operation.
+   */
+  Map<String, Double> getMedianLatencyMicros();
+
+  /**
+   * Gets the 99th percentile of the latency of each operation.
+   *
+   * @return The latency in microseconds by operation.
+   */
+  Map<String, Double> getP99LatencyMicros();
+
+  /**
+   * Gets the highest latency of each operation.
+   *
+   * @return The latency in microseconds by operation.
+   */
+  Map<String, Double> getMaxLatencyMicros();
+
+  /**
+   * Gets the average key length of the latest statistics, see
+   * TrieMetrics#getStatistics().
+   *
+   * @return The average depth.
+   */
+  double getAverageDepth();
+
+  /**
+   * Gets the estimated heap size of the latest statistics, see
+   * TrieMetrics#getStatistics().
+   *
+   * @return The estimated size in bytes.
+   */
+  long getEstimatedBytes();
+
+  /**
+   * Gets the fanout distribution of the latest statistics, see
+   * TrieMetrics#getStatistics().
+   *
+   * @return The amount of nodes by their amount of children.
+   */
+  long[] getFanoutDistribution();
+
+  /**
+   * Gets the latency of an operation at the given percentile.
+   *
+   * @param operation  The lowercase name of the operation.
+   * @param percentile The percentile between 0 and 100.
+   * @return The latency in microseconds.
+   * @throws IllegalArgumentException If there is no such operation.
+   */
+  double latencyMicros(String operation, double percentile);
+
+  /**
+   * Resets the operation counters and latencies.
+   */
+  void reset();
+
+}
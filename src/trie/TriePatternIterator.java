@@ -0,0 +1,312 @@
+package trie;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * TriePatternIterator lazily walks over all keys with points which match a
+ * wildcard pattern in lexicographic order. A '?' in the pattern matches any
+ * single char, a '*' any amount of chars including none and a '\' makes the
+ * next char match only itself.
+ * <p>
+ * The pattern is matched like an automaton: every node on the current path
+ * stores the set of pattern positions which its key can reach. Children are
+ * only visited while that set is not empty, so subtrees are pruned at their
+ * first mismatching char, and where the set only expects literal chars the
+ * matching children are looked up directly instead of walking over all of
+ * them.
+ */
+class TriePatternIterator implements Iterator<Map.Entry<String, Integer>> {
+
+  private static final byte LITERAL = 0;
+  private static final byte ANY_CHAR = 1;
+  private static final byte ANY_SEQUENCE = 2;
+
+  // The kind and the literal char of every position of the pattern.
+  private final byte[] kinds;
+  private final char[] chars;
+  // The amount of positions, the position reached by a full match.
+  private final int length;
+  // The amount of longs of a set of positions.
+  private final int words;
+
+  // The current key, one char per level below the root.
+  private final StringBuilder key = new StringBuilder();
+  /*
+   The nodes of the current path with the positions their keys reach, stack[0]
+   is the root and stack[depth] the node for the current key.
+  */
+  private Node[] stack = new Node[16];
+  private long[][] positions = new long[16][];
+  /*
+   The chars of the children to visit for every node on the path, sorted and
+   null if all children are visited, and how many of them were visited so far.
+  */
+  private char[][] expected = new char[16][];
+  private int[] expectedCounts = new int[16];
+  private int[] visited = new int[16];
+  // The depth of the current node, -1 once the iteration is exhausted.
+  private int depth;
+  // The entry which is returned by the next call of next(), if any.
+  private Map.Entry<String, Integer> nextEntry;
+
+  /**
+   * Creates an iterator over all keys below the root which match the pattern.
+   *
+   * @param root    The root node of the trie.
+   * @param pattern The pattern the keys have to match.
+   * @throws IllegalArgumentException If the pattern ends with a single '\'.
+   */
+  TriePatternIterator(Node root, CharSequence pattern) {
+    byte[] patternKinds = new byte[pattern.length()];
+    char[] patternChars = new char[pattern.length()];
+    int count = 0;
+    for (int i = 0; i < pattern.length(); i++) {
+      char ch = pattern.charAt(i);
+      if (ch == '*') {
+        // Several '*' in a row match the same keys as a single one.
+        if (count == 0 || patternKinds[count - 1] != ANY_SEQUENCE) {
+          patternKinds[count++] = ANY_SEQUENCE;
+        }
+        continue;
+      }
+      if (ch == '?') {
+        patternKinds[count++] = ANY_CHAR;
+        continue;
+      }
+      if (ch == '\\') {
+        i++;
+        if (i == pattern.length()) {
+          throw new IllegalArgumentException("pattern can not end with an "
+              + "escape");
+        }
+        ch = pattern.charAt(i);
+      }
+      patternKinds[count] = LITERAL;
+      patternChars[count++] = ch;
+    }
+    kinds = patternKinds;
+    chars = patternChars;
+    length = count;
+    words = (length >>> 6) + 1;
+
+    stack[0] = root;
+    positions[0] = new long[words];
+    positions[0][0] = 1;
+    close(positions[0]);
+    depth = 0;
+    prepareChildren();
+    if (contains(positions[0], length) && root.hasPoints()) {
+      nextEntry = Map.entry("", root.getPoints());
+    } else {
+      nextEntry = findNextEntry();
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    return nextEntry != null;
+  }
+
+  @Override
+  public Map.Entry<String, Integer> next() {
+    if (nextEntry == null) {
+      throw new NoSuchElementException();
+    }
+    Map.Entry<String, Integer> entry = nextEntry;
+    nextEntry = findNextEntry();
+    return entry;
+  }
+
+  /**
+   * Moves on until the next node with points which matches the whole pattern
+   * is reached.
+   *
+   * @return The entry of the next match or null if there is none.
+   */
+  private Map.Entry<String, Integer> findNextEntry() {
+    while (moveToNextNode()) {
+      Node node = stack[depth];
+      if (node.hasPoints() && contains(positions[depth], length)) {
+        return Map.entry(key.toString(), node.getPoints());
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Moves to the next node in pre-order which can still match, which is the
+   * next matching child of the current node or otherwise of the closest node
+   * on the path which has one.
+   *
+   * @return Weather there is a next node, false once the iteration is done.
+   */
+  private boolean moveToNextNode() {
+    while (depth >= 0) {
+      Node child = nextMatchingChild();
+      if (child != null) {
+        depth++;
+        stack[depth] = child;
+        key.append(child.getCharacter());
+        prepareChildren();
+        return true;
+      }
+      stack[depth] = null;
+      if (depth > 0) {
+        key.setLength(key.length() - 1);
+      }
+      depth--;
+    }
+    return false;
+  }
+
+  /**
+   * Finds the next child of the current node whose key still reaches a
+   * position of the pattern and stores the reached positions one level below.
+   *
+   * @return The child or null if no other child can match.
+   */
+  private Node nextMatchingChild() {
+    ensureDepth(depth + 1);
+    Node node = stack[depth];
+    long[] current = positions[depth];
+    long[] next = positions[depth + 1];
+    char[] chs = expected[depth];
+
+    if (chs != null) {
+      // Only the expected chars can match, look up their children directly.
+      while (visited[depth] < expectedCounts[depth]) {
+        char ch = chs[visited[depth]++];
+        Node child = node.getChild(ch);
+        if (child != null && step(current, ch, next)) {
+          return child;
+        }
+      }
+      return null;
+    }
+
+    Node child = visited[depth] == 0 ? node.getFirstChild()
+        : node.getNextChild((char) (visited[depth] - 1));
+    while (child != null) {
+      char ch = child.getCharacter();
+      // Stores the char of the last visited child plus one.
+      visited[depth] = ch + 1;
+      if (step(current, ch, next)) {
+        return child;
+      }
+      child = node.getNextChild(ch);
+    }
+    visited[depth] = Character.MAX_VALUE + 1;
+    return null;
+  }
+
+  /**
+   * Decides which children of the current node are visited: all of them if a
+   * reached position is a wildcard, otherwise only the children for the
+   * literal chars of the reached positions.
+   */
+  private void prepareChildren() {
+    long[] current = positions[depth];
+    char[] chs = expected[depth] == null ? new char[4] : expected[depth];
+    visited[depth] = 0;
+    int count = 0;
+    for (int p = 0; p < length; p++) {
+      if (!contains(current, p)) {
+        continue;
+      }
+      if (kinds[p] != LITERAL) {
+        expected[depth] = null;
+        return;
+      }
+      if (count == chs.length) {
+        chs = Arrays.copyOf(chs, count * 2);
+      }
+      chs[count++] = chars[p];
+    }
+    Arrays.sort(chs, 0, count);
+    // Remove duplicates, so no child is visited twice.
+    int distinct = 0;
+    for (int i = 0; i < count; i++) {
+      if (distinct == 0 || chs[distinct - 1] != chs[i]) {
+        chs[distinct++] = chs[i];
+      }
+    }
+    expected[depth] = chs;
+    expectedCounts[depth] = distinct;
+  }
+
+  /**
+   * Computes the positions which are reached from the given ones by a char.
+   *
+   * @param current The reached positions before the char.
+   * @param ch      The char.
+   * @param next    The set to store the reached positions in.
+   * @return Weather any position is reached.
+   */
+  private boolean step(long[] current, char ch, long[] next) {
+    Arrays.fill(next, 0);
+    boolean reached = false;
+    for (int p = 0; p < length; p++) {
+      if (!contains(current, p)) {
+        continue;
+      }
+      if (kinds[p] == ANY_SEQUENCE) {
+        next[p >>> 6] |= 1L << p;
+        reached = true;
+      } else if (kinds[p] == ANY_CHAR || chars[p] == ch) {
+        next[(p + 1) >>> 6] |= 1L << (p + 1);
+        reached = true;
+      }
+    }
+    if (reached) {
+      close(next);
+    }
+    return reached;
+  }
+
+  /**
+   * Adds the positions after every reached '*' as it can match no chars.
+   *
+   * @param set The reached positions.
+   */
+  private void close(long[] set) {
+    for (int p = 0; p < length; p++) {
+      if (kinds[p] == ANY_SEQUENCE && contains(set, p)) {
+        set[(p + 1) >>> 6] |= 1L << (p + 1);
+      }
+    }
+  }
+
+  /**
+   * Checks weather a set contains a position.
+   *
+   * @param set      The set of positions.
+   * @param position The position.
+   * @return Weather the position is in the set.
+   */
+  private static boolean contains(long[] set, int position) {
+    return (set[position >>> 6] & (1L << position)) != 0;
+  }
+
+  /**
+   * Makes sure the arrays of the path can hold the given depth.
+   *
+   * @param target The depth.
+   */
+  private void ensureDepth(int target) {
+    if (target >= stack.length) {
+      int capacity = stack.length * 2;
+      stack = Arrays.copyOf(stack, capacity);
+      positions = Arrays.copyOf(positions, capacity);
+      expected = Arrays.copyOf(expected, capacity);
+      expectedCounts = Arrays.copyOf(expectedCounts, capacity);
+      visited = Arrays.copyOf(visited, capacity);
+    }
+    if (positions[target] == null) {
+      positions[target] = new long[words];
+    }
+  }
+
+}
@@ -0,0 +1,473 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * TrieQueries holds the read-only queries which work on any root node, so
+ * the Trie and its snapshots can share them.
+ */
+final class TrieQueries {
+
+  /**
+   * The class should never be initialised as it is just a utility class.
+   */
+  private TrieQueries() {
+  }
+
+  /**
+   * Lazily streams all keys which start with the given prefix together with
+   * their points in lexicographic order.
+   *
+   * @param root   The root node of the trie.
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The stream of key to points entries.
+   */
+  static Stream<Map.Entry<String, Integer>> prefixScan(Node root,
+      CharSequence prefix) {
+    return stream(new TrieEntryIterator(root.find(prefix), prefix));
+  }
+
+  /**
+   * Lazily streams all keys which are at least from and less than to together
+   * with their points in lexicographic order.
+   *
+   * @param root The root node of the trie.
+   * @param from The inclusive lower bound, empty to start at the first key.
+   * @param to   The exclusive upper bound, null to end at the last key.
+   * @return The stream of key to points entries.
+   */
+  static Stream<Map.Entry<String, Integer>> range(Node root, CharSequence from,
+      CharSequence to) {
+    return stream(new TrieEntryIterator(root, from, to));
+  }
+
+  /**
+   * Lazily streams all keys which match a wildcard pattern together with their
+   * points in lexicographic order, see TriePatternIterator.
+   *
+   * @param root    The root node of the trie.
+   * @param pattern The pattern the keys have to match.
+   * @return The stream of key to points entries.
+   * @throws IllegalArgumentException If the pattern ends with a single '\'.
+   */
+  static Stream<Map.Entry<String, Integer>> match(Node root,
+      CharSequence pattern) {
+    return stream(new TriePatternIterator(root, pattern));
+  }
+
+  /**
+   * Wraps an iterator over distinct sorted entries into a sequential stream.
+   * The stream pulls one entry at a time, so skip() and limit() page through
+   * the keys without collecting the skipped or remaining ones.
+   *
+   * @param iterator The iterator.
+   * @return The stream of its entries.
+   */
+  private static Stream<Map.Entry<String, Integer>> stream(
+      Iterator<Map.Entry<String, Integer>> iterator) {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+        Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+        false);
+  }
+
+  /**
+   * Finds the k keys with the highest points which start with the given
+   * prefix. The search always expands the subtree with the highest points
+   * stored in its root next, so subtrees whose highest points can not make it
+   * into the result anymore are never visited.
+   *
+   * @param root   The root node of the trie.
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @param k      The maximum amount of keys to return.
+   * @return The entries sorted by their points from high to low, keys with
+   * equal points are sorted lexicographically.
+   * @throws IllegalArgumentException If k is negative.
+   */
+  static List<Map.Entry<String, Integer>> topK(Node root, CharSequence prefix,
+      int k) {
+    if (k < 0) {
+      throw new IllegalArgumentException("k can not be negative");
+    }
+    List<Map.Entry<String, Integer>> result = new ArrayList<>(Math.min(k, 16));
+    Node start = root.find(prefix);
+    if (start == null || k == 0) {
+      return result;
+    }
+
+    PriorityQueue<Candidate> candidates = new PriorityQueue<>(
+        Comparator.comparingInt((Candidate candidate) -> candidate.points)
+            .reversed().thenComparing(candidate -> candidate.key));
+    candidates.add(new Candidate(prefix.toString(), start.getMaxPoints(), start));
+
+    while (!candidates.isEmpty() && result.size() < k) {
+      Candidate candidate = candidates.poll();
+      if (candidate.points == Trie.NO_POINTS) {
+        // Only subtrees without any points are left.
+        break;
+      }
+      if (candidate.subtree == null) {
+        result.add(Map.entry(candidate.key, candidate.points));
+        continue;
+      }
+
+      Node node = candidate.subtree;
+      if (node.hasPoints()) {
+        candidates.add(new Candidate(candidate.key, node.getPoints(), null));
+      }
+      for (Node child = node.getFirstChild(); child != null;
+          child = node.getNextChild(child.getCharacter())) {
+        candidates.add(new Candidate(candidate.key + child.getCharacter(),
+            child.getMaxPoints(), child));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets the amount of keys which start with the given prefix.
+   *
+   * @param root   The root node of the trie.
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The amount of keys.
+   */
+  static int count(Node root, CharSequence prefix) {
+    Node start = root.find(prefix);
+    return start == null ? 0 : start.getCount();
+  }
+
+  /**
+   * Gets the sum of the points of all keys which start with the given prefix.
+   *
+   * @param root   The root node of the trie.
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The sum of the points, 0 if there are no such keys.
+   */
+  static long sum(Node root, CharSequence prefix) {
+    Node start = root.find(prefix);
+    return start == null ? 0 : start.getSum();
+  }
+
+  /**
+   * Gets the lowest points of all keys which start with the given prefix.
+   *
+   * @param root   The root node of the trie.
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The lowest points or null if there are no such keys.
+   */
+  static Integer min(Node root, CharSequence prefix) {
+    Node start = root.find(prefix);
+    if (start == null || start.getCount() == 0) {
+      return null;
+    }
+    return start.getMinPoints();
+  }
+
+  /**
+   * Gets the highest points of all keys which start with the given prefix.
+   *
+   * @param root   The root node of the trie.
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The highest points or null if there are no such keys.
+   */
+  static Integer max(Node root, CharSequence prefix) {
+    Node start = root.find(prefix);
+    if (start == null || start.getCount() == 0) {
+      return null;
+    }
+    return start.getMaxPoints();
+  }
+
+  /**
+   * Counts the keys which start with the given prefix and match the given
+   * predicate. Large subtrees are split by their children and counted in
+   * parallel in the common ForkJoinPool, the amount of keys stored in every
+   * node decides if splitting is worth it.
+   *
+   * @param root      The root node of the trie.
+   * @param prefix    The prefix all keys have to start with, empty for all
+   *                  keys.
+   * @param predicate The predicate for the key and its points, it is called
+   *                  from several threads.
+   * @return The amount of matching keys.
+   */
+  static long count(Node root, CharSequence prefix,
+      BiPredicate<? super String, ? super Integer> predicate) {
+    Node start = root.find(prefix);
+    if (start == null) {
+      return 0;
+    }
+    return new CountTask(start, prefix.toString(), predicate).invoke();
+  }
+
+  /**
+   * CountTask counts the matching keys within the subtree of a node.
+   */
+  private static final class CountTask extends RecursiveTask<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    // Subtrees with fewer keys are counted by a single thread.
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 12;
+
+    private final Node node;
+    private final String key;
+    private final BiPredicate<? super String, ? super Integer> predicate;
+
+    /**
+     * Creates a task for the subtree of the given node.
+     *
+     * @param node      The root of the subtree.
+     * @param key       The key of the node.
+     * @param predicate The predicate for the key and its points.
+     */
+    private CountTask(Node node, String key,
+        BiPredicate<? super String, ? super Integer> predicate) {
+      this.node = node;
+      this.key = key;
+      this.predicate = predicate;
+    }
+
+    @Override
+    protected Long compute() {
+      long matches = 0;
+      if (node.getCount() <= SEQUENTIAL_THRESHOLD) {
+        TrieEntryIterator entries = new TrieEntryIterator(node, key);
+        while (entries.hasNext()) {
+          Map.Entry<String, Integer> entry = entries.next();
+          if (predicate.test(entry.getKey(), entry.getValue())) {
+            matches++;
+          }
+        }
+        return matches;
+      }
+
+      if (node.hasPoints() && predicate.test(key, node.getPoints())) {
+        matches++;
+      }
+      List<CountTask> tasks = new ArrayList<>(node.getChildrenCount());
+      for (Node child = node.getFirstChild(); child != null;
+          child = node.getNextChild(child.getCharacter())) {
+        if (child.getCount() != 0) {
+          tasks.add(new CountTask(child, key + child.getCharacter(),
+              predicate));
+        }
+      }
+      for (CountTask task : ForkJoinTask.invokeAll(tasks)) {
+        matches += task.join();
+      }
+      return matches;
+    }
+  }
+
+  /**
+   * Finds all keys whose Levenshtein distance to the given key is at most
+   * maxEdits. The trie is walked depth first while one row of the edit
+   * distance matrix is computed per node from the row of its parent, so keys
+   * with a common prefix share the work for it. A subtree is skipped as soon
+   * as every cell of the row exceeds maxEdits, and only the cells within
+   * maxEdits of the diagonal are computed, as the others can not lead to a
+   * match. Once no cell is below maxEdits, all edits are used up and only the
+   * rest of the key can follow, so those paths are looked up directly instead
+   * of visiting every child.
+   *
+   * @param root     The root node of the trie.
+   * @param key      The key to search for.
+   * @param maxEdits The maximum edit distance of a match.
+   * @return The matches sorted by their distance and then lexicographically.
+   * @throws IllegalArgumentException If maxEdits is negative.
+   */
+  static List<FuzzyMatch> fuzzySearch(Node root, CharSequence key,
+      int maxEdits) {
+    if (maxEdits < 0) {
+      throw new IllegalArgumentException("maxEdits can not be negative");
+    }
+    int length = key.length();
+    // Cells are capped at this value, anything above maxEdits is the same.
+    int limit = maxEdits + 1;
+    int maxDepth = length + maxEdits;
+    List<FuzzyMatch> matches = new ArrayList<>();
+
+    /*
+     rows[d][j] is the edit distance between the first j chars of the key and
+     the path to the node of depth d, the path holds the chars of the nodes.
+    */
+    int[][] rows = new int[Math.min(maxDepth, 16) + 1][];
+    rows[0] = new int[length + 2];
+    for (int j = 0; j <= length; j++) {
+      rows[0][j] = Math.min(j, limit);
+    }
+    rows[0][length + 1] = limit;
+    Node[] stack = new Node[rows.length];
+    char[] path = new char[rows.length];
+    if (root.hasPoints() && rows[0][length] <= maxEdits) {
+      matches.add(new FuzzyMatch("", root.getPoints(), rows[0][length]));
+    }
+
+    stack[0] = root;
+    int depth = 0;
+    Node node = null;
+    if (maxEdits == 0) {
+      addExactMatches(root, key, rows[0], 0, path, maxEdits, matches);
+    } else {
+      node = root.getFirstChild();
+    }
+    while (true) {
+      if (node != null) {
+        depth++;
+        if (depth == rows.length) {
+          int capacity = Math.min(maxDepth, rows.length * 2) + 1;
+          rows = Arrays.copyOf(rows, capacity);
+          stack = Arrays.copyOf(stack, capacity);
+          path = Arrays.copyOf(path, capacity);
+        }
+        if (rows[depth] == null) {
+          rows[depth] = new int[length + 2];
+        }
+        stack[depth] = node;
+        path[depth - 1] = node.getCharacter();
+        int minimum = computeRow(key, node.getCharacter(), rows[depth - 1],
+            rows[depth], depth, maxEdits);
+        // The last cell is only computed once it is within the band.
+        int distance = depth + maxEdits >= length ? rows[depth][length] : limit;
+        if (node.hasPoints() && distance <= maxEdits) {
+          matches.add(new FuzzyMatch(new String(path, 0, depth),
+              node.getPoints(), distance));
+        }
+        if (minimum == maxEdits) {
+          addExactMatches(node, key, rows[depth], depth, path, maxEdits,
+              matches);
+        } else if (minimum < maxEdits && depth < maxDepth) {
+          node = node.getFirstChild();
+          continue;
+        }
+      }
+
+      /*
+       Continue with the next sibling of the closest node which has one, the
+       sibling takes the place of the node on the stack.
+      */
+      node = null;
+      while (depth > 0 && node == null) {
+        node = stack[depth - 1].getNextChild(stack[depth].getCharacter());
+        depth--;
+      }
+      if (node == null) {
+        break;
+      }
+    }
+
+    matches.sort(Comparator.comparingInt(FuzzyMatch::getDistance)
+        .thenComparing(FuzzyMatch::getKey));
+    return matches;
+  }
+
+  /**
+   * Adds the matches below a node whose row has no cell below maxEdits. A
+   * key below the node can only match if the path to it continues with the
+   * rest of the searched key after a cell which equals maxEdits, so only
+   * those paths are followed.
+   *
+   * @param node     The node.
+   * @param key      The searched key.
+   * @param row      The row of the node.
+   * @param depth    The depth of the node.
+   * @param path     The chars of the path to the node.
+   * @param maxEdits The maximum edit distance of a match.
+   * @param matches  The list to add the matches to.
+   */
+  private static void addExactMatches(Node node, CharSequence key, int[] row,
+      int depth, char[] path, int maxEdits, List<FuzzyMatch> matches) {
+    int length = key.length();
+    int from = Math.max(0, depth - maxEdits);
+    int to = Math.min(length - 1, depth + maxEdits);
+    // The key of the node itself is checked by the caller, so j < length.
+    for (int j = from; j <= to; j++) {
+      if (row[j] != maxEdits) {
+        continue;
+      }
+      Node end = node;
+      for (int i = j; i < length && end != null; i++) {
+        end = end.getChild(key.charAt(i));
+      }
+      if (end != null && end.hasPoints()) {
+        matches.add(new FuzzyMatch(new String(path, 0, depth)
+            + key.subSequence(j, length), end.getPoints(), maxEdits));
+      }
+    }
+  }
+
+  /**
+   * Computes the row of the edit distance matrix for a node from the row of
+   * its parent, only within maxEdits of the diagonal. The cells left and
+   * right of that band are set to maxEdits + 1, so the row of a child can
+   * read them.
+   *
+   * @param key      The searched key.
+   * @param ch       The character of the node.
+   * @param previous The row of the parent.
+   * @param row      The row to compute, one cell longer than the key.
+   * @param depth    The depth of the node, at least 1.
+   * @param maxEdits The maximum edit distance of a match.
+   * @return The lowest value in the row.
+   */
+  private static int computeRow(CharSequence key, char ch, int[] previous,
+      int[] row, int depth, int maxEdits) {
+    int limit = maxEdits + 1;
+    int length = key.length();
+    int from = Math.max(1, depth - maxEdits);
+    int to = Math.min(length, depth + maxEdits);
+    row[0] = Math.min(depth, limit);
+    row[from - 1] = from == 1 ? row[0] : limit;
+    int minimum = row[from - 1];
+    for (int j = from; j <= to; j++) {
+      int cost = key.charAt(j - 1) == ch ? 0 : 1;
+      int value = Math.min(previous[j - 1] + cost,
+          Math.min(previous[j], row[j - 1]) + 1);
+      value = Math.min(value, limit);
+      row[j] = value;
+      minimum = Math.min(minimum, value);
+    }
+    row[to + 1] = limit;
+    return minimum;
+  }
+
+  /**
+   * Candidate is either a single key with its points or a whole subtree with
+   * its highest points, waiting to be expanded by the top k search.
+   */
+  private static final class Candidate {
+
+    private final String key;
+    private final int points;
+    // The root of the subtree or null if the candidate is a single key.
+    private final Node subtree;
+
+    /**
+     * Creates a new candidate.
+     *
+     * @param key     The key of the entry or of the root of the subtree.
+     * @param points  The points of the entry or the highest points of the
+     *                subtree.
+     * @param subtree The root of the subtree or null for a single key.
+     */
+    private Candidate(String key, int points, Node subtree) {
+      this.key = key;
+      this.points = points;
+      this.subtree = subtree;
+    }
+  }
+
+}
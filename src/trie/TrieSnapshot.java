@@ -0,0 +1,209 @@
+package trie;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.stream.Stream;
+
+/**
+ * TrieSnapshot is an immutable view of a Trie at the moment Trie#snapshot()
+ * was called. It shares its nodes with the trie, but the trie copies every
+ * shared node before changing it, so a snapshot can be read (also from another
+ * thread) while the trie keeps on changing.
+ */
+public final class TrieSnapshot {
+
+  // The root of the trie at the time of the snapshot, never changed.
+  private final Node root;
+
+  /**
+   * Creates a view of the nodes below the given root, which must not be changed
+   * anymore.
+   *
+   * @param root The root of the trie at the time of the snapshot.
+   */
+  TrieSnapshot(Node root) {
+    this.root = root;
+  }
+
+  /**
+   * Gets the root node of the snapshot, which must not be changed.
+   *
+   * @return The root node.
+   */
+  Node getRoot() {
+    return root;
+  }
+
+  /**
+   * Gets the points associated with a key.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * null.
+   */
+  public Integer points(CharSequence key) {
+    int points = getInt(key);
+    if (points == Trie.NO_POINTS) {
+      return null;
+    }
+    return points;
+  }
+
+  /**
+   * Gets the points associated with a key without boxing them.
+   *
+   * @param key The key for which to get the points from.
+   * @return Returns the points if there are any assigned, otherwise returns
+   * Trie.NO_POINTS.
+   */
+  public int getInt(CharSequence key) {
+    Node node = root.find(key);
+    if (node == null) {
+      return Trie.NO_POINTS;
+    }
+    return node.getPoints();
+  }
+
+  /**
+   * Lazily streams all keys which start with the given prefix together with
+   * their points in lexicographic order.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The stream of key to points entries.
+   */
+  public Stream<Map.Entry<String, Integer>> prefixScan(CharSequence prefix) {
+    return TrieQueries.prefixScan(root, prefix);
+  }
+
+  /**
+   * Lazily streams all keys which are at least from and less than to together
+   * with their points in lexicographic order. The path to the first key is
+   * followed directly and the stream ends at the first key which is not less
+   * than to, so with skip() and limit() a range can be paged through without
+   * visiting the keys before or after the page.
+   *
+   * @param from The inclusive lower bound, empty to start at the first key.
+   * @param to   The exclusive upper bound, null to end at the last key.
+   * @return The stream of key to points entries.
+   */
+  public Stream<Map.Entry<String, Integer>> range(CharSequence from,
+      CharSequence to) {
+    return TrieQueries.range(root, from, to);
+  }
+
+  /**
+   * Lazily streams all keys which match a wildcard pattern together with their
+   * points in lexicographic order. A '?' matches any single char, a '*' any
+   * amount of chars including none and a '\' makes the next char match only
+   * itself, e.g. "h?llo*" matches "hello" and "hallo world". Subtrees are
+   * skipped at their first char which can not match.
+   *
+   * @param pattern The pattern the keys have to match.
+   * @return The stream of key to points entries.
+   * @throws IllegalArgumentException If the pattern ends with a single '\'.
+   */
+  public Stream<Map.Entry<String, Integer>> match(CharSequence pattern) {
+    return TrieQueries.match(root, pattern);
+  }
+
+  /**
+   * Finds the k keys with the highest points which start with the given
+   * prefix, e.g. to autocomplete the prefix. Every node knows the highest
+   * points below it, so only the subtrees which can still contribute to the
+   * result are visited.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @param k      The maximum amount of keys to return.
+   * @return The entries sorted by their points from high to low, keys with
+   * equal points are sorted lexicographically.
+   * @throws IllegalArgumentException If k is negative.
+   */
+  public List<Map.Entry<String, Integer>> topK(CharSequence prefix, int k) {
+    return TrieQueries.topK(root, prefix, k);
+  }
+
+  /**
+   * Gets the amount of keys which start with the given prefix in the time it
+   * takes to find the prefix, as every node knows the amount of keys below it.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The amount of keys.
+   */
+  public int count(CharSequence prefix) {
+    return TrieQueries.count(root, prefix);
+  }
+
+  /**
+   * Gets the sum of the points of all keys which start with the given prefix
+   * in the time it takes to find the prefix.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The sum of the points, 0 if there are no such keys.
+   */
+  public long sum(CharSequence prefix) {
+    return TrieQueries.sum(root, prefix);
+  }
+
+  /**
+   * Gets the lowest points of all keys which start with the given prefix in
+   * the time it takes to find the prefix.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The lowest points or null if there are no such keys.
+   */
+  public Integer min(CharSequence prefix) {
+    return TrieQueries.min(root, prefix);
+  }
+
+  /**
+   * Gets the highest points of all keys which start with the given prefix in
+   * the time it takes to find the prefix.
+   *
+   * @param prefix The prefix all keys have to start with, empty for all keys.
+   * @return The highest points or null if there are no such keys.
+   */
+  public Integer max(CharSequence prefix) {
+    return TrieQueries.max(root, prefix);
+  }
+
+  /**
+   * Counts the keys which start with the given prefix and match the given
+   * predicate, visiting large subtrees in parallel in the common
+   * ForkJoinPool.
+   *
+   * @param prefix    The prefix all keys have to start with, empty for all
+   *                  keys.
+   * @param predicate The predicate for the key and its points, it is called
+   *                  from several threads.
+   * @return The amount of matching keys.
+   */
+  public long count(CharSequence prefix,
+      BiPredicate<? super String, ? super Integer> predicate) {
+    return TrieQueries.count(root, prefix, predicate);
+  }
+
+  /**
+   * Shows the snapshot as a string representation where an empty trie is "+".
+   *
+   * @return The snapshot in string representation based of the root element.
+   * @see Node#toString()
+   */
+  @Override
+  public String toString() {
+    return root.toString();
+  }
+
+  /**
+   * Writes the string representation of the snapshot incrementally to the given
+   * output without building it in memory first.
+   *
+   * @param out The output to write the representation to.
+   * @throws IOException If writing to the output fails.
+   * @see Node#writeTo(Appendable)
+   */
+  public void writeTo(Appendable out) throws IOException {
+    root.writeTo(out);
+  }
+}
@@ -0,0 +1,172 @@
+package trie;
+
+import java.util.Arrays;
+
+/**
+ * TrieStatistics describes the structure of a trie at the moment it was
+ * created: how many nodes and keys it has, how deep the keys are, how many
+ * children the nodes have and how much heap the nodes take. Creating it walks
+ * the whole trie once.
+ */
+public final class TrieStatistics {
+
+  private final long nodeCount;
+  private final long keyCount;
+  private final long keyDepthSum;
+  private final int maxDepth;
+  // fanout[i] is the amount of nodes with exactly i children.
+  private final long[] fanout;
+  private final long estimatedBytes;
+
+  /**
+   * Creates the statistics from the measured values.
+   *
+   * @param nodeCount      The amount of nodes including the root.
+   * @param keyCount       The amount of keys.
+   * @param keyDepthSum    The sum of the lengths of all keys.
+   * @param maxDepth       The length of the longest path.
+   * @param fanout         The amount of nodes by their amount of children.
+   * @param estimatedBytes The estimated heap size of all nodes.
+   */
+  private TrieStatistics(long nodeCount, long keyCount, long keyDepthSum,
+      int maxDepth, long[] fanout, long estimatedBytes) {
+    this.nodeCount = nodeCount;
+    this.keyCount = keyCount;
+    this.keyDepthSum = keyDepthSum;
+    this.maxDepth = maxDepth;
+    this.fanout = fanout;
+    this.estimatedBytes = estimatedBytes;
+  }
+
+  /**
+   * Walks all nodes below the given root with an explicit stack, so long keys
+   * can not overflow the call stack.
+   *
+   * @param root The root node of the trie.
+   * @return The statistics of the trie.
+   */
+  static TrieStatistics of(Node root) {
+    long nodeCount = 0;
+    long keyCount = 0;
+    long keyDepthSum = 0;
+    int maxDepth = 0;
+    long[] fanout = new long[2];
+    long estimatedBytes = 0;
+
+    // The nodes on the path to the current node, stack[0] is the root.
+    Node[] stack = new Node[16];
+    int depth = 0;
+    Node node = root;
+    while (node != null) {
+      stack[depth] = node;
+      nodeCount++;
+      estimatedBytes += node.estimateBytes();
+      maxDepth = Math.max(maxDepth, depth);
+      if (node.hasPoints()) {
+        keyCount++;
+        keyDepthSum += depth;
+      }
+      int children = node.getChildrenCount();
+      if (children >= fanout.length) {
+        fanout = Arrays.copyOf(fanout, children + 1);
+      }
+      fanout[children]++;
+
+      Node child = node.getFirstChild();
+      if (child != null) {
+        depth++;
+        if (depth == stack.length) {
+          stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        node = child;
+        continue;
+      }
+
+      // Continue with the next sibling of the closest node which has one.
+      node = null;
+      while (depth > 0 && node == null) {
+        node = stack[depth - 1].getNextChild(stack[depth].getCharacter());
+        if (node == null) {
+          stack[depth] = null;
+          depth--;
+        }
+      }
+    }
+    return new TrieStatistics(nodeCount, keyCount, keyDepthSum, maxDepth,
+        fanout, estimatedBytes);
+  }
+
+  /**
+   * Gets the amount of nodes including the root.
+   *
+   * @return The amount of nodes.
+   */
+  public long getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Gets the amount of keys.
+   *
+   * @return The amount of keys.
+   */
+  public long getKeyCount() {
+    return keyCount;
+  }
+
+  /**
+   * Gets the average length of the keys, which is the average amount of nodes
+   * below the root a lookup of an existing key visits.
+   *
+   * @return The average depth or 0 if there are no keys.
+   */
+  public double getAverageDepth() {
+    if (keyCount == 0) {
+      return 0;
+    }
+    return (double) keyDepthSum / keyCount;
+  }
+
+  /**
+   * Gets the length of the longest path from the root.
+   *
+   * @return The maximum depth.
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Gets the distribution of the amount of children per node.
+   *
+   * @return The array where index i holds the amount of nodes with exactly i
+   * children, up to the highest amount of children of any node.
+   */
+  public long[] getFanoutDistribution() {
+    return fanout.clone();
+  }
+
+  /**
+   * Gets the estimated heap size of all nodes and their arrays of children on
+   * a 64-bit JVM with compressed references.
+   *
+   * @return The estimated size in bytes.
+   */
+  public long getEstimatedBytes() {
+    return estimatedBytes;
+  }
+
+  /**
+   * Shows the statistics as a string, e.g. for logging.
+   *
+   * @return The string representation of the statistics.
+   */
+  @Override
+  public String toString() {
+    return "TrieStatistics{nodes=" + nodeCount + ", keys=" + keyCount
+        + ", averageDepth=" + getAverageDepth() + ", maxDepth=" + maxDepth
+        + ", fanout=" + Arrays.toString(getFanoutDistribution())
+        + ", estimatedBytes=" + estimatedBytes + "}";
+  }
+
+}